@@ -2,8 +2,14 @@ package bstmap;
 
 import java.util.*;
 
-public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V> {
-    private class BSTNode {
+/**
+ * keySet() and entrySet() are live views in key order. Their iterators walk
+ * the tree with a stack of at most height nodes, and fail fast with a
+ * ConcurrentModificationException once the map is modified other than
+ * through them.
+ */
+public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V>, InstrumentedMap {
+    private class BSTNode implements Map.Entry<K, V> {
         public K key;
         public V value;
         public BSTNode left, right;
@@ -12,10 +18,34 @@ public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V> {
             this.value = value;
             this.left = this.right = null;
         }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V old = this.value;
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
     }
 
     private BSTNode root;
     private int size;
+    /** Number of structural modifications, for the fail-fast iterators. */
+    private int modCount;
 
     public BSTMap() {
         root = null;
@@ -31,6 +61,7 @@ public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V> {
     public void clear() {
         root = null;
         size = 0;
+        ++modCount;
     }
 
     @Override
@@ -53,6 +84,7 @@ public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V> {
     private BSTNode putHelper(BSTNode cur, K key, V value) {
         if (cur == null) {
             ++size;
+            ++modCount;
             return new BSTNode(key, value);
         } else if (key.compareTo(cur.key) == 0) {
             cur.value = value;
@@ -70,11 +102,136 @@ public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V> {
         root = putHelper(root, key, value);
     }
 
+    /**
+     * Sorts the batch, then merges it into the tree from the top down. Each
+     * node splits the sorted keys it is handed with a binary search, passing
+     * those below it left and those above it right, so a path shared by many
+     * keys is walked once. The keys that reach an empty subtree are built into
+     * a balanced one there, so unlike separate puts a sorted batch doesn't
+     * grow into a chain.
+     */
+    @Override
+    public void putAll(K[] keys, V[] values) {
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException("Fewer values than keys: " + values.length + " < " + keys.length);
+        }
+        if (keys.length == 1) {
+            put(keys[0], values[0]);
+            return;
+        }
+        int[] order = sortedOrder(keys, true);
+        root = putAllHelper(root, keys, values, order, 0, order.length);
+    }
+
+    private BSTNode putAllHelper(BSTNode cur, K[] keys, V[] values, int[] order, int lo, int hi) {
+        if (lo >= hi) {
+            return cur;
+        }
+        if (cur == null) {
+            return buildHelper(keys, values, order, lo, hi);
+        }
+        int mid = lowerBound(keys, order, lo, hi, cur.key);
+        int next = mid;
+        if (mid < hi && keys[order[mid]].compareTo(cur.key) == 0) {
+            cur.value = values[order[mid]];
+            next = mid + 1;
+        }
+        cur.left = putAllHelper(cur.left, keys, values, order, lo, mid);
+        cur.right = putAllHelper(cur.right, keys, values, order, next, hi);
+        return cur;
+    }
+
+    /** Returns a balanced tree of the new keys at ORDER[lo, hi). */
+    private BSTNode buildHelper(K[] keys, V[] values, int[] order, int lo, int hi) {
+        if (lo >= hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        BSTNode cur = new BSTNode(keys[order[mid]], values[order[mid]]);
+        ++size;
+        ++modCount;
+        cur.left = buildHelper(keys, values, order, lo, mid);
+        cur.right = buildHelper(keys, values, order, mid + 1, hi);
+        return cur;
+    }
+
+    /**
+     * Returns the indices of KEYS in key order. With DISTINCT, only the last
+     * of each run of equal keys is kept, being the one whose value wins.
+     */
+    private int[] sortedOrder(K[] keys, boolean distinct) {
+        Integer[] sorted = new Integer[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            sorted[i] = i;
+        }
+        // The sort is stable, so equal keys stay in the order given.
+        Arrays.sort(sorted, (a, b) -> keys[a].compareTo(keys[b]));
+        int[] order = new int[keys.length];
+        int n = 0;
+        for (int j = 0; j < sorted.length; ++j) {
+            if (distinct && j + 1 < sorted.length && keys[sorted[j]].compareTo(keys[sorted[j + 1]]) == 0) {
+                continue;
+            }
+            order[n++] = sorted[j];
+        }
+        return n == order.length ? order : Arrays.copyOf(order, n);
+    }
+
+    /** Returns the first position in ORDER[lo, hi) whose key is not below KEY. */
+    private int lowerBound(K[] keys, int[] order, int lo, int hi, K key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[order[mid]].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
     @Override
     public V get(K key) {
         return getHelper(root, key);
     }
 
+    /**
+     * Sorts the batch and answers it in one descent of the tree, splitting
+     * the sorted keys at each node as putAll does, so that the nodes near the
+     * root are compared with once per batch rather than once per key.
+     */
+    @Override
+    public void getAll(K[] keys, V[] out) {
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("Output shorter than keys: " + out.length + " < " + keys.length);
+        }
+        if (keys.length == 1) {
+            out[0] = get(keys[0]);
+            return;
+        }
+        int[] order = sortedOrder(keys, false);
+        getAllHelper(root, keys, out, order, 0, order.length);
+    }
+
+    private void getAllHelper(BSTNode cur, K[] keys, V[] out, int[] order, int lo, int hi) {
+        if (lo >= hi) {
+            return;
+        }
+        if (cur == null) {
+            for (int j = lo; j < hi; ++j) {
+                out[order[j]] = null;
+            }
+            return;
+        }
+        int mid = lowerBound(keys, order, lo, hi, cur.key);
+        int next = mid;
+        while (next < hi && keys[order[next]].compareTo(cur.key) == 0) {
+            out[order[next++]] = cur.value;
+        }
+        getAllHelper(cur.left, keys, out, order, lo, mid);
+        getAllHelper(cur.right, keys, out, order, next, hi);
+    }
+
     public void printInOrder() {
         printHelper(root);
     }
@@ -99,26 +256,175 @@ public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V> {
         }
     }
 
+    /**
+     * Returns a live view of the keys, in order. Removing a key from it
+     * removes the key from the map; adding is not supported.
+     */
     @Override
     public Set<K> keySet() {
-        if (root == null) {
-            return new HashSet<>();
+        return new AbstractSet<K>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (o == null) {
+                    return false;
+                }
+                @SuppressWarnings("unchecked") K key = (K) o;
+                return containsKey(key);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (!contains(o)) {
+                    return false;
+                }
+                @SuppressWarnings("unchecked") K key = (K) o;
+                BSTMap.this.remove(key);
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                BSTMap.this.clear();
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return new InOrderIterator<K>() {
+                    @Override
+                    public K next() {
+                        return nextNode().key;
+                    }
+                };
+            }
+
+            @Override
+            public Spliterator<K> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.SORTED
+                        | Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
+        };
+    }
+
+    /** Returns a live view of the mappings, in key order. */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry) || ((Map.Entry<?, ?>) o).getKey() == null) {
+                    return false;
+                }
+                Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                @SuppressWarnings("unchecked") K key = (K) e.getKey();
+                return containsKey(key) && Objects.equals(get(key), e.getValue());
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (!contains(o)) {
+                    return false;
+                }
+                @SuppressWarnings("unchecked") K key = (K) ((Map.Entry<?, ?>) o).getKey();
+                BSTMap.this.remove(key);
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                BSTMap.this.clear();
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new InOrderIterator<Map.Entry<K, V>>() {
+                    @Override
+                    public Map.Entry<K, V> next() {
+                        return nextNode();
+                    }
+                };
+            }
+
+            @Override
+            public Spliterator<Map.Entry<K, V>> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED
+                        | Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
+        };
+    }
+
+    /**
+     * In-order traversal. The stack holds the nodes still to be visited whose
+     * left subtrees are done, the next one on top, so it never exceeds the height.
+     */
+    private abstract class InOrderIterator<T> implements Iterator<T> {
+        private final Deque<BSTNode> stack = new ArrayDeque<>();
+        private BSTNode last;
+        private int expectedModCount = modCount;
+
+        InOrderIterator() {
+            pushLeftPath(root);
         }
 
-        Set<K> re = new HashSet<>();
-        Queue<BSTNode> q = new ArrayDeque<>();
-        q.add(root);
-        while (!q.isEmpty()) {
-            BSTNode cur = q.remove();
-            re.add(cur.key);
-            if (cur.left != null) {
-                q.add(cur.left);
+        private void pushLeftPath(BSTNode cur) {
+            for (; cur != null; cur = cur.left) {
+                stack.push(cur);
             }
-            if (cur.right != null) {
-                q.add(cur.right);
+        }
+
+        @Override
+        public boolean hasNext() {
+            checkForComodification();
+            return !stack.isEmpty();
+        }
+
+        BSTNode nextNode() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = stack.pop();
+            pushLeftPath(last.right);
+            return last;
+        }
+
+        /**
+         * Removing restructures the tree, so afterwards the stack is rebuilt
+         * from the root as the path to the successor of the removed key.
+         */
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            K removed = last.key;
+            BSTMap.this.remove(removed);
+            last = null;
+            expectedModCount = modCount;
+            stack.clear();
+            for (BSTNode cur = root; cur != null; ) {
+                if (removed.compareTo(cur.key) < 0) {
+                    stack.push(cur);
+                    cur = cur.left;
+                } else {
+                    cur = cur.right;
+                }
+            }
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
             }
         }
-        return re;
     }
 
     @Override
@@ -130,6 +436,7 @@ public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V> {
         V re = get(key);
         root = removeHelper(root, key);
         --size;
+        ++modCount;
         return re;
     }
 
@@ -160,8 +467,9 @@ public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V> {
             }
             BSTNode temp = cur;
             cur = getRightMostNode(cur.right);
-            cur.left = temp.left; // left subtree unchanged, take over
+            // Unlink the take-place Node first: it must not have taken over the left subtree yet.
             cur.right = removeHelper(temp.right, cur.key); // right subtree changed, adjust the right subtree as remove the take-place Node.
+            cur.left = temp.left; // left subtree unchanged, take over
         }
         return cur;
     }
@@ -181,6 +489,7 @@ public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V> {
         V re = get(key);
         root = removeHelper(root, key);
         --size;
+        ++modCount;
         return re;
     }
 
@@ -188,4 +497,47 @@ public class BSTMap<K extends Comparable<K> , V> implements Map61B<K, V> {
     public Iterator<K> iterator() {
         return keySet().iterator();
     }
+
+    /**
+     * Returns the depth histogram and estimated footprint. The walk keeps its
+     * own stack, so that a tree degenerated into a list can't overflow the
+     * call stack.
+     */
+    @Override
+    public MapStats stats() {
+        int[] histogram = new int[1];
+        long total = 0;
+        Deque<BSTNode> nodes = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        if (root != null) {
+            nodes.push(root);
+            depths.push(1);
+        }
+        while (!nodes.isEmpty()) {
+            BSTNode cur = nodes.pop();
+            int depth = depths.pop();
+            if (depth >= histogram.length) {
+                histogram = Arrays.copyOf(histogram, Math.max(depth + 1, 2 * histogram.length));
+            }
+            histogram[depth]++;
+            total += depth;
+            if (cur.left != null) {
+                nodes.push(cur.left);
+                depths.push(depth + 1);
+            }
+            if (cur.right != null) {
+                nodes.push(cur.right);
+                depths.push(depth + 1);
+            }
+        }
+        int height = histogram.length - 1;
+        while (height > 0 && histogram[height] == 0) {
+            --height;
+        }
+        histogram = Arrays.copyOf(histogram, height + 1);
+        // a node: header, key, value, left, right and the outer map
+        long nodeBytes = MapStats.align(MapStats.HEADER + 5 * MapStats.REFERENCE);
+        return new MapStats(histogram, height, size == 0 ? 0 : (double) total / size,
+                0, 0, size == 0 ? 0 : nodeBytes);
+    }
 }
@@ -0,0 +1,11 @@
+package bstmap;
+
+/**
+ * A map that can describe its own layout, for the speed tests to print
+ * beside their timings.
+ * @author Suiren
+ */
+public interface InstrumentedMap {
+    /** Returns the current path lengths, resize history and footprint. */
+    MapStats stats();
+}
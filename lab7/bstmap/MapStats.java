@@ -0,0 +1,90 @@
+package bstmap;
+
+/**
+ * A snapshot of how a map lays out its entries, for explaining why one
+ * variant is faster or bigger than another. It has the same shape as the
+ * hash maps' stats in lab 8, with search paths in place of chains:
+ *  - a histogram of path lengths: histogram[k] is the number of keys a get
+ *    finds after comparing against k keys, i.e. at depth k counting the
+ *    root as 1;
+ *  - the longest path, the height of the tree, and the mean one;
+ *  - the number of resizes so far and the time spent in them, always 0 for a
+ *    tree, which grows one node at a time;
+ *  - an estimate of the heap the map itself retains per entry, not counting
+ *    the keys and values. It is worked out from the objects' shapes for a
+ *    64-bit JVM with compressed references (12-byte object headers, 4-byte
+ *    references, 8-byte alignment), the default below 32 GB of heap.
+ * @author Suiren
+ */
+public class MapStats {
+
+    /* Object layout assumed by the estimates */
+    static final int HEADER = 12;
+    static final int REFERENCE = 4;
+
+    private final int[] histogram;
+    private final int maxLength;
+    private final double meanLength;
+    private final int resizeCount;
+    private final long resizeNanos;
+    private final double bytesPerEntry;
+
+    public MapStats(int[] histogram, int maxLength, double meanLength,
+                    int resizeCount, long resizeNanos, double bytesPerEntry) {
+        this.histogram = histogram;
+        this.maxLength = maxLength;
+        this.meanLength = meanLength;
+        this.resizeCount = resizeCount;
+        this.resizeNanos = resizeNanos;
+        this.bytesPerEntry = bytesPerEntry;
+    }
+
+    /** Returns the path-length histogram, which callers must not modify. */
+    public int[] histogram() {
+        return histogram;
+    }
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+    public double meanLength() {
+        return meanLength;
+    }
+
+    public int resizeCount() {
+        return resizeCount;
+    }
+
+    public long resizeNanos() {
+        return resizeNanos;
+    }
+
+    public double bytesPerEntry() {
+        return bytesPerEntry;
+    }
+
+    /** Returns SIZE rounded up to the 8-byte alignment of objects. */
+    static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("  length: max %d, mean %.2f; histogram", maxLength, meanLength));
+        for (int k = 0; k < histogram.length && k <= 8; ++k) {
+            sb.append(' ').append(k).append(':').append(histogram[k]);
+        }
+        if (histogram.length > 9) {
+            long more = 0;
+            for (int k = 9; k < histogram.length; ++k) {
+                more += histogram[k];
+            }
+            sb.append(" 9+:").append(more);
+        }
+        sb.append(String.format("\n  resizes: %d, %.3f sec; est. %.1f bytes/entry",
+                resizeCount, resizeNanos / 1e9, bytesPerEntry));
+        return sb.toString();
+    }
+}
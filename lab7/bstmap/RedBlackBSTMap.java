@@ -0,0 +1,614 @@
+package bstmap;
+
+import java.util.*;
+
+/**
+ * A red-black tree map, after CLRS and java.util.TreeMap. Every red node has
+ * black children, and every path down from a node passes the same number of
+ * black nodes, so the tree stays below 2 log2(n + 1) high whatever order the
+ * keys arrive in. Keys inserted in order, which turn BSTMap into a list, cost
+ * O(log n) each here.
+ *
+ * Each node links to its parent, so put, get and remove walk the tree in
+ * loops and repair colors on the way back up by following the parent links.
+ * Nothing recurses, and no tree is deep enough to threaten the stack.
+ *
+ * keySet() and entrySet() are live views in key order. Their iterators step
+ * from node to successor through the parent links, and fail fast with a
+ * ConcurrentModificationException once the map is modified other than
+ * through them. Assumes null keys will never be inserted.
+ * @author Suiren
+ */
+public class RedBlackBSTMap<K extends Comparable<K>, V> implements Map61B<K, V>, InstrumentedMap {
+    private static final boolean RED = true;
+    private static final boolean BLACK = false;
+
+    private class Node implements Map.Entry<K, V> {
+        K key;
+        V value;
+        Node left, right, parent;
+        boolean color = RED;
+
+        Node(K key, V value, Node parent) {
+            this.key = key;
+            this.value = value;
+            this.parent = parent;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V old = this.value;
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    private Node root;
+    private int size;
+    /** Number of structural modifications, for the fail-fast iterators. */
+    private int modCount;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+        ++modCount;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return getNode(key) != null;
+    }
+
+    @Override
+    public V get(K key) {
+        Node n = getNode(key);
+        return n == null ? null : n.value;
+    }
+
+    private Node getNode(K key) {
+        Node cur = root;
+        while (cur != null) {
+            int cmp = key.compareTo(cur.key);
+            if (cmp < 0) {
+                cur = cur.left;
+            } else if (cmp > 0) {
+                cur = cur.right;
+            } else {
+                return cur;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        Node parent = null;
+        Node cur = root;
+        int cmp = 0;
+        while (cur != null) {
+            parent = cur;
+            cmp = key.compareTo(cur.key);
+            if (cmp < 0) {
+                cur = cur.left;
+            } else if (cmp > 0) {
+                cur = cur.right;
+            } else {
+                cur.value = value;
+                return;
+            }
+        }
+        Node n = new Node(key, value, parent);
+        if (parent == null) {
+            root = n;
+        } else if (cmp < 0) {
+            parent.left = n;
+        } else {
+            parent.right = n;
+        }
+        fixAfterInsertion(n);
+        ++size;
+        ++modCount;
+    }
+
+    @Override
+    public V remove(K key) {
+        Node n = getNode(key);
+        if (n == null) {
+            return null;
+        }
+        deleteNode(n);
+        return n.value;
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        Node n = getNode(key);
+        if (n == null || !Objects.equals(n.value, value)) {
+            return null;
+        }
+        deleteNode(n);
+        return n.value;
+    }
+
+    /* Balancing. Null children count as black leaves. */
+
+    private boolean colorOf(Node n) {
+        return n == null ? BLACK : n.color;
+    }
+
+    private void rotateLeft(Node x) {
+        Node y = x.right;
+        x.right = y.left;
+        if (y.left != null) {
+            y.left.parent = x;
+        }
+        replaceChild(x, y);
+        y.left = x;
+        x.parent = y;
+    }
+
+    private void rotateRight(Node x) {
+        Node y = x.left;
+        x.left = y.right;
+        if (y.right != null) {
+            y.right.parent = x;
+        }
+        replaceChild(x, y);
+        y.right = x;
+        x.parent = y;
+    }
+
+    /** Puts V where U hangs from its parent, or at the root. V may be null. */
+    private void replaceChild(Node u, Node v) {
+        if (u.parent == null) {
+            root = v;
+        } else if (u == u.parent.left) {
+            u.parent.left = v;
+        } else {
+            u.parent.right = v;
+        }
+        if (v != null) {
+            v.parent = u.parent;
+        }
+    }
+
+    /**
+     * Repairs a red node Z with a red parent, the only way an insertion can
+     * break the tree: recoloring moves the problem two levels up, and at most
+     * two rotations end it.
+     */
+    private void fixAfterInsertion(Node z) {
+        while (z != root && z.parent.color == RED) {
+            Node p = z.parent;
+            Node g = p.parent;
+            if (p == g.left) {
+                Node uncle = g.right;
+                if (colorOf(uncle) == RED) {
+                    p.color = BLACK;
+                    uncle.color = BLACK;
+                    g.color = RED;
+                    z = g;
+                } else {
+                    if (z == p.right) {
+                        z = p;
+                        rotateLeft(z);
+                        p = z.parent;
+                    }
+                    p.color = BLACK;
+                    g.color = RED;
+                    rotateRight(g);
+                }
+            } else {
+                Node uncle = g.left;
+                if (colorOf(uncle) == RED) {
+                    p.color = BLACK;
+                    uncle.color = BLACK;
+                    g.color = RED;
+                    z = g;
+                } else {
+                    if (z == p.left) {
+                        z = p;
+                        rotateRight(z);
+                        p = z.parent;
+                    }
+                    p.color = BLACK;
+                    g.color = RED;
+                    rotateLeft(g);
+                }
+            }
+        }
+        root.color = BLACK;
+    }
+
+    /**
+     * Unlinks Z. A node with two children is replaced by its successor node
+     * itself rather than by a copy of its key, so nodes never change keys and
+     * an iterator's next node stays valid.
+     */
+    private void deleteNode(Node z) {
+        Node x;
+        Node xParent;
+        boolean removedColor = z.color;
+        if (z.left == null) {
+            x = z.right;
+            xParent = z.parent;
+            replaceChild(z, z.right);
+        } else if (z.right == null) {
+            x = z.left;
+            xParent = z.parent;
+            replaceChild(z, z.left);
+        } else {
+            Node y = z.right;
+            while (y.left != null) {
+                y = y.left;
+            }
+            removedColor = y.color;
+            x = y.right;
+            if (y.parent == z) {
+                xParent = y;
+            } else {
+                xParent = y.parent;
+                replaceChild(y, y.right);
+                y.right = z.right;
+                y.right.parent = y;
+            }
+            replaceChild(z, y);
+            y.left = z.left;
+            y.left.parent = y;
+            y.color = z.color;
+        }
+        z.left = null;
+        z.right = null;
+        z.parent = null;
+        if (removedColor == BLACK) {
+            fixAfterDeletion(x, xParent);
+        }
+        --size;
+        ++modCount;
+    }
+
+    /**
+     * Repairs the paths through X, which are one black node short after a
+     * black node was removed above it. X may be a null leaf, so its parent is
+     * passed along. Each round either fixes the shortfall with at most three
+     * rotations or moves it one level up.
+     */
+    private void fixAfterDeletion(Node x, Node parent) {
+        while (x != root && colorOf(x) == BLACK) {
+            if (x == parent.left) {
+                Node w = parent.right;
+                if (w.color == RED) {
+                    w.color = BLACK;
+                    parent.color = RED;
+                    rotateLeft(parent);
+                    w = parent.right;
+                }
+                if (colorOf(w.left) == BLACK && colorOf(w.right) == BLACK) {
+                    w.color = RED;
+                    x = parent;
+                    parent = x.parent;
+                } else {
+                    if (colorOf(w.right) == BLACK) {
+                        w.left.color = BLACK;
+                        w.color = RED;
+                        rotateRight(w);
+                        w = parent.right;
+                    }
+                    w.color = parent.color;
+                    parent.color = BLACK;
+                    w.right.color = BLACK;
+                    rotateLeft(parent);
+                    x = root;
+                }
+            } else {
+                Node w = parent.left;
+                if (w.color == RED) {
+                    w.color = BLACK;
+                    parent.color = RED;
+                    rotateRight(parent);
+                    w = parent.left;
+                }
+                if (colorOf(w.left) == BLACK && colorOf(w.right) == BLACK) {
+                    w.color = RED;
+                    x = parent;
+                    parent = x.parent;
+                } else {
+                    if (colorOf(w.left) == BLACK) {
+                        w.right.color = BLACK;
+                        w.color = RED;
+                        rotateLeft(w);
+                        w = parent.left;
+                    }
+                    w.color = parent.color;
+                    parent.color = BLACK;
+                    w.left.color = BLACK;
+                    rotateRight(parent);
+                    x = root;
+                }
+            }
+        }
+        if (x != null) {
+            x.color = BLACK;
+        }
+    }
+
+    /**
+     * Checks the red-black invariants, the order of the keys, the parent
+     * links and the size, and returns the black height. For tests.
+     */
+    int checkInvariants() {
+        if (colorOf(root) == RED) {
+            throw new IllegalStateException("red root");
+        }
+        if (root != null && root.parent != null) {
+            throw new IllegalStateException("root has a parent");
+        }
+        int count = 0;
+        int blackHeight = -1;
+        for (Node n = first(); n != null; n = successor(n)) {
+            ++count;
+            Node next = successor(n);
+            if (next != null && n.key.compareTo(next.key) >= 0) {
+                throw new IllegalStateException("keys out of order at " + n.key);
+            }
+            for (Node child : Arrays.asList(n.left, n.right)) {
+                if (child != null && child.parent != n) {
+                    throw new IllegalStateException("bad parent link below " + n.key);
+                }
+            }
+            if (n.color == RED && (colorOf(n.left) == RED || colorOf(n.right) == RED)) {
+                throw new IllegalStateException("red node " + n.key + " has a red child");
+            }
+            if (n.left == null || n.right == null) {
+                int blacks = 0;
+                for (Node p = n; p != null; p = p.parent) {
+                    blacks += p.color == BLACK ? 1 : 0;
+                }
+                if (blackHeight >= 0 && blacks != blackHeight) {
+                    throw new IllegalStateException("black heights differ below " + n.key);
+                }
+                blackHeight = blacks;
+            }
+        }
+        if (count != size) {
+            throw new IllegalStateException("size " + size + " but " + count + " nodes");
+        }
+        return Math.max(blackHeight, 0);
+    }
+
+    /* Traversal */
+
+    /** Returns the node with the smallest key, or null. */
+    private Node first() {
+        Node cur = root;
+        if (cur != null) {
+            while (cur.left != null) {
+                cur = cur.left;
+            }
+        }
+        return cur;
+    }
+
+    /** Returns the node after N in key order, or null. */
+    private Node successor(Node n) {
+        if (n.right != null) {
+            Node cur = n.right;
+            while (cur.left != null) {
+                cur = cur.left;
+            }
+            return cur;
+        }
+        Node child = n;
+        Node p = n.parent;
+        while (p != null && child == p.right) {
+            child = p;
+            p = p.parent;
+        }
+        return p;
+    }
+
+    /**
+     * Returns a live view of the keys, in order. Removing a key from it
+     * removes the key from the map; adding is not supported.
+     */
+    @Override
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (o == null) {
+                    return false;
+                }
+                @SuppressWarnings("unchecked") K key = (K) o;
+                return containsKey(key);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (!contains(o)) {
+                    return false;
+                }
+                @SuppressWarnings("unchecked") K key = (K) o;
+                RedBlackBSTMap.this.remove(key);
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                RedBlackBSTMap.this.clear();
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return new InOrderIterator<K>() {
+                    @Override
+                    public K next() {
+                        return nextNode().key;
+                    }
+                };
+            }
+
+            @Override
+            public Spliterator<K> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED | Spliterator.SORTED
+                        | Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
+        };
+    }
+
+    /** Returns a live view of the mappings, in key order. */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry) || ((Map.Entry<?, ?>) o).getKey() == null) {
+                    return false;
+                }
+                Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                @SuppressWarnings("unchecked") K key = (K) e.getKey();
+                Node n = getNode(key);
+                return n != null && Objects.equals(n.value, e.getValue());
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (!contains(o)) {
+                    return false;
+                }
+                @SuppressWarnings("unchecked") K key = (K) ((Map.Entry<?, ?>) o).getKey();
+                RedBlackBSTMap.this.remove(key);
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                RedBlackBSTMap.this.clear();
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new InOrderIterator<Map.Entry<K, V>>() {
+                    @Override
+                    public Map.Entry<K, V> next() {
+                        return nextNode();
+                    }
+                };
+            }
+
+            @Override
+            public Spliterator<Map.Entry<K, V>> spliterator() {
+                return Spliterators.spliterator(this, Spliterator.ORDERED
+                        | Spliterator.DISTINCT | Spliterator.NONNULL);
+            }
+        };
+    }
+
+    /**
+     * In-order traversal from successor to successor. Removal relinks nodes
+     * without moving keys between them, so the next node is still the right
+     * one after the last is removed.
+     */
+    private abstract class InOrderIterator<T> implements Iterator<T> {
+        private Node next = first();
+        private Node last;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            checkForComodification();
+            return next != null;
+        }
+
+        Node nextNode() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = successor(next);
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            deleteNode(last);
+            last = null;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return keySet().iterator();
+    }
+
+    /**
+     * Returns the depth histogram and estimated footprint. The walk follows
+     * successor links and counts each node's depth up its parent links.
+     */
+    @Override
+    public MapStats stats() {
+        int[] histogram = new int[1];
+        long total = 0;
+        for (Node n = first(); n != null; n = successor(n)) {
+            int depth = 0;
+            for (Node p = n; p != null; p = p.parent) {
+                ++depth;
+            }
+            if (depth >= histogram.length) {
+                histogram = Arrays.copyOf(histogram, Math.max(depth + 1, 2 * histogram.length));
+            }
+            histogram[depth]++;
+            total += depth;
+        }
+        int height = histogram.length - 1;
+        while (height > 0 && histogram[height] == 0) {
+            --height;
+        }
+        histogram = Arrays.copyOf(histogram, height + 1);
+        // a node: header, key, value, left, right, parent, color and the outer map
+        long nodeBytes = MapStats.align(MapStats.HEADER + 6 * MapStats.REFERENCE + 1);
+        return new MapStats(histogram, height, size == 0 ? 0 : (double) total / size,
+                0, 0, size == 0 ? 0 : nodeBytes);
+    }
+}
@@ -1,7 +1,13 @@
 package bstmap;
 
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.stream.Collectors;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
@@ -113,4 +119,123 @@ public class TestBSTMapExtra {
         assertEquals(null, noChild.get('Z'));
     }
 
+    /* Iteration is in key order, and the views follow the map. */
+    @Test
+    public void testLiveViewsInOrder() {
+        BSTMap<Integer, String> b = new BSTMap<>();
+        Set<Integer> keys = b.keySet();
+        Set<Map.Entry<Integer, String>> entries = b.entrySet();
+        int[] order = {50, 20, 80, 10, 30, 70, 90, 25, 35, 60};
+        for (int k : order) {
+            b.put(k, "v" + k);
+        }
+        assertEquals(10, keys.size());
+        List<Integer> sorted = new ArrayList<>();
+        for (int k : b) {
+            sorted.add(k);
+        }
+        assertEquals(List.of(10, 20, 25, 30, 35, 50, 60, 70, 80, 90), sorted);
+        assertTrue(keys.contains(25));
+        assertTrue(keys.remove(25));
+        assertFalse(b.containsKey(25));
+        for (Map.Entry<Integer, String> e : entries) {
+            e.setValue(e.getValue() + "!");
+        }
+        assertEquals("v50!", b.get(50));
+        assertTrue(entries.contains(Map.entry(90, "v90!")));
+        assertEquals(List.of(10, 20, 30, 35, 50, 60, 70, 80, 90),
+                keys.parallelStream().collect(Collectors.toList()));
+    }
+
+    /* Removing through the iterator keeps it going; other changes make it fail. */
+    @Test
+    public void testIteratorRemoveAndFailFast() {
+        BSTMap<Integer, Integer> b = new BSTMap<>();
+        int[] order = {50, 20, 80, 10, 30, 70, 90, 25, 35, 60};
+        for (int k : order) {
+            b.put(k, k);
+        }
+        Iterator<Integer> it = b.iterator();
+        List<Integer> seen = new ArrayList<>();
+        while (it.hasNext()) {
+            int k = it.next();
+            seen.add(k);
+            if (k % 20 == 0) {
+                it.remove(); // 20, 60 and 80 have two children, one or none
+            }
+        }
+        assertEquals(List.of(10, 20, 25, 30, 35, 50, 60, 70, 80, 90), seen);
+        assertEquals(List.of(10, 25, 30, 35, 50, 70, 90), new ArrayList<>(b.keySet()));
+
+        Iterator<Integer> stale = b.iterator();
+        stale.next();
+        b.put(1, 1);
+        try {
+            stale.next();
+            fail();
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    /** Stats of a balanced and of a degenerate tree. */
+    @Test
+    public void testStats() {
+        BSTMap<Integer, Integer> b = new BSTMap<>();
+        for (int i : new int[] {4, 2, 6, 1, 3, 5, 7}) {
+            b.put(i, i);
+        }
+        MapStats stats = b.stats();
+        assertArrayEquals(new int[] {0, 1, 2, 4}, stats.histogram());
+        assertEquals(3, stats.maxLength());
+        assertEquals(17.0 / 7, stats.meanLength(), 1e-9);
+        assertEquals(0, stats.resizeCount());
+
+        BSTMap<Integer, Integer> list = new BSTMap<>();
+        for (int i = 0; i < 2000; i++) {
+            list.put(i, i);
+        }
+        assertEquals(2000, list.stats().maxLength());
+        assertEquals(0, new BSTMap<Integer, Integer>().stats().maxLength());
+    }
+
+    /** Batches agree with single operations, and a sorted batch builds a balanced subtree. */
+    @Test
+    public void testBatches() {
+        BSTMap<Integer, Integer> b = new BSTMap<>();
+        Map<Integer, Integer> expected = new java.util.TreeMap<>();
+        for (int round = 0; round < 20; round++) {
+            Integer[] keys = new Integer[round * 50 + 1];
+            Integer[] values = new Integer[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = (i * 7919 + round) % 3000;
+                values[i] = round * 10000 + i;
+                expected.put(keys[i], values[i]);
+            }
+            b.putAll(keys, values);
+            assertEquals(expected.size(), b.size());
+            assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(b.keySet()));
+
+            Integer[] probe = new Integer[500];
+            for (int i = 0; i < probe.length; i++) {
+                probe[i] = (i * 31 + round) % 4000;
+            }
+            Integer[] out = new Integer[probe.length];
+            b.getAll(probe, out);
+            for (int i = 0; i < probe.length; i++) {
+                assertEquals(expected.get(probe[i]), out[i]);
+            }
+        }
+        Integer[] gone = {0, 1, 2, 3999, 0};
+        assertEquals(3, b.removeAll(gone));
+        assertEquals(expected.size() - 3, b.size());
+
+        BSTMap<Integer, Integer> sorted = new BSTMap<>();
+        Integer[] keys = new Integer[1023];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        sorted.putAll(keys, keys);
+        assertEquals(10, sorted.stats().maxLength());
+    }
 }
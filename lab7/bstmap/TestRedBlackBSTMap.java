@@ -0,0 +1,115 @@
+package bstmap;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/** Tests of the red-black tree map, checking its invariants as it changes. */
+public class TestRedBlackBSTMap {
+
+    @Test
+    public void basicTest() {
+        RedBlackBSTMap<String, Integer> b = new RedBlackBSTMap<>();
+        for (int i = 0; i < 455; i++) {
+            b.put("hi" + i, 1 + i);
+            assertEquals(1 + i, b.get("hi" + i).intValue());
+            assertTrue(b.containsKey("hi" + i));
+        }
+        assertEquals(455, b.size());
+        assertFalse(b.containsKey("hi455"));
+        assertNull(b.get("hi455"));
+        b.put("hi0", 42);
+        assertEquals(455, b.size());
+        assertEquals(42, b.get("hi0").intValue());
+        assertNull(b.remove("hi1", 3));
+        assertEquals(2, b.remove("hi1", 2).intValue());
+        assertEquals(3, b.remove("hi2").intValue());
+        assertNull(b.remove("hi2"));
+        assertEquals(453, b.size());
+        b.checkInvariants();
+        b.clear();
+        assertEquals(0, b.size());
+        assertNull(b.get("hi3"));
+    }
+
+    /** Random puts and removes agree with TreeMap, and the tree stays a red-black tree. */
+    @Test
+    public void randomAgainstTreeMapTest() {
+        Random r = new Random(61);
+        RedBlackBSTMap<Integer, Integer> b = new RedBlackBSTMap<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = r.nextInt(2000);
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), b.remove(key));
+            } else {
+                expected.put(key, i);
+                b.put(key, i);
+            }
+            if (i % 500 == 0) {
+                b.checkInvariants();
+            }
+        }
+        b.checkInvariants();
+        assertEquals(expected.size(), b.size());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(b.keySet()));
+        for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+            assertEquals(e.getValue(), b.get(e.getKey()));
+        }
+    }
+
+    /** Keys in order make BSTMap a list; here the height stays logarithmic. */
+    @Test
+    public void inOrderHeightTest() {
+        RedBlackBSTMap<Integer, Integer> b = new RedBlackBSTMap<>();
+        int n = 1 << 20;
+        for (int i = 0; i < n; i++) {
+            b.put(i, i);
+        }
+        b.checkInvariants();
+        assertTrue(b.stats().maxLength() <= 2 * 21);
+        for (int i = 0; i < n; i += 2) {
+            b.remove(i);
+        }
+        b.checkInvariants();
+        assertEquals(n / 2, b.size());
+        assertTrue(b.stats().maxLength() <= 2 * 20);
+    }
+
+    @Test
+    public void iteratorRemoveAndFailFastTest() {
+        RedBlackBSTMap<Integer, Integer> b = new RedBlackBSTMap<>();
+        for (int i = 0; i < 100; i++) {
+            b.put(i, i);
+        }
+        List<Integer> seen = new ArrayList<>();
+        for (Iterator<Integer> it = b.keySet().iterator(); it.hasNext(); ) {
+            int k = it.next();
+            seen.add(k);
+            if (k % 3 != 0) {
+                it.remove();
+            }
+        }
+        assertEquals(100, seen.size());
+        assertEquals(34, b.size());
+        b.checkInvariants();
+        assertTrue(b.entrySet().remove(Map.entry(3, 3)));
+        assertFalse(b.entrySet().remove(Map.entry(6, 7)));
+
+        Iterator<Integer> it = b.iterator();
+        it.next();
+        b.put(1000, 1000);
+        try {
+            it.next();
+            fail();
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+}
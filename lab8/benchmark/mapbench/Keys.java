@@ -0,0 +1,50 @@
+package mapbench;
+
+import speed.StringUtils;
+
+/** The key distributions of the benchmarks. Each returns 2 * N distinct keys
+ *  from a fixed seed: the first N to put into the map, the other N to look up
+ *  as misses.
+ *  @author Suiren
+ */
+final class Keys {
+    /** Length of the random keys, as in the old speed tests. */
+    static final int RANDOM_LENGTH = 10;
+
+    private Keys() {
+    }
+
+    static String[] generate(String distribution, int n) {
+        switch (distribution) {
+            case "random":
+                return random(2 * n);
+            case "inorder":
+                return inOrder(2 * n);
+            case "colliding":
+                return StringUtils.collidingStrings(2 * n);
+            default:
+                throw new IllegalArgumentException("Unknown key distribution: " + distribution);
+        }
+    }
+
+    /** Random lowercase strings; at length 10 a repeat among a million is unlikely, and harmless. */
+    private static String[] random(int n) {
+        StringUtils.setSeed(61);
+        String[] re = new String[n];
+        for (int i = 0; i < n; i++) {
+            re[i] = StringUtils.randomString(RANDOM_LENGTH);
+        }
+        return re;
+    }
+
+    /** Lexicographically increasing strings, the worst case of an unbalanced BST. */
+    private static String[] inOrder(int n) {
+        String[] re = new String[n];
+        String s = "cat";
+        for (int i = 0; i < n; i++) {
+            s = StringUtils.nextString(s);
+            re[i] = s;
+        }
+        return re;
+    }
+}
@@ -0,0 +1,143 @@
+package mapbench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hashmap.Map61B;
+
+/** JMH benchmark of the batch operations against the same work done one
+ *  key at a time, for batch sizes from 1 to 4096:
+ *  - getAll and get of KEYS_PER_CALL keys drawn at random from a map of
+ *    SIZE keys, in batches of batch;
+ *  - putAll and put of SIZE keys into an empty map, in batches of batch.
+ *  Scores are per key, and get and put don't depend on batch: they are the
+ *  baseline repeated beside each batch size. The maps that override the
+ *  batch operations are here, with RedBlackBSTMap and java.util.HashMap,
+ *  which run Map61B's default loops.
+ *  @author Suiren
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xss64m"})
+public class Map61BBatchBenchmark {
+
+    /** Keys in the map, and put per invocation of the put benchmarks. */
+    private static final int SIZE = 100000;
+    /** Keys looked up per invocation of the get benchmarks. */
+    private static final int KEYS_PER_CALL = 4096;
+
+    @Param({"MyHashMap", "LinkedMyHashMap", "BSTMap", "RedBlackBSTMap", "java.util.HashMap"})
+    public String impl;
+
+    @Param({"random", "inorder"})
+    public String keys;
+
+    @Param({"1", "4", "16", "64", "256", "1024", "4096"})
+    public int batch;
+
+    private Map61B<String, Integer> map;
+    private String[] present;
+    private Integer[] values;
+    private String[] probes;
+    private String[] keyBatch;
+    private Integer[] valueBatch;
+    private Integer[] out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        present = Keys.generate(keys, SIZE);
+        values = new Integer[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = i;
+        }
+        map = Maps.create(impl);
+        for (int i = 0; i < SIZE; i++) {
+            map.put(present[i], values[i]);
+        }
+        Random r = new Random(61);
+        probes = new String[KEYS_PER_CALL];
+        for (int i = 0; i < KEYS_PER_CALL; i++) {
+            probes[i] = present[r.nextInt(SIZE)];
+        }
+        keyBatch = new String[batch];
+        valueBatch = new Integer[batch];
+        out = new Integer[batch];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Maps.close(map);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS_PER_CALL)
+    public long getAll() {
+        long sum = 0;
+        for (int i = 0; i < KEYS_PER_CALL; i += batch) {
+            System.arraycopy(probes, i, keyBatch, 0, batch);
+            map.getAll(keyBatch, out);
+            sum += out[0];
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS_PER_CALL)
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < KEYS_PER_CALL; i += batch) {
+            for (int j = i; j < i + batch; j++) {
+                Integer value = map.get(probes[j]);
+                if (j == i) {
+                    sum += value;
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Map61B<String, Integer> putAll() throws Exception {
+        Map61B<String, Integer> fresh = Maps.create(impl);
+        for (int i = 0; i < SIZE; i += batch) {
+            int n = Math.min(batch, SIZE - i);
+            String[] k = n == batch ? keyBatch : new String[n];
+            Integer[] v = n == batch ? valueBatch : new Integer[n];
+            System.arraycopy(present, i, k, 0, n);
+            System.arraycopy(values, i, v, 0, n);
+            fresh.putAll(k, v);
+        }
+        Maps.close(fresh);
+        return fresh;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public Map61B<String, Integer> put() throws Exception {
+        Map61B<String, Integer> fresh = Maps.create(impl);
+        for (int i = 0; i < SIZE; i++) {
+            fresh.put(present[i], values[i]);
+        }
+        Maps.close(fresh);
+        return fresh;
+    }
+}
@@ -0,0 +1,130 @@
+package mapbench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hashmap.Map61B;
+
+/** JMH benchmark of single operations on a map of size keys, for every
+ *  Map61B implementation, key distribution and operation mix:
+ *  - read: gets, 90% of them of present keys and 10% misses;
+ *  - write: removing a present key and putting it back, which keeps the size
+ *    steady;
+ *  - mixed: 80% reads as above, 20% writes.
+ *  The operations and their keys are drawn in setup, so that the measured
+ *  loop only indexes arrays. ULLMap can't remove and is only in
+ *  Map61BInsertBenchmark. The larger stack is for BSTMap, whose recursion
+ *  runs as deep as the tree, and on in-order keys that is size.
+ *  @author Suiren
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xss64m"})
+public class Map61BBenchmark {
+
+    private static final byte GET_HIT = 0;
+    private static final byte GET_MISS = 1;
+    private static final byte WRITE = 2;
+    /** Length of the drawn operation sequence, a power of two. */
+    private static final int OPS = 1 << 16;
+
+    @Param({"MyHashMap", "MyHashMapALBuckets", "MyHashMapLLBuckets", "MyHashMapTSBuckets",
+        "MyHashMapHSBuckets", "MyHashMapPQBuckets", "MyHashMapIncremental", "MyHashMapAdaptiveBuckets",
+        "MyHashMapRobinHood", "LinkedMyHashMap", "ConcurrentMyHashMap", "SwissMap", "CuckooMap",
+        "SnapshotMap", "OffHeapStringIntMap", "BSTMap", "RedBlackBSTMap", "java.util.HashMap", "java.util.TreeMap"})
+    public String impl;
+
+    @Param({"random", "inorder", "colliding"})
+    public String keys;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"read", "write", "mixed"})
+    public String mix;
+
+    private Map61B<String, Integer> map;
+    private String[] present;
+    private String[] absent;
+    private byte[] ops;
+    private int[] indices;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] all = Keys.generate(keys, size);
+        present = new String[size];
+        absent = new String[size];
+        System.arraycopy(all, 0, present, 0, size);
+        System.arraycopy(all, size, absent, 0, size);
+        map = Maps.create(impl);
+        for (int i = 0; i < size; i++) {
+            map.put(present[i], i);
+        }
+
+        int writePercent;
+        switch (mix) {
+            case "read":
+                writePercent = 0;
+                break;
+            case "write":
+                writePercent = 100;
+                break;
+            case "mixed":
+                writePercent = 20;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation mix: " + mix);
+        }
+        Random r = new Random(61);
+        ops = new byte[OPS];
+        indices = new int[OPS];
+        for (int i = 0; i < OPS; i++) {
+            int p = r.nextInt(100);
+            if (p < writePercent) {
+                ops[i] = WRITE;
+            } else {
+                ops[i] = r.nextInt(10) == 0 ? GET_MISS : GET_HIT;
+            }
+            indices[i] = r.nextInt(size);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Maps.close(map);
+    }
+
+    @Benchmark
+    public Integer op() {
+        int i = next++ & (OPS - 1);
+        switch (ops[i]) {
+            case GET_HIT:
+                return map.get(present[indices[i]]);
+            case GET_MISS:
+                return map.get(absent[indices[i]]);
+            default:
+                String key = present[indices[i]];
+                Integer value = map.remove(key);
+                map.put(key, value);
+                return value;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package mapbench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hashmap.Map61B;
+
+/** JMH benchmark of filling an empty map with size keys, resizes included,
+ *  for every Map61B implementation and key distribution: what
+ *  InsertRandomSpeedTest and InsertInOrderSpeedTest time once each, with
+ *  warm-up, repeated measurement and error bars.
+ *  @author Suiren
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xss64m"})
+public class Map61BInsertBenchmark {
+
+    @Param({"MyHashMap", "MyHashMapALBuckets", "MyHashMapLLBuckets", "MyHashMapTSBuckets",
+        "MyHashMapHSBuckets", "MyHashMapPQBuckets", "MyHashMapIncremental", "MyHashMapAdaptiveBuckets",
+        "MyHashMapRobinHood", "LinkedMyHashMap", "ConcurrentMyHashMap", "SwissMap", "CuckooMap",
+        "SnapshotMap", "OffHeapStringIntMap", "ULLMap", "BSTMap", "RedBlackBSTMap", "lab7.ULLMap",
+        "java.util.HashMap", "java.util.TreeMap"})
+    public String impl;
+
+    @Param({"random", "inorder", "colliding"})
+    public String keys;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private String[] present;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        present = Keys.generate(keys, size);
+    }
+
+    @Benchmark
+    public Map61B<String, Integer> insert() throws Exception {
+        Map61B<String, Integer> map = Maps.create(impl);
+        for (int i = 0; i < size; i++) {
+            map.put(present[i], i);
+        }
+        Maps.close(map);
+        return map;
+    }
+}
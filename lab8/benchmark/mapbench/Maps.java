@@ -0,0 +1,194 @@
+package mapbench;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import hashmap.ConcurrentMyHashMap;
+import hashmap.CuckooMap;
+import hashmap.LinkedMyHashMap;
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+import hashmap.MyHashMapALBuckets;
+import hashmap.MyHashMapAdaptiveBuckets;
+import hashmap.MyHashMapHSBuckets;
+import hashmap.MyHashMapIncremental;
+import hashmap.MyHashMapLLBuckets;
+import hashmap.MyHashMapPQBuckets;
+import hashmap.MyHashMapRobinHood;
+import hashmap.MyHashMapTSBuckets;
+import hashmap.OffHeapStringIntMap;
+import hashmap.SnapshotMap;
+import hashmap.SwissMap;
+import hashmap.ULLMap;
+import bstmap.BSTMap;
+import bstmap.RedBlackBSTMap;
+
+/** Creates the maps under test by name. lab 7's maps and Java's are adapted
+ *  to lab 8's Map61B, so that one benchmark drives them all.
+ *  @author Suiren
+ */
+final class Maps {
+    private Maps() {
+    }
+
+    static Map61B<String, Integer> create(String impl) {
+        switch (impl) {
+            case "MyHashMap": return new MyHashMap<>();
+            case "MyHashMapALBuckets": return new MyHashMapALBuckets<>();
+            case "MyHashMapLLBuckets": return new MyHashMapLLBuckets<>();
+            case "MyHashMapTSBuckets": return new MyHashMapTSBuckets<>();
+            case "MyHashMapHSBuckets": return new MyHashMapHSBuckets<>();
+            case "MyHashMapPQBuckets": return new MyHashMapPQBuckets<>();
+            case "MyHashMapIncremental": return new MyHashMapIncremental<>();
+            case "MyHashMapAdaptiveBuckets": return new MyHashMapAdaptiveBuckets<>();
+            case "MyHashMapRobinHood": return new MyHashMapRobinHood<>();
+            case "LinkedMyHashMap": return new LinkedMyHashMap<>();
+            case "ConcurrentMyHashMap": return new ConcurrentMyHashMap<>();
+            case "SwissMap": return new SwissMap<>();
+            case "CuckooMap": return new CuckooMap<>();
+            case "SnapshotMap": return new SnapshotMap<>();
+            case "OffHeapStringIntMap": return new OffHeapStringIntMap();
+            case "ULLMap": return new ULLMap<>();
+            case "BSTMap": return new Lab7Map(new BSTMap<>());
+            case "RedBlackBSTMap": return new Lab7Map(new RedBlackBSTMap<>());
+            case "lab7.ULLMap": return new Lab7Map(new bstmap.ULLMap<>());
+            case "java.util.HashMap": return new JavaMap(new HashMap<>());
+            case "java.util.TreeMap": return new JavaMap(new TreeMap<>());
+            default:
+                throw new IllegalArgumentException("Unknown map: " + impl);
+        }
+    }
+
+    /** Releases what a map holds outside the heap, if anything. */
+    static void close(Map61B<String, Integer> map) throws Exception {
+        if (map instanceof AutoCloseable) {
+            ((AutoCloseable) map).close();
+        }
+    }
+
+    /** A lab 7 map seen as a lab 8 one. */
+    private static final class Lab7Map implements Map61B<String, Integer> {
+        private final bstmap.Map61B<String, Integer> map;
+
+        Lab7Map(bstmap.Map61B<String, Integer> map) {
+            this.map = map;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public boolean containsKey(String key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public Integer get(String key) {
+            return map.get(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void put(String key, Integer value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return map.keySet();
+        }
+
+        @Override
+        public Integer remove(String key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public Integer remove(String key, Integer value) {
+            return map.remove(key, value);
+        }
+
+        @Override
+        public void putAll(String[] keys, Integer[] values) {
+            map.putAll(keys, values);
+        }
+
+        @Override
+        public void getAll(String[] keys, Integer[] out) {
+            map.getAll(keys, out);
+        }
+
+        @Override
+        public int removeAll(String[] keys) {
+            return map.removeAll(keys);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return map.iterator();
+        }
+    }
+
+    /** A java.util.Map seen as a Map61B, for a baseline. */
+    private static final class JavaMap implements Map61B<String, Integer> {
+        private final Map<String, Integer> map;
+
+        JavaMap(Map<String, Integer> map) {
+            this.map = map;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public boolean containsKey(String key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public Integer get(String key) {
+            return map.get(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void put(String key, Integer value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return map.keySet();
+        }
+
+        @Override
+        public Integer remove(String key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public Integer remove(String key, Integer value) {
+            return map.remove(key, value) ? value : null;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return map.keySet().iterator();
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package hashmap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  A thread-safe hash table with lock-free reads, in the manner of
+ *  java.util.concurrent.ConcurrentHashMap.
+ *
+ *  Each bin is a chain of nodes in an AtomicReferenceArray. An empty bin is
+ *  filled with a CAS; any other update locks the head node of its bin only, so
+ *  writers to different bins never wait for each other. get takes no lock at
+ *  all: the table slots, node links and values are all volatile.
+ *
+ *  Resizing is cooperative. The thread that finds the map too full allocates the
+ *  doubled table, and every writer that runs into the resize claims a stride of
+ *  bins and moves them over too. A moved bin is replaced by a ForwardingNode
+ *  pointing at the new table, where readers and writers carry on, so nobody waits
+ *  for the whole resize. The last thread to finish publishes the new table.
+ *
+ *  size() is exact when no update is in flight. keySet() and the iterator are
+ *  weakly consistent snapshots. Null keys and values are not allowed.
+ *  @author Suiren
+ */
+public class ConcurrentMyHashMap<K, V> implements Map61B<K, V>, InstrumentedMap {
+
+    /** A key-value pair in a bin. Only value and next change after creation. */
+    static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /** Marks a bin of the old table that has been moved to the new one. */
+    static final class ForwardingNode<K, V> extends Node<K, V> {
+        final AtomicReferenceArray<Node<K, V>> nextTable;
+
+        ForwardingNode(AtomicReferenceArray<Node<K, V>> nextTable) {
+            super(-1, null, null, null);
+            this.nextTable = nextTable;
+        }
+    }
+
+    /** The state of one resize, shared by all the threads taking part. */
+    private static final class Resize<K, V> {
+        final AtomicReferenceArray<Node<K, V>> oldTable;
+        final AtomicReferenceArray<Node<K, V>> newTable;
+        final ForwardingNode<K, V> forward;
+        /** Bins below this index are still to be claimed, counting down. */
+        final AtomicInteger transferIndex;
+        /** Bins moved so far. */
+        final AtomicInteger transferred = new AtomicInteger();
+        final long startNanos = System.nanoTime();
+
+        Resize(AtomicReferenceArray<Node<K, V>> oldTable) {
+            this.oldTable = oldTable;
+            this.newTable = new AtomicReferenceArray<>(oldTable.length() * 2);
+            this.forward = new ForwardingNode<>(newTable);
+            this.transferIndex = new AtomicInteger(oldTable.length());
+        }
+    }
+
+    private static final int INITIAL_SIZE = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+    /** Fewest bins a thread claims at once when helping a resize. */
+    private static final int MIN_STRIDE = 16;
+
+    /* Instance Variables */
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+    /** The resize in progress, or null. */
+    private volatile Resize<K, V> resizing;
+    private final LongAdder count = new LongAdder();
+    private final double loadFactor;
+    /* Written only by the thread finishing a resize, one resize at a time. */
+    private volatile int resizeCount;
+    /** Wall-clock time from the start to the end of each resize, whoever took part. */
+    private volatile long resizeNanos;
+
+    /** Constructors */
+    public ConcurrentMyHashMap() {
+        this(INITIAL_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    public ConcurrentMyHashMap(int initialSize) {
+        this(initialSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param initialSize initial number of bins, rounded up to a power of two
+     * @param maxLoad maximum load factor
+     */
+    public ConcurrentMyHashMap(int initialSize, double maxLoad) {
+        int capacity = 2;
+        while (capacity < initialSize) {
+            capacity <<= 1;
+        }
+        this.loadFactor = maxLoad;
+        this.table = new AtomicReferenceArray<>(capacity);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public int size() {
+        return (int) count.sum();
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return findNode(key) != null;
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> e = findNode(key);
+        return e == null ? null : e.value;
+    }
+
+    /** Lock-free lookup, following forwarding nodes into newer tables. */
+    private Node<K, V> findNode(K key) {
+        int h = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (true) {
+            Node<K, V> e = tab.get(h & (tab.length() - 1));
+            if (e instanceof ForwardingNode) {
+                tab = ((ForwardingNode<K, V>) e).nextTable;
+                continue;
+            }
+            for (; e != null; e = e.next) {
+                if (e.hash == h && key.equals(e.key)) {
+                    return e;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("ConcurrentMyHashMap does not allow null values");
+        }
+        int h = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (true) {
+            int i = h & (tab.length() - 1);
+            Node<K, V> f = tab.get(i);
+            if (f == null) {
+                if (tab.compareAndSet(i, null, new Node<>(h, key, value, null))) {
+                    break;
+                }
+            } else if (f instanceof ForwardingNode) {
+                helpResize();
+                tab = ((ForwardingNode<K, V>) f).nextTable;
+            } else {
+                synchronized (f) {
+                    if (tab.get(i) != f) {
+                        continue; // the head changed under us, retry
+                    }
+                    for (Node<K, V> e = f;; e = e.next) {
+                        if (e.hash == h && key.equals(e.key)) {
+                            e.value = value;
+                            return;
+                        }
+                        if (e.next == null) {
+                            e.next = new Node<>(h, key, value, null);
+                            break;
+                        }
+                    }
+                }
+                break;
+            }
+        }
+        count.increment();
+        maybeResize();
+    }
+
+    @Override
+    public V remove(K key) {
+        return removeNode(key, null);
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        return value == null ? null : removeNode(key, value);
+    }
+
+    /** Remove KEY if it is mapped to EXPECT, or to anything when EXPECT is null. */
+    private V removeNode(K key, V expect) {
+        int h = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (true) {
+            int i = h & (tab.length() - 1);
+            Node<K, V> f = tab.get(i);
+            if (f == null) {
+                return null;
+            }
+            if (f instanceof ForwardingNode) {
+                helpResize();
+                tab = ((ForwardingNode<K, V>) f).nextTable;
+                continue;
+            }
+            synchronized (f) {
+                if (tab.get(i) != f) {
+                    continue;
+                }
+                for (Node<K, V> e = f, pred = null; e != null; pred = e, e = e.next) {
+                    if (e.hash == h && key.equals(e.key)) {
+                        V v = e.value;
+                        if (expect != null && !Objects.equals(expect, v)) {
+                            return null;
+                        }
+                        if (pred == null) {
+                            tab.set(i, e.next);
+                        } else {
+                            pred.next = e.next;
+                        }
+                        count.decrement();
+                        return v;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Empties the map bin by bin. Entries put concurrently may survive,
+     * as with any other update racing with clear.
+     */
+    @Override
+    public void clear() {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        int i = 0;
+        while (i < tab.length()) {
+            Node<K, V> f = tab.get(i);
+            if (f == null) {
+                ++i;
+            } else if (f instanceof ForwardingNode) {
+                helpResize();
+                tab = ((ForwardingNode<K, V>) f).nextTable;
+                i = 0;
+            } else {
+                synchronized (f) {
+                    if (tab.get(i) == f) {
+                        int n = 0;
+                        for (Node<K, V> e = f; e != null; e = e.next) {
+                            ++n;
+                        }
+                        tab.set(i, null);
+                        count.add(-n);
+                        ++i;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Start a resize if the map is too full, or join the one in progress. */
+    private void maybeResize() {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        if (count.sum() < (long) (tab.length() * loadFactor)) {
+            return;
+        }
+        Resize<K, V> r = resizing;
+        if (r == null) {
+            synchronized (this) {
+                if (resizing == null && table == tab) {
+                    resizing = new Resize<>(tab);
+                }
+                r = resizing;
+            }
+        }
+        if (r != null) {
+            transfer(r);
+        }
+    }
+
+    /** Join the resize in progress, if any. */
+    private void helpResize() {
+        Resize<K, V> r = resizing;
+        if (r != null) {
+            transfer(r);
+        }
+    }
+
+    /**
+     * Claim strides of unmoved bins and move them until none are left.
+     * Whoever moves the last bin publishes the new table.
+     */
+    private void transfer(Resize<K, V> r) {
+        int n = r.oldTable.length();
+        int stride = Math.max(MIN_STRIDE, n / (8 * Runtime.getRuntime().availableProcessors()));
+        while (true) {
+            int hi = r.transferIndex.get();
+            if (hi <= 0) {
+                return;
+            }
+            int lo = Math.max(0, hi - stride);
+            if (!r.transferIndex.compareAndSet(hi, lo)) {
+                continue;
+            }
+            for (int i = hi - 1; i >= lo; --i) {
+                transferBin(r, i);
+            }
+            if (r.transferred.addAndGet(hi - lo) == n) {
+                resizeCount = resizeCount + 1;
+                resizeNanos = resizeNanos + (System.nanoTime() - r.startNanos);
+                table = r.newTable;
+                resizing = null;
+                maybeResize(); // puts into the new table may already have filled it
+                return;
+            }
+        }
+    }
+
+    /**
+     * Move bin I into bins I and I + n of the new table, copying its nodes so
+     * that readers still walking the old chain are undisturbed.
+     */
+    private void transferBin(Resize<K, V> r, int i) {
+        int n = r.oldTable.length();
+        while (true) {
+            Node<K, V> f = r.oldTable.get(i);
+            if (f == null) {
+                if (r.oldTable.compareAndSet(i, null, r.forward)) {
+                    return;
+                }
+                continue;
+            }
+            synchronized (f) {
+                if (r.oldTable.get(i) != f) {
+                    continue;
+                }
+                Node<K, V> low = null;
+                Node<K, V> high = null;
+                for (Node<K, V> e = f; e != null; e = e.next) {
+                    if ((e.hash & n) == 0) {
+                        low = new Node<>(e.hash, e.key, e.value, low);
+                    } else {
+                        high = new Node<>(e.hash, e.key, e.value, high);
+                    }
+                }
+                r.newTable.set(i, low);
+                r.newTable.set(i + n, high);
+                r.oldTable.set(i, r.forward);
+                return;
+            }
+        }
+    }
+
+    /** Returns a weakly consistent snapshot of the keys. */
+    @Override
+    public Set<K> keySet() {
+        Set<K> re = new HashSet<>();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); ++i) {
+            collectKeys(tab, i, re);
+        }
+        return re;
+    }
+
+    private void collectKeys(AtomicReferenceArray<Node<K, V>> tab, int i, Set<K> keys) {
+        Node<K, V> e = tab.get(i);
+        if (e instanceof ForwardingNode) {
+            AtomicReferenceArray<Node<K, V>> next = ((ForwardingNode<K, V>) e).nextTable;
+            collectKeys(next, i, keys);
+            collectKeys(next, i + tab.length(), keys);
+            return;
+        }
+        for (; e != null; e = e.next) {
+            keys.add(e.key);
+        }
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return keySet().iterator();
+    }
+
+    /**
+     * Returns the bin lengths, resizes and estimated footprint. Like keySet()
+     * it is weakly consistent: bins moved by a resize in progress are counted
+     * as the two bins they became in the new table.
+     */
+    @Override
+    public MapStats stats() {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        int[] histogram = new int[1];
+        for (int i = 0; i < tab.length(); ++i) {
+            histogram = countBin(tab, i, histogram);
+        }
+        // the AtomicReferenceArray and its array, then a node with hash, key, value and next per entry
+        long bytes = MapStats.align(MapStats.HEADER + MapStats.REFERENCE)
+                + MapStats.arrayBytes(tab.length(), MapStats.REFERENCE);
+        int n = size();
+        bytes += n * MapStats.align(MapStats.HEADER + 4 + 3 * MapStats.REFERENCE);
+        return MapStats.ofChains(histogram, resizeCount, resizeNanos, n == 0 ? 0 : (double) bytes / n);
+    }
+
+    /** Adds the length of bin I of TAB to HISTOGRAM, which is returned, grown if need be. */
+    private int[] countBin(AtomicReferenceArray<Node<K, V>> tab, int i, int[] histogram) {
+        Node<K, V> e = tab.get(i);
+        if (e instanceof ForwardingNode) {
+            AtomicReferenceArray<Node<K, V>> next = ((ForwardingNode<K, V>) e).nextTable;
+            histogram = countBin(next, i, histogram);
+            return countBin(next, i + tab.length(), histogram);
+        }
+        int length = 0;
+        for (; e != null; e = e.next) {
+            ++length;
+        }
+        if (length >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, length + 1);
+        }
+        histogram[length]++;
+        return histogram;
+    }
+}
@@ -0,0 +1,401 @@
+package hashmap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ *  A bucketized cuckoo hash table: every key has exactly two candidate buckets
+ *  of 4 slots, chosen by two seeded hash functions, plus a small stash. A get
+ *  therefore looks at no more than 2 * 4 + 4 = 12 slots, whatever was inserted.
+ *
+ *  A put takes a free slot in either bucket when there is one. Otherwise it evicts
+ *  a random resident of one of them, which moves to its own other bucket, and so
+ *  on in a random walk. A walk that goes on too long, usually because of a
+ *  cycle, leaves its last key in the stash. When the stash is full as well, the
+ *  table is rebuilt with new seeds, and doubled if that keeps failing.
+ *
+ *  The two hash functions both start from hashCode(), so no seed can separate
+ *  keys with equal hash codes, and more than 12 of them never fit. Rather than
+ *  fail, the entries that find no room in a full stash then go to an overflow
+ *  HashMap. A get that misses the 12 slots makes one lookup there, which compares
+ *  hash codes before calling equals, so only gets of keys sharing the colliding
+ *  hash codes pay for the overflow. Assumes null keys will never be inserted.
+ *  @author Suiren
+ */
+public class CuckooMap<K, V> implements Map61B<K, V> {
+
+    private static final int INITIAL_SIZE = 16;
+    /** Slots per bucket. */
+    private static final int SLOTS = 4;
+    private static final int STASH_SIZE = 4;
+    /** Longest eviction walk before an insertion gives up. */
+    private static final int MAX_KICKS = 256;
+    /** Rebuilds with fresh seeds before the table is doubled instead. */
+    private static final int REHASHES_PER_SIZE = 4;
+    /** Doublings tried for a single insertion before entries may overflow the stash. */
+    private static final int MAX_FORCED_GROWTH = 2;
+    private static final double MAX_LOAD = 0.9;
+
+    /* Instance Variables */
+    private Object[] keys;
+    private Object[] values;
+    private int bucketMask;
+    private int seed1;
+    private int seed2;
+    private final Object[] stashKeys = new Object[STASH_SIZE];
+    private final Object[] stashValues = new Object[STASH_SIZE];
+    private int stashSize;
+    /** Entries that found no room in a full stash, only ever keys no seed could place. */
+    private final HashMap<Object, Object> overflow = new HashMap<>();
+    private int size;
+    /** State of the xorshift generator choosing victims and seeds. */
+    private int random = 0x2545F491;
+    /** The entry left over by a failed insert. */
+    private Object homelessKey;
+    private Object homelessValue;
+    private final int initialSize;
+
+    /** Constructors */
+    public CuckooMap() {
+        this(INITIAL_SIZE);
+    }
+
+    /**
+     * @param initialSize initial number of slots, rounded up to a power of two of at least 8
+     */
+    public CuckooMap(int initialSize) {
+        this.initialSize = Math.max(2 * SLOTS, PrimitiveHashing.tableSizeFor(initialSize));
+        createTable(this.initialSize);
+    }
+
+    private void createTable(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        bucketMask = capacity / SLOTS - 1;
+        seed1 = nextRandom();
+        seed2 = nextRandom();
+    }
+
+    private int nextRandom() {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return random;
+    }
+
+    private static int mix(int h, int seed) {
+        h = (h ^ seed) * 0x9E3779B9;
+        h ^= h >>> 15;
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+
+    /** Index of the first slot of the bucket of hash code H under SEED. */
+    private int bucket(int h, int seed) {
+        return (mix(h, seed) & bucketMask) * SLOTS;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        clearStash();
+        createTable(initialSize);
+    }
+
+    private void clearStash() {
+        Arrays.fill(stashKeys, null);
+        Arrays.fill(stashValues, null);
+        stashSize = 0;
+        overflow.clear();
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return findSlot(key) >= 0 || findStash(key) >= 0
+                || (!overflow.isEmpty() && overflow.containsKey(key));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int i = findSlot(key);
+        if (i >= 0) {
+            return (V) values[i];
+        }
+        int s = findStash(key);
+        if (s >= 0) {
+            return (V) stashValues[s];
+        }
+        return overflow.isEmpty() ? null : (V) overflow.get(key);
+    }
+
+    /** Return the table slot holding KEY, or -1. */
+    private int findSlot(Object key) {
+        int h = key.hashCode();
+        int b = bucket(h, seed1);
+        for (int i = b; i < b + SLOTS; ++i) {
+            if (key.equals(keys[i])) {
+                return i;
+            }
+        }
+        b = bucket(h, seed2);
+        for (int i = b; i < b + SLOTS; ++i) {
+            if (key.equals(keys[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Return the stash index of KEY, or -1. */
+    private int findStash(Object key) {
+        for (int s = 0; s < stashSize; ++s) {
+            if (key.equals(stashKeys[s])) {
+                return s;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int i = findSlot(key);
+        if (i >= 0) {
+            values[i] = value;
+            return;
+        }
+        int s = findStash(key);
+        if (s >= 0) {
+            stashValues[s] = value;
+            return;
+        }
+        if (!overflow.isEmpty() && overflow.containsKey(key)) {
+            overflow.put(key, value);
+            return;
+        }
+        if (size + 1 > keys.length * MAX_LOAD) {
+            rehash(keys.length * 2, key, value);
+        } else if (!insert(key, value)) {
+            if (stashSize < STASH_SIZE) {
+                stashKeys[stashSize] = homelessKey;
+                stashValues[stashSize++] = homelessValue;
+            } else if (!overflow.isEmpty()) {
+                // The last rebuild already found keys no seed separates; another won't help.
+                overflow.put(homelessKey, homelessValue);
+            } else {
+                rehash(keys.length, homelessKey, homelessValue);
+            }
+            homelessKey = null;
+            homelessValue = null;
+        }
+        ++size;
+    }
+
+    /** Returns the first free slot of the bucket starting at B, or -1. */
+    private int freeSlot(int b) {
+        for (int i = b; i < b + SLOTS; ++i) {
+            if (keys[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Place KEY in the table, evicting residents along a random walk. Returns
+     * false if the walk gave up, leaving some key in homelessKey/homelessValue.
+     */
+    private boolean insert(Object key, Object value) {
+        for (int kick = 0; kick < MAX_KICKS; ++kick) {
+            int h = key.hashCode();
+            int b1 = bucket(h, seed1);
+            int b2 = bucket(h, seed2);
+            int free = freeSlot(b1);
+            if (free < 0) {
+                free = freeSlot(b2);
+            }
+            if (free >= 0) {
+                keys[free] = key;
+                values[free] = value;
+                return true;
+            }
+            int r = nextRandom();
+            int victim = ((r & 1) == 0 ? b1 : b2) + ((r >>> 1) & (SLOTS - 1));
+            Object victimKey = keys[victim];
+            Object victimValue = values[victim];
+            keys[victim] = key;
+            values[victim] = value;
+            key = victimKey;
+            value = victimValue;
+        }
+        homelessKey = key;
+        homelessValue = value;
+        return false;
+    }
+
+    /**
+     * Rebuild the table at CAPACITY slots with new seeds, together with the
+     * extra entry EXTRAKEY, retrying with other seeds and then larger tables
+     * until everything fits in the table and the stash.
+     */
+    private void rehash(int capacity, Object extraKey, Object extraValue) {
+        int n = size + 1;
+        Object[] allKeys = new Object[n];
+        Object[] allValues = new Object[n];
+        int j = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != null) {
+                allKeys[j] = keys[i];
+                allValues[j++] = values[i];
+            }
+        }
+        for (int s = 0; s < stashSize; ++s) {
+            allKeys[j] = stashKeys[s];
+            allValues[j++] = stashValues[s];
+        }
+        for (Map.Entry<Object, Object> e : overflow.entrySet()) {
+            allKeys[j] = e.getKey();
+            allValues[j++] = e.getValue();
+        }
+        allKeys[j] = extraKey;
+        allValues[j] = extraValue;
+
+        for (int attempt = 1;; ++attempt) {
+            boolean last = attempt > REHASHES_PER_SIZE * (MAX_FORCED_GROWTH + 1);
+            createTable(capacity);
+            clearStash();
+            if (insertAll(allKeys, allValues, last)) {
+                return;
+            }
+            if (attempt % REHASHES_PER_SIZE == 0) {
+                capacity *= 2;
+            }
+        }
+    }
+
+    /**
+     * Insert every entry, stashing those that fail. Returns false once the stash
+     * is full, unless MAYOVERFLOW lets the rest go to the overflow map.
+     */
+    private boolean insertAll(Object[] allKeys, Object[] allValues, boolean mayOverflow) {
+        for (int i = 0; i < allKeys.length; ++i) {
+            if (!insert(allKeys[i], allValues[i])) {
+                if (stashSize < STASH_SIZE) {
+                    stashKeys[stashSize] = homelessKey;
+                    stashValues[stashSize++] = homelessValue;
+                } else if (mayOverflow) {
+                    overflow.put(homelessKey, homelessValue);
+                } else {
+                    homelessKey = null;
+                    homelessValue = null;
+                    return false;
+                }
+            }
+        }
+        homelessKey = null;
+        homelessValue = null;
+        return true;
+    }
+
+    @Override
+    public V remove(K key) {
+        int i = findSlot(key);
+        if (i >= 0) {
+            @SuppressWarnings("unchecked") V old = (V) values[i];
+            keys[i] = null;
+            values[i] = null;
+            --size;
+            return old;
+        }
+        int s = findStash(key);
+        if (s >= 0) {
+            @SuppressWarnings("unchecked") V old = (V) stashValues[s];
+            deleteStash(s);
+            return old;
+        }
+        if (overflow.isEmpty() || !overflow.containsKey(key)) {
+            return null;
+        }
+        --size;
+        @SuppressWarnings("unchecked") V old = (V) overflow.remove(key);
+        return old;
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        int i = findSlot(key);
+        if (i >= 0) {
+            if (!Objects.equals(values[i], value)) {
+                return null;
+            }
+            keys[i] = null;
+            values[i] = null;
+            --size;
+            return value;
+        }
+        int s = findStash(key);
+        if (s >= 0) {
+            if (!Objects.equals(stashValues[s], value)) {
+                return null;
+            }
+            deleteStash(s);
+            return value;
+        }
+        if (overflow.isEmpty() || !overflow.containsKey(key)
+                || !Objects.equals(overflow.get(key), value)) {
+            return null;
+        }
+        overflow.remove(key);
+        --size;
+        return value;
+    }
+
+    private void deleteStash(int s) {
+        --stashSize;
+        stashKeys[s] = stashKeys[stashSize];
+        stashValues[s] = stashValues[stashSize];
+        stashKeys[stashSize] = null;
+        stashValues[stashSize] = null;
+        --size;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> re = new HashSet<>();
+        for (Object key : keys) {
+            if (key != null) {
+                @SuppressWarnings("unchecked") K k = (K) key;
+                re.add(k);
+            }
+        }
+        for (int s = 0; s < stashSize; ++s) {
+            @SuppressWarnings("unchecked") K k = (K) stashKeys[s];
+            re.add(k);
+        }
+        for (Object key : overflow.keySet()) {
+            @SuppressWarnings("unchecked") K k = (K) key;
+            re.add(k);
+        }
+        return re;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return keySet().iterator();
+    }
+
+    /** Returns the number of entries in the stash and its overflow, for tests and benchmarks. */
+    int stashSize() {
+        return stashSize + overflow.size();
+    }
+}
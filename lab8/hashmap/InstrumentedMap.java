@@ -0,0 +1,11 @@
+package hashmap;
+
+/**
+ * A map that can describe its own layout, for the speed tests to print
+ * beside their timings.
+ * @author Suiren
+ */
+public interface InstrumentedMap {
+    /** Returns the current chain lengths, resize history and footprint. */
+    MapStats stats();
+}
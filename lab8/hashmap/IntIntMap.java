@@ -0,0 +1,183 @@
+package hashmap;
+
+/**
+ *  A hash map from int to int with no boxing, a primitive sibling of Map61B.
+ *
+ *  Keys and values live in two flat int arrays with linear probing. Key 0 marks
+ *  an empty slot, so the mapping of 0 itself, if any, is kept in separate fields.
+ *  Removal shifts the following keys of the cluster back instead of leaving
+ *  tombstones. get, put, containsKey and remove never allocate; only put may
+ *  grow the arrays.
+ *
+ *  A missing key reads as the no-entry value given at construction (0 by default).
+ *  @author Suiren
+ */
+public class IntIntMap {
+
+    private static final int INITIAL_SIZE = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+    /** The key of an empty slot. */
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    /** Number of keys in the arrays, the zero key excluded. */
+    private int used;
+    private boolean hasZeroKey;
+    private int zeroValue;
+    private final int initialSize;
+    private final double loadFactor;
+    private final int noEntryValue;
+
+    public IntIntMap() {
+        this(INITIAL_SIZE, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    public IntIntMap(int initialSize) {
+        this(initialSize, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    /**
+     * @param initialSize initial number of slots, rounded up to a power of two
+     * @param maxLoad maximum load factor, below 1
+     * @param noEntryValue the value get returns for a missing key
+     */
+    public IntIntMap(int initialSize, double maxLoad, int noEntryValue) {
+        if (maxLoad <= 0 || maxLoad >= 1) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + maxLoad);
+        }
+        this.initialSize = PrimitiveHashing.tableSizeFor(initialSize);
+        this.loadFactor = maxLoad;
+        this.noEntryValue = noEntryValue;
+        createTable(this.initialSize);
+    }
+
+    private void createTable(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /** Removes all of the mappings from this map. */
+    public void clear() {
+        used = 0;
+        hasZeroKey = false;
+        createTable(initialSize);
+    }
+
+    /** Returns the number of key-value mappings in this map. */
+    public int size() {
+        return used + (hasZeroKey ? 1 : 0);
+    }
+
+    /** Returns true if this map contains a mapping for KEY. */
+    public boolean containsKey(int key) {
+        return key == EMPTY ? hasZeroKey : findSlot(key) >= 0;
+    }
+
+    /** Returns the value of KEY, or the no-entry value if there is none. */
+    public int get(int key) {
+        return getOrDefault(key, noEntryValue);
+    }
+
+    /** Returns the value of KEY, or DEFAULTVALUE if there is none. */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int i = findSlot(key);
+        return i < 0 ? defaultValue : values[i];
+    }
+
+    private int findSlot(int key) {
+        for (int i = PrimitiveHashing.mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Associates VALUE with KEY, replacing any previous value. */
+    public void put(int key, int value) {
+        if (key == EMPTY) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int i = PrimitiveHashing.mix(key) & mask;
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++used > keys.length * loadFactor) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /** Removes the mapping of KEY; returns its value, or the no-entry value if there was none. */
+    public int remove(int key) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                return noEntryValue;
+            }
+            hasZeroKey = false;
+            return zeroValue;
+        }
+        int i = findSlot(key);
+        if (i < 0) {
+            return noEntryValue;
+        }
+        int old = values[i];
+        // Shift back every following key of the cluster that may move to the hole.
+        int next = (i + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = PrimitiveHashing.mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - i) & mask)) {
+                keys[i] = keys[next];
+                values[i] = values[next];
+                i = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[i] = EMPTY;
+        --used;
+        return old;
+    }
+
+    /** Returns the keys of this map, in no particular order. */
+    public int[] keys() {
+        int[] re = new int[size()];
+        int n = 0;
+        if (hasZeroKey) {
+            re[n++] = EMPTY;
+        }
+        for (int key : keys) {
+            if (key != EMPTY) {
+                re[n++] = key;
+            }
+        }
+        return re;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        createTable(capacity);
+        for (int j = 0; j < oldKeys.length; ++j) {
+            if (oldKeys[j] != EMPTY) {
+                int i = PrimitiveHashing.mix(oldKeys[j]) & mask;
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
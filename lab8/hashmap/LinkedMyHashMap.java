@@ -0,0 +1,351 @@
+package hashmap;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Hash Table that also threads its nodes on a doubly-linked list, as
+ * java.util.LinkedHashMap does. The list runs from the eldest node to the
+ * newest, in insertion order or, in access order, with every get or put of
+ * an existing key moving its node to the newest end.
+ *
+ * Given a capacity, each put of a new key beyond it evicts the eldest node,
+ * in O(1): in access order that is the least recently used one, which makes
+ * the map an LRU cache. Gets count hits and misses, and evictions are counted
+ * too, for judging a cache size. containsKey is not an access.
+ *
+ * keySet(), entrySet() and iterator() walk the list, eldest first.
+ * @author Suiren
+ */
+public class LinkedMyHashMap<K, V> extends MyHashMap<K, V> {
+
+    /** A node with links to its neighbours in the list. */
+    private class LinkedNode extends Node {
+        LinkedNode before;
+        LinkedNode after;
+
+        LinkedNode(K k, V v) {
+            super(k, v);
+        }
+    }
+
+    /* Instance Variables */
+    /** The eldest node, or null when empty. */
+    private LinkedNode head;
+    /** The newest node, or null when empty. */
+    private LinkedNode tail;
+    private final boolean accessOrder;
+    /** Most entries kept, or Integer.MAX_VALUE for no bound. */
+    private final int capacity;
+    /** Number of changes to the list, for the fail-fast iterators. */
+    private int listModCount;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /** Creates an unbounded map in insertion order. */
+    public LinkedMyHashMap() {
+        this(Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Creates an LRU cache of at most capacity entries.
+     *
+     * @param capacity most entries kept
+     */
+    public LinkedMyHashMap(int capacity) {
+        this(capacity, true);
+    }
+
+    /**
+     * @param capacity most entries kept, or Integer.MAX_VALUE for no bound
+     * @param accessOrder true for access order, false for insertion order
+     */
+    public LinkedMyHashMap(int capacity, boolean accessOrder) {
+        super(capacity == Integer.MAX_VALUE ? 16 : tableSizeFor(capacity));
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.accessOrder = accessOrder;
+    }
+
+    /** The smallest table that holds capacity entries without resizing at 0.75 load. */
+    private static int tableSizeFor(int capacity) {
+        return PrimitiveHashing.tableSizeFor((int) Math.min(1 << 30, capacity * 4L / 3 + 1));
+    }
+
+    @Override
+    protected Node createNode(K key, V value) {
+        return new LinkedNode(key, value);
+    }
+
+    /** A node is two links bigger than MyHashMap's. */
+    @Override
+    protected long nodeBytes() {
+        return MapStats.align(MapStats.HEADER + 5 * MapStats.REFERENCE);
+    }
+
+    @Override
+    protected void afterNodeInsertion(Node n) {
+        linkLast((LinkedNode) n);
+        if (removeEldestEntry(head)) {
+            ++evictions;
+            remove(head.key);
+        }
+    }
+
+    @Override
+    protected void afterNodeAccess(Node n) {
+        if (accessOrder && n != tail) {
+            LinkedNode p = (LinkedNode) n;
+            unlink(p);
+            linkLast(p);
+        }
+    }
+
+    @Override
+    protected void afterNodeRemoval(Node n) {
+        unlink((LinkedNode) n);
+    }
+
+    /**
+     * Returns whether to evict ELDEST after a put has added a new key.
+     * By default, whether the map has grown past its capacity.
+     */
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > capacity;
+    }
+
+    private void linkLast(LinkedNode p) {
+        p.before = tail;
+        p.after = null;
+        if (tail == null) {
+            head = p;
+        } else {
+            tail.after = p;
+        }
+        tail = p;
+        ++listModCount;
+    }
+
+    private void unlink(LinkedNode p) {
+        if (p.before == null) {
+            head = p.after;
+        } else {
+            p.before.after = p.after;
+        }
+        if (p.after == null) {
+            tail = p.before;
+        } else {
+            p.after.before = p.before;
+        }
+        p.before = null;
+        p.after = null;
+        ++listModCount;
+    }
+
+    @Override
+    public V get(K key) {
+        V value = super.get(key);
+        if (value == null) {
+            ++misses;
+        } else {
+            ++hits;
+        }
+        return value;
+    }
+
+    /**
+     * Puts the keys in the order given. A bounded map never holds more than
+     * capacity entries, and its table is sized for that from the start, so
+     * unlike MyHashMap it doesn't grow the table for the whole batch first.
+     */
+    @Override
+    public void putAll(K[] keys, V[] values) {
+        if (capacity == Integer.MAX_VALUE) {
+            super.putAll(keys, values);
+            return;
+        }
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException("Fewer values than keys: " + values.length + " < " + keys.length);
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            put(keys[i], values[i]);
+        }
+    }
+
+    /** Gets the keys in the order given, which is the order they become the most recently used. */
+    @Override
+    public void getAll(K[] keys, V[] out) {
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("Output shorter than keys: " + out.length + " < " + keys.length);
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            out[i] = get(keys[i]);
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        Node n = getNode(key);
+        return n != null && n.value != null;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        head = null;
+        tail = null;
+        ++listModCount;
+    }
+
+    /** Returns the eldest entry, which the next eviction would remove, or null. */
+    public Map.Entry<K, V> eldest() {
+        return head;
+    }
+
+    /** Returns the number of gets that found their key. */
+    public long hits() {
+        return hits;
+    }
+
+    /** Returns the number of gets that did not find their key. */
+    public long misses() {
+        return misses;
+    }
+
+    /** Returns the number of entries evicted to stay within capacity. */
+    public long evictions() {
+        return evictions;
+    }
+
+    /** Zeroes the hit, miss and eviction counters. */
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /** Returns a live view of the keys, eldest first. */
+    @Override
+    public Set<K> keySet() {
+        Set<K> keys = super.keySet();
+        return new AbstractSet<K>() {
+            @Override
+            public int size() {
+                return LinkedMyHashMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return keys.contains(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                return keys.remove(o);
+            }
+
+            @Override
+            public void clear() {
+                LinkedMyHashMap.this.clear();
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return new LinkedIterator<K>() {
+                    @Override
+                    K project(LinkedNode n) {
+                        return n.key;
+                    }
+                };
+            }
+        };
+    }
+
+    /** Returns a live view of the mappings, eldest first. */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> entries = super.entrySet();
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return LinkedMyHashMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return entries.contains(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                return entries.remove(o);
+            }
+
+            @Override
+            public void clear() {
+                LinkedMyHashMap.this.clear();
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new LinkedIterator<Map.Entry<K, V>>() {
+                    @Override
+                    Map.Entry<K, V> project(LinkedNode n) {
+                        return n;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Walks the list from the eldest node. Like the list itself it fails fast
+     * on any change to the order, so iterating an access-ordered map while
+     * calling get on it throws ConcurrentModificationException.
+     */
+    private abstract class LinkedIterator<T> implements Iterator<T> {
+        private LinkedNode next = head;
+        private LinkedNode last;
+        private int expectedModCount = listModCount;
+
+        abstract T project(LinkedNode n);
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (listModCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = next.after;
+            return project(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            if (listModCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            LinkedMyHashMap.this.remove(last.key);
+            last = null;
+            expectedModCount = listModCount;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package hashmap;
+
+/**
+ *  A hash map from long to objects with no boxing of the keys, a primitive sibling of Map61B.
+ *
+ *  Keys live in a flat long array and values in a parallel Object array, with
+ *  linear probing. Key 0 marks
+ *  an empty slot, so the mapping of 0 itself, if any, is kept in separate fields.
+ *  Removal shifts the following keys of the cluster back instead of leaving
+ *  tombstones. get, put, containsKey and remove never allocate; only put may
+ *  grow the arrays.
+ *
+ *  A missing key reads as null.
+ *  @author Suiren
+ */
+public class LongObjectMap<V> {
+
+    private static final int INITIAL_SIZE = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+    /** The key of an empty slot. */
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    /** Number of keys in the arrays, the zero key excluded. */
+    private int used;
+    private boolean hasZeroKey;
+    private V zeroValue;
+    private final int initialSize;
+    private final double loadFactor;
+
+    public LongObjectMap() {
+        this(INITIAL_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongObjectMap(int initialSize) {
+        this(initialSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param initialSize initial number of slots, rounded up to a power of two
+     * @param maxLoad maximum load factor, below 1
+     */
+    public LongObjectMap(int initialSize, double maxLoad) {
+        if (maxLoad <= 0 || maxLoad >= 1) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + maxLoad);
+        }
+        this.initialSize = PrimitiveHashing.tableSizeFor(initialSize);
+        this.loadFactor = maxLoad;
+        createTable(this.initialSize);
+    }
+
+    private void createTable(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /** Removes all of the mappings from this map. */
+    public void clear() {
+        used = 0;
+        hasZeroKey = false;
+        zeroValue = null;
+        createTable(initialSize);
+    }
+
+    /** Returns the number of key-value mappings in this map. */
+    public int size() {
+        return used + (hasZeroKey ? 1 : 0);
+    }
+
+    /** Returns true if this map contains a mapping for KEY. */
+    public boolean containsKey(long key) {
+        return key == EMPTY ? hasZeroKey : findSlot(key) >= 0;
+    }
+
+    /** Returns the value of KEY, or null if there is none. */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == EMPTY) {
+            return zeroValue;
+        }
+        int i = findSlot(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    private int findSlot(long key) {
+        for (int i = PrimitiveHashing.mix(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Associates VALUE with KEY, replacing any previous value. */
+    public void put(long key, V value) {
+        if (key == EMPTY) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int i = PrimitiveHashing.mix(key) & mask;
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++used > keys.length * loadFactor) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /** Removes the mapping of KEY; returns its value, or null if there was none. */
+    public V remove(long key) {
+        if (key == EMPTY) {
+            V old = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            return old;
+        }
+        int i = findSlot(key);
+        if (i < 0) {
+            return null;
+        }
+        @SuppressWarnings("unchecked") V old = (V) values[i];
+        // Shift back every following key of the cluster that may move to the hole.
+        int next = (i + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = PrimitiveHashing.mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - i) & mask)) {
+                keys[i] = keys[next];
+                values[i] = values[next];
+                i = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[i] = EMPTY;
+        values[i] = null;
+        --used;
+        return old;
+    }
+
+    /** Returns the keys of this map, in no particular order. */
+    public long[] keys() {
+        long[] re = new long[size()];
+        int n = 0;
+        if (hasZeroKey) {
+            re[n++] = EMPTY;
+        }
+        for (long key : keys) {
+            if (key != EMPTY) {
+                re[n++] = key;
+            }
+        }
+        return re;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        createTable(capacity);
+        for (int j = 0; j < oldKeys.length; ++j) {
+            if (oldKeys[j] != EMPTY) {
+                int i = PrimitiveHashing.mix(oldKeys[j]) & mask;
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
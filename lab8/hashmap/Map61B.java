@@ -45,5 +45,45 @@ public interface Map61B<K, V> extends Iterable<K> {
      * throw an UnsupportedOperationException.
      */
     V remove(K key, V value);
-}
 
+    /**
+     * Associates VALUES[i] with KEYS[i] for every i, in order, so a key given
+     * twice ends up with its last value. Implementations may presize or
+     * reorder the work, as long as the result is the same.
+     */
+    default void putAll(K[] keys, V[] values) {
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException("Fewer values than keys: " + values.length + " < " + keys.length);
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            put(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * Stores the value of KEYS[i], or null if there is none, in OUT[i] for
+     * every i. Implementations may look the keys up in any order.
+     */
+    default void getAll(K[] keys, V[] out) {
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("Output shorter than keys: " + out.length + " < " + keys.length);
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            out[i] = get(keys[i]);
+        }
+    }
+
+    /**
+     * Removes the mappings of all of KEYS that have one, and returns how many
+     * were removed. Throws UnsupportedOperationException if remove does.
+     */
+    default int removeAll(K[] keys) {
+        int removed = 0;
+        for (K key : keys) {
+            if (remove(key) != null) {
+                ++removed;
+            }
+        }
+        return removed;
+    }
+}
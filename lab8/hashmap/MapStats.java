@@ -0,0 +1,146 @@
+package hashmap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * A snapshot of how a map lays out its entries, for explaining why one
+ * variant is faster or bigger than another:
+ *  - a histogram of chain lengths: histogram[k] is the number of buckets
+ *    holding k entries. Open-addressing maps count the keys at each probe
+ *    length instead, so histogram[k] is the number of keys k slots from home;
+ *  - the longest chain, and the mean length of the non-empty ones, which is
+ *    the number of keys a miss in a non-empty bucket compares against. For
+ *    open addressing, the longest and the mean probe length;
+ *  - the number of resizes so far and the time spent in them;
+ *  - an estimate of the heap the map itself retains per entry, not counting
+ *    the keys and values. It is worked out from the objects' shapes for a
+ *    64-bit JVM with compressed references (12-byte object headers, 4-byte
+ *    references, 8-byte alignment), the default below 32 GB of heap.
+ * @author Suiren
+ */
+public class MapStats {
+
+    /* Object layout assumed by the estimates */
+    static final int HEADER = 12;
+    static final int ARRAY_HEADER = 16;
+    static final int REFERENCE = 4;
+
+    private final int[] histogram;
+    private final int maxLength;
+    private final double meanLength;
+    private final int resizeCount;
+    private final long resizeNanos;
+    private final double bytesPerEntry;
+
+    public MapStats(int[] histogram, int maxLength, double meanLength,
+                    int resizeCount, long resizeNanos, double bytesPerEntry) {
+        this.histogram = histogram;
+        this.maxLength = maxLength;
+        this.meanLength = meanLength;
+        this.resizeCount = resizeCount;
+        this.resizeNanos = resizeNanos;
+        this.bytesPerEntry = bytesPerEntry;
+    }
+
+    /** Returns stats of the chain lengths in HISTOGRAM, whose mean leaves out empty chains. */
+    static MapStats ofChains(int[] histogram, int resizeCount, long resizeNanos, double bytesPerEntry) {
+        int max = 0;
+        long chains = 0;
+        long entries = 0;
+        for (int k = 1; k < histogram.length; ++k) {
+            if (histogram[k] > 0) {
+                max = k;
+                chains += histogram[k];
+                entries += (long) k * histogram[k];
+            }
+        }
+        double mean = chains == 0 ? 0 : (double) entries / chains;
+        return new MapStats(histogram, max, mean, resizeCount, resizeNanos, bytesPerEntry);
+    }
+
+    /** Returns the chain-length histogram, which callers must not modify. */
+    public int[] histogram() {
+        return histogram;
+    }
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+    public double meanLength() {
+        return meanLength;
+    }
+
+    public int resizeCount() {
+        return resizeCount;
+    }
+
+    public long resizeNanos() {
+        return resizeNanos;
+    }
+
+    public double bytesPerEntry() {
+        return bytesPerEntry;
+    }
+
+    /** Returns SIZE rounded up to the 8-byte alignment of objects. */
+    static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /** Returns the size of an array of LENGTH elements of ELEMENTBYTES each. */
+    static long arrayBytes(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    /**
+     * Returns an estimate of the heap taken by the JDK collection C itself,
+     * without its elements. ArrayList and PriorityQueue don't reveal their
+     * capacity, so they are assumed to be just full after their default one.
+     */
+    static long collectionBytes(Collection<?> c) {
+        int n = c.size();
+        if (c instanceof LinkedList) {
+            // list, then a node with item, next and prev for each element
+            return align(HEADER + 4 + 2 * REFERENCE + 4) + n * align(HEADER + 3 * REFERENCE);
+        } else if (c instanceof ArrayList) {
+            return align(HEADER + 4 + 4 + REFERENCE) + arrayBytes(Math.max(10, n), REFERENCE);
+        } else if (c instanceof PriorityQueue) {
+            return align(HEADER + 2 * REFERENCE + 4 + 4) + arrayBytes(Math.max(11, n), REFERENCE);
+        } else if (c instanceof TreeSet) {
+            // set, TreeMap, then an entry with 5 references and a color for each element
+            return align(HEADER + REFERENCE) + align(HEADER + 8 * REFERENCE + 4 + 4)
+                    + n * align(HEADER + 5 * REFERENCE + 1);
+        } else if (c instanceof HashSet) {
+            // set, HashMap, its table, then a node with hash, key, value and next for each element
+            int table = PrimitiveHashing.tableSizeFor(Math.max(16, (int) (n / 0.75f) + 1));
+            return align(HEADER + REFERENCE) + align(HEADER + 4 * REFERENCE + 3 * 4 + 4)
+                    + arrayBytes(table, REFERENCE) + n * align(HEADER + 4 + 3 * REFERENCE);
+        }
+        return align(HEADER + 2 * REFERENCE) + (long) n * REFERENCE;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("  length: max %d, mean %.2f; histogram", maxLength, meanLength));
+        for (int k = 0; k < histogram.length && k <= 8; ++k) {
+            sb.append(' ').append(k).append(':').append(histogram[k]);
+        }
+        if (histogram.length > 9) {
+            long more = 0;
+            for (int k = 9; k < histogram.length; ++k) {
+                more += histogram[k];
+            }
+            sb.append(" 9+:").append(more);
+        }
+        sb.append(String.format("\n  resizes: %d, %.3f sec; est. %.1f bytes/entry",
+                resizeCount, resizeNanos / 1e9, bytesPerEntry));
+        return sb.toString();
+    }
+}
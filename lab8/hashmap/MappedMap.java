@@ -0,0 +1,555 @@
+package hashmap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ *  A map opened straight from a binary image of another map, so that a
+ *  process can restart with millions of entries without putting them back one
+ *  by one. write() saves any Map61B as such an image, and the constructor
+ *  maps the file into memory with FileChannel.map and returns at once: no
+ *  entry is read until a get asks for it, and the operating system pages the
+ *  file in as it is touched, sharing it between processes that open it.
+ *
+ *  The image is an open-addressed hash table with linear probing, laid out
+ *  as the file itself:
+ *   - a header with a magic number, the format version, the number of
+ *     entries, the table size and the size of a mapped chunk;
+ *   - the table, of 16-byte slots: the hash of the key's bytes (0 marks an
+ *     empty slot), the key's length, and the offset of its record;
+ *   - the records, each the key's bytes, the value's length and its bytes.
+ *  Keys and values are turned into bytes by a Codec. A lookup encodes its key,
+ *  compares the inline hash and length first and the key bytes only on a
+ *  match, and decodes just the value it returns. The hash is taken over the
+ *  encoded bytes, not hashCode(), so an image means the same in any JVM.
+ *
+ *  A MappedByteBuffer is indexed by int, so the file is mapped in chunks of
+ *  1 GB, and write() pads the records so that none straddles two of them.
+ *
+ *  The image itself is never written to. Puts and removes go to a small
+ *  MyHashMap in front of it, where a removed key of the image is marked by a
+ *  tombstone, and save() writes the merged contents as a new image. Writing
+ *  goes to a uniquely named temporary file, which is forced to disk, mapped
+ *  table included, before it replaces the target and the directory is forced
+ *  in turn. A crash therefore never leaves a half-written image, and a map may
+ *  save over its own file.
+ *
+ *  close() unmaps the file at once rather than when the buffers are
+ *  collected; the map must not be used afterwards, or by another thread
+ *  while it closes. Null keys and values are not allowed.
+ *  @author Suiren
+ */
+public class MappedMap<K, V> implements Map61B<K, V>, AutoCloseable {
+
+    /**
+     * Turns keys or values into bytes and back. Equal objects must encode to
+     * equal bytes, since keys are looked up by their encoding.
+     */
+    public interface Codec<T> {
+        byte[] encode(T t);
+
+        /** Returns the object encoded in the LENGTH bytes at OFFSET of BUFFER. */
+        T decode(ByteBuffer buffer, int offset, int length);
+
+        Codec<String> STRING = new Codec<>() {
+            @Override
+            public byte[] encode(String s) {
+                return s.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(ByteBuffer buffer, int offset, int length) {
+                byte[] bytes = new byte[length];
+                buffer.get(offset, bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+
+        Codec<Integer> INTEGER = new Codec<>() {
+            @Override
+            public byte[] encode(Integer i) {
+                return ByteBuffer.allocate(Integer.BYTES).putInt(i).array();
+            }
+
+            @Override
+            public Integer decode(ByteBuffer buffer, int offset, int length) {
+                return buffer.getInt(offset);
+            }
+        };
+
+        Codec<Long> LONG = new Codec<>() {
+            @Override
+            public byte[] encode(Long l) {
+                return ByteBuffer.allocate(Long.BYTES).putLong(l).array();
+            }
+
+            @Override
+            public Long decode(ByteBuffer buffer, int offset, int length) {
+                return buffer.getLong(offset);
+            }
+        };
+    }
+
+    /* Header layout */
+    private static final int MAGIC = 0x4D4D3631;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_SIZE = 8;
+    private static final int H_CAPACITY = 12;
+    private static final int H_CHUNK_SHIFT = 16;
+
+    /* Slot layout */
+    private static final int SLOT_BYTES = 16;
+    private static final int HASH = 0;
+    private static final int KEY_LENGTH = 4;
+    private static final int RECORD = 8;
+    /** The hash of an empty slot. */
+    private static final int EMPTY = 0;
+
+    /** log2 of the bytes in a mapped chunk: 1 GB. */
+    private static final int CHUNK_SHIFT = 30;
+    private static final int MIN_CHUNK_SHIFT = 12;
+    /** Bytes staged before each write of the records. */
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    /** Marks a key of the image that has been removed. */
+    private static final Object REMOVED = new Object();
+
+    /* Instance Variables */
+    /** The mapped chunks, or null once cleared or closed. */
+    private ByteBuffer[] chunks;
+    private int chunkShift;
+    private int mask;
+    private int size;
+    /** Entries put or removed since the image was written. */
+    private final MyHashMap<K, Object> overlay = new MyHashMap<>();
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private boolean closed;
+
+    /**
+     * Maps the image in FILE, which write() made with the same codecs.
+     *
+     * @throws IOException if the file can't be read or is not such an image
+     */
+    public MappedMap(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // read until full or end of file
+            }
+            int capacity = header.getInt(H_CAPACITY);
+            chunkShift = header.getInt(H_CHUNK_SHIFT);
+            if (header.hasRemaining() || header.getInt(H_MAGIC) != MAGIC) {
+                throw new IOException("Not a MappedMap image: " + file);
+            }
+            if (header.getInt(H_VERSION) != VERSION) {
+                throw new IOException("Unsupported MappedMap version " + header.getInt(H_VERSION) + ": " + file);
+            }
+            if (chunkShift < MIN_CHUNK_SHIFT || chunkShift > CHUNK_SHIFT
+                    || capacity < 2 || Integer.bitCount(capacity) != 1
+                    || HEADER_BYTES + (long) capacity * SLOT_BYTES > length) {
+                throw new IOException("Corrupt MappedMap image: " + file);
+            }
+            size = header.getInt(H_SIZE);
+            mask = capacity - 1;
+            chunks = map(channel, FileChannel.MapMode.READ_ONLY, length, chunkShift);
+        }
+    }
+
+    /** Maps the first LENGTH bytes of CHANNEL in chunks of 1 << SHIFT bytes. */
+    private static ByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode,
+                                    long length, int shift) throws IOException {
+        long chunk = 1L << shift;
+        ByteBuffer[] re = new ByteBuffer[(int) ((length + chunk - 1) >>> shift)];
+        for (int c = 0; c < re.length; ++c) {
+            long start = c * chunk;
+            re[c] = channel.map(mode, start, Math.min(chunk, length - start));
+        }
+        return re;
+    }
+
+    /* Image accessors, by offset in the file */
+
+    private static ByteBuffer chunkAt(ByteBuffer[] chunks, int shift, long pos) {
+        return chunks[(int) (pos >>> shift)];
+    }
+
+    private static int offsetIn(int shift, long pos) {
+        return (int) (pos & ((1L << shift) - 1));
+    }
+
+    private static long slotPos(int i) {
+        return HEADER_BYTES + (long) i * SLOT_BYTES;
+    }
+
+    /** Hash of the encoded key, FNV-1a then a final mix, never EMPTY. */
+    private static int hash(byte[] key) {
+        int h = 0x811C9DC5;
+        for (byte b : key) {
+            h = (h ^ b) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h == EMPTY ? 1 : h;
+    }
+
+    /** Returns the file offset of the record of KEY in the image, or -1. */
+    private long findRecord(byte[] key) {
+        if (chunks == null) {
+            return -1;
+        }
+        int h = hash(key);
+        for (int i = h & mask;; i = (i + 1) & mask) {
+            long pos = slotPos(i);
+            ByteBuffer chunk = chunkAt(chunks, chunkShift, pos);
+            int off = offsetIn(chunkShift, pos);
+            int sh = chunk.getInt(off + HASH);
+            if (sh == EMPTY) {
+                return -1;
+            }
+            if (sh == h && chunk.getInt(off + KEY_LENGTH) == key.length) {
+                long record = chunk.getLong(off + RECORD);
+                if (keyEquals(record, key)) {
+                    return record;
+                }
+            }
+        }
+    }
+
+    private boolean keyEquals(long record, byte[] key) {
+        ByteBuffer chunk = chunkAt(chunks, chunkShift, record);
+        int off = offsetIn(chunkShift, record);
+        for (int j = 0; j < key.length; ++j) {
+            if (chunk.get(off + j) != key[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Decodes the value of the record at RECORD, whose key is KEYLENGTH bytes. */
+    private V decodeValue(long record, int keyLength) {
+        ByteBuffer chunk = chunkAt(chunks, chunkShift, record);
+        int off = offsetIn(chunkShift, record) + keyLength;
+        return valueCodec.decode(chunk, off + Integer.BYTES, chunk.getInt(off));
+    }
+
+    /* Map61B */
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        checkOpen();
+        unmap();
+        overlay.clear();
+        size = 0;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        checkOpen();
+        Object o = overlay.get(key);
+        if (o != null) {
+            return o != REMOVED;
+        }
+        return findRecord(keyCodec.encode(key)) >= 0;
+    }
+
+    @Override
+    public V get(K key) {
+        checkOpen();
+        Object o = overlay.get(key);
+        if (o == REMOVED) {
+            return null;
+        } else if (o != null) {
+            @SuppressWarnings("unchecked") V v = (V) o;
+            return v;
+        }
+        byte[] bytes = keyCodec.encode(key);
+        long record = findRecord(bytes);
+        return record < 0 ? null : decodeValue(record, bytes.length);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("MappedMap does not allow null values");
+        }
+        if (!containsKey(key)) {
+            ++size;
+        }
+        overlay.put(key, value);
+    }
+
+    @Override
+    public V remove(K key) {
+        V old = get(key);
+        if (old != null) {
+            removeFound(key);
+        }
+        return old;
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        V old = get(key);
+        if (old == null || !old.equals(value)) {
+            return null;
+        }
+        removeFound(key);
+        return old;
+    }
+
+    /** Removes KEY, which is in the map: a tombstone hides it if the image has it. */
+    private void removeFound(K key) {
+        if (findRecord(keyCodec.encode(key)) >= 0) {
+            overlay.put(key, REMOVED);
+        } else {
+            overlay.remove(key);
+        }
+        --size;
+    }
+
+    /** Returns the keys, decoding every key of the image that is still there. */
+    @Override
+    public Set<K> keySet() {
+        checkOpen();
+        Set<K> re = new HashSet<>();
+        if (chunks != null) {
+            for (int i = 0; i <= mask; ++i) {
+                long pos = slotPos(i);
+                ByteBuffer chunk = chunkAt(chunks, chunkShift, pos);
+                int off = offsetIn(chunkShift, pos);
+                if (chunk.getInt(off + HASH) != EMPTY) {
+                    long record = chunk.getLong(off + RECORD);
+                    re.add(keyCodec.decode(chunkAt(chunks, chunkShift, record),
+                            offsetIn(chunkShift, record), chunk.getInt(off + KEY_LENGTH)));
+                }
+            }
+        }
+        for (K key : overlay) {
+            if (overlay.get(key) == REMOVED) {
+                re.remove(key);
+            } else {
+                re.add(key);
+            }
+        }
+        return re;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return keySet().iterator();
+    }
+
+    /** Writes the entries, with the changes since the image, as a new image in FILE. */
+    public void save(Path file) throws IOException {
+        checkOpen();
+        write(this, file, keyCodec, valueCodec);
+    }
+
+    /** Unmaps the file now. The map must not be used afterwards. */
+    @Override
+    public void close() {
+        if (!closed) {
+            unmap();
+            overlay.clear();
+            size = 0;
+            closed = true;
+        }
+    }
+
+    private void unmap() {
+        if (chunks != null) {
+            for (ByteBuffer chunk : chunks) {
+                OffHeapStringIntMap.free(chunk);
+            }
+            chunks = null;
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("MappedMap is closed");
+        }
+    }
+
+    /* Writing images */
+
+    /**
+     * Writes the entries of MAP to FILE as an image for MappedMap, replacing
+     * any file there once the image is complete. MAP must not change meanwhile.
+     *
+     * @throws IOException if the file can't be written
+     */
+    public static <K, V> void write(Map61B<K, V> map, Path file,
+                                    Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        write(map, file, keyCodec, valueCodec, CHUNK_SHIFT);
+    }
+
+    /** As write, in chunks of 1 << CHUNKSHIFT bytes, so tests can cross chunks without gigabytes. */
+    static <K, V> void write(Map61B<K, V> map, Path file, Codec<K> keyCodec,
+                             Codec<V> valueCodec, int chunkShift) throws IOException {
+        int n = map.size();
+        int capacity = PrimitiveHashing.tableSizeFor((int) Math.min(1 << 30, n * 4L / 3 + 1));
+        long recordsStart = slotPos(capacity);
+        long chunk = 1L << chunkShift;
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName() + ".", ".tmp");
+        ByteBuffer[] table = null;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            table = map(channel, FileChannel.MapMode.READ_WRITE, recordsStart, chunkShift);
+            RecordWriter out = new RecordWriter(channel, recordsStart);
+            int count = 0;
+            for (K key : map) {
+                V value = map.get(key);
+                if (value == null) {
+                    throw new NullPointerException("MappedMap does not allow null values");
+                }
+                if (++count > n) {
+                    throw new ConcurrentModificationException();
+                }
+                byte[] k = keyCodec.encode(key);
+                byte[] v = valueCodec.encode(value);
+                long length = k.length + Integer.BYTES + v.length;
+                if (length > chunk) {
+                    throw new IllegalArgumentException("Entry of " + length + " bytes is larger than a chunk");
+                }
+                long record = out.position();
+                if ((record >>> chunkShift) != ((record + length - 1) >>> chunkShift)) {
+                    record = ((record >>> chunkShift) + 1) << chunkShift;
+                    out.skipTo(record);
+                }
+                out.write(k);
+                out.writeInt(v.length);
+                out.write(v);
+                int h = hash(k);
+                int i = h & (capacity - 1);
+                while (chunkAt(table, chunkShift, slotPos(i)).getInt(offsetIn(chunkShift, slotPos(i)) + HASH) != EMPTY) {
+                    i = (i + 1) & (capacity - 1);
+                }
+                ByteBuffer slots = chunkAt(table, chunkShift, slotPos(i));
+                int off = offsetIn(chunkShift, slotPos(i));
+                slots.putInt(off + HASH, h);
+                slots.putInt(off + KEY_LENGTH, k.length);
+                slots.putLong(off + RECORD, record);
+            }
+            if (count != n) {
+                throw new ConcurrentModificationException();
+            }
+            out.flush();
+            table[0].putInt(H_MAGIC, MAGIC);
+            table[0].putInt(H_VERSION, VERSION);
+            table[0].putInt(H_SIZE, n);
+            table[0].putInt(H_CAPACITY, capacity);
+            table[0].putInt(H_CHUNK_SHIFT, chunkShift);
+            // channel.force only covers the records written through the channel.
+            for (ByteBuffer b : table) {
+                ((MappedByteBuffer) b).force();
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            unmapAll(table);
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        unmapAll(table);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(dir);
+    }
+
+    private static void unmapAll(ByteBuffer[] chunks) {
+        if (chunks != null) {
+            for (ByteBuffer b : chunks) {
+                if (b != null) {
+                    OffHeapStringIntMap.free(b);
+                }
+            }
+        }
+    }
+
+    /** Makes the rename into DIR durable, where the platform lets a directory be opened. */
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories can't be opened here (Windows); nothing more to do.
+        }
+    }
+
+    /** Appends records to a channel through a buffer, from a given offset on. */
+    private static class RecordWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+        /** File offset of the start of the buffer. */
+        private long start;
+
+        RecordWriter(FileChannel channel, long start) {
+            this.channel = channel;
+            this.start = start;
+        }
+
+        long position() {
+            return start + buffer.position();
+        }
+
+        /** Moves on to POS, leaving a hole that reads as zeros. */
+        void skipTo(long pos) throws IOException {
+            flush();
+            start = pos;
+        }
+
+        void writeInt(int i) throws IOException {
+            if (buffer.remaining() < Integer.BYTES) {
+                flush();
+            }
+            buffer.putInt(i);
+        }
+
+        void write(byte[] bytes) throws IOException {
+            if (buffer.remaining() < bytes.length) {
+                flush();
+                if (bytes.length > buffer.capacity()) {
+                    writeFully(ByteBuffer.wrap(bytes));
+                    return;
+                }
+            }
+            buffer.put(bytes);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer b) throws IOException {
+            while (b.hasRemaining()) {
+                start += channel.write(b, start);
+            }
+        }
+    }
+}
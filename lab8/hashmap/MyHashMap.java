@@ -1,21 +1,36 @@
 package hashmap;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  *  A hash table-backed Map implementation. Provides amortized constant time
  *  access to elements via get(), remove(), and put() in the best case.
  *
  *  Assumes null keys will never be inserted, and does not resize down upon remove().
+ *
+ *  In incremental-resize mode (see MyHashMapIncremental) a resize only allocates
+ *  the new table. The old one is kept alongside it, and every put or remove moves
+ *  a few of its buckets over, so no single put pays for rehashing the whole map.
+ *  Lookups check both tables until the move is done. Buckets are then created
+ *  on first use, so allocating the new table stays cheap as well.
+ *
+ *  keySet() and entrySet() are live views backed by the map. Their iterators
+ *  walk the buckets in place, so iterating allocates no copy of the map, and
+ *  they fail fast with a ConcurrentModificationException once the map is
+ *  structurally modified other than through the view. Their spliterators split
+ *  the table by bucket ranges, so stream().parallel() divides the work.
  *  @author Suiren
  */
-public class MyHashMap<K, V> implements Map61B<K, V> {
+public class MyHashMap<K, V> implements Map61B<K, V>, InstrumentedMap {
 
     /**
      * Protected helper class to store key/value pairs
      * The protected qualifier allows subclass access
+     * Nodes are the entries of entrySet(). They keep identity equality,
+     * since buckets such as HashSet hash the nodes themselves.
      */
-    protected class Node {
+    protected class Node implements Map.Entry<K, V> {
         K key;
         V value;
 
@@ -23,6 +38,28 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
             key = k;
             value = v;
         }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V v) {
+            V old = value;
+            value = v;
+            return old;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
     }
 
     /* Instance Variables */
@@ -30,8 +67,29 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
     // You should probably define some more!
     private static final int INITIAL_SIZE = 16;
     private static final double DEFAULT_LOAD_FACTOR = 0.75;
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+    /** Batches smaller than this are looked up in a single pass. */
+    private static final int MIN_PREFETCH_BATCH = 8;
+    /** Keys fetched ahead at a time, few enough that their buckets stay in cache. */
+    private static final int PREFETCH_BATCH = 256;
     private int size;
     private double loadFactor;
+    /**
+     * Buckets of the old table migrated per insertion or removal during an
+     * incremental resize. Lookups, overwrites, removes of absent keys and
+     * removal through an iterator don't migrate, so they never disturb one.
+     */
+    private static final int MIGRATION_STEP = 4;
+    private final boolean incrementalResize;
+    /** The table being migrated from, or null when no incremental resize is in progress. */
+    private Collection<Node>[] oldBuckets;
+    /** Buckets of oldBuckets below this index have been migrated. */
+    private int migrated;
+    /** Number of structural modifications, for the fail-fast iterators. */
+    private int modCount;
+    private int resizeCount;
+    /** Time spent in resize and, during an incremental resize, in migrate. */
+    private long resizeNanos;
 
     /** Constructors */
     public MyHashMap() {
@@ -60,6 +118,16 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
      * @param maxLoad maximum load factor
      */
     public MyHashMap(int initialSize, double maxLoad) {
+        this(initialSize, maxLoad, false);
+    }
+
+    /**
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     * @param incrementalResize whether to spread resizes over later operations
+     */
+    protected MyHashMap(int initialSize, double maxLoad, boolean incrementalResize) {
+        this.incrementalResize = incrementalResize;
         loadFactor = maxLoad;
         buckets = createTable(initialSize);
         size = 0;
@@ -67,11 +135,27 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
 
     /**
      * Returns a new node to be placed in a hash table bucket
+     * Override this to keep extra state in each node
      */
-    private Node createNode(K key, V value) {
+    protected Node createNode(K key, V value) {
         return new Node(key, value);
     }
 
+    /* Hooks for subclasses such as LinkedMyHashMap that track the nodes
+     * outside the table. They do nothing here. */
+
+    /** Called after a get or put finds the existing node N. */
+    protected void afterNodeAccess(Node n) {
+    }
+
+    /** Called after put has added the new node N and updated size. */
+    protected void afterNodeInsertion(Node n) {
+    }
+
+    /** Called after N has been removed from the table, by any route. */
+    protected void afterNodeRemoval(Node n) {
+    }
+
     /**
      * Returns a data structure to be a hash table bucket
      *
@@ -101,16 +185,62 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
      * BE SURE TO CALL THIS FACTORY METHOD WHEN CREATING A TABLE SO
      * THAT ALL BUCKET TYPES ARE OF JAVA.UTIL.COLLECTION
      *
+     * In incremental-resize mode the buckets are left null and created
+     * by bucketAt when first written to.
+     *
      * @param tableSize the size of the table to create
      */
     private Collection<Node>[] createTable(int tableSize) {
         Collection<Node>[] re = new Collection[tableSize];
+        if (incrementalResize) {
+            return re;
+        }
         for (int i = 0; i < tableSize; ++i) {
             re[i] = createBucket();
         }
         return re;
     }
 
+    /** Returns bucket INDEX of TABLE, creating it if need be. */
+    private Collection<Node> bucketAt(Collection<Node>[] table, int index) {
+        if (table[index] == null) {
+            table[index] = createBucket();
+        }
+        return table[index];
+    }
+
+    /**
+     * Adds N to BUCKET and returns the bucket to keep in the table.
+     * Override this together with removeFromBucket and findInBucket to
+     * swap a bucket for another kind of collection as it grows or shrinks.
+     */
+    protected Collection<Node> addToBucket(Collection<Node> bucket, Node n) {
+        bucket.add(n);
+        return bucket;
+    }
+
+    /** Removes N, which it holds, from BUCKET and returns the bucket to keep in the table. */
+    protected Collection<Node> removeFromBucket(Collection<Node> bucket, Node n) {
+        bucket.remove(n);
+        return bucket;
+    }
+
+    /** Returns the node of KEY in BUCKET, or null. */
+    protected Node findInBucket(Collection<Node> bucket, K key) {
+        for (Node n : bucket) {
+            if (key.equals(n.key)) {
+                return n;
+            }
+        }
+        return null;
+    }
+
+    /** Put N into its bucket of TABLE. */
+    private void insertNode(Collection<Node>[] table, Node n) {
+        int index = Math.floorMod(n.key.hashCode(), table.length);
+        table[index] = addToBucket(bucketAt(table, index), n);
+    }
+
     @Override
     public int size() {
         return size;
@@ -120,22 +250,300 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
     public void clear() {
         size = 0;
         buckets = createTable(INITIAL_SIZE);
+        oldBuckets = null;
+        ++modCount;
     }
 
     /**
-     * Return the ket set of HashMap
-     * Since Map61B extends Map61B<K, V>, we can simply for-each loop.
+     * Returns a live view of the keys. Removing a key from it removes the
+     * key from the map; adding is not supported.
      * @return the key set
      */
     @Override
     public Set<K> keySet() {
-        Set<K> re = new HashSet<>();
-        for (Collection<Node> bucket : buckets) {
-            for (Node n : bucket) {
-                re.add(n.key);
+        return new AbstractSet<K>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (o == null) {
+                    return false;
+                }
+                @SuppressWarnings("unchecked") K key = (K) o;
+                return getNode(key) != null;
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (o == null) {
+                    return false;
+                }
+                @SuppressWarnings("unchecked") K key = (K) o;
+                Node dst = getNode(key);
+                if (dst == null) {
+                    return false;
+                }
+                removeNode(dst);
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                MyHashMap.this.clear();
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return new KeyIterator();
             }
+
+            @Override
+            public Spliterator<K> spliterator() {
+                return new KeySpliterator(0, tableLength(), modCount);
+            }
+        };
+    }
+
+    /**
+     * Returns a live view of the mappings. setValue on an entry writes
+     * through to the map.
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry) || ((Map.Entry<?, ?>) o).getKey() == null) {
+                    return false;
+                }
+                Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                @SuppressWarnings("unchecked") K key = (K) e.getKey();
+                Node n = getNode(key);
+                return n != null && Objects.equals(n.value, e.getValue());
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                if (!contains(o)) {
+                    return false;
+                }
+                @SuppressWarnings("unchecked") K key = (K) ((Map.Entry<?, ?>) o).getKey();
+                removeNode(getNode(key));
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                MyHashMap.this.clear();
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public Spliterator<Map.Entry<K, V>> spliterator() {
+                return new EntrySpliterator(0, tableLength(), modCount);
+            }
+        };
+    }
+
+    /* Iteration treats the new table followed by the old one, during an
+     * incremental resize, as a single run of tableLength() buckets. */
+
+    private int tableLength() {
+        return buckets.length + (oldBuckets == null ? 0 : oldBuckets.length);
+    }
+
+    private Collection<Node> tableBucket(int i) {
+        return i < buckets.length ? buckets[i] : oldBuckets[i - buckets.length];
+    }
+
+    /** Walks the nodes bucket by bucket, keeping only the bucket index and its iterator. */
+    private abstract class NodeIterator<T> implements Iterator<T> {
+        private int index;
+        private Iterator<Node> bucketIterator = Collections.emptyIterator();
+        private Node last;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            checkForComodification();
+            while (!bucketIterator.hasNext()) {
+                if (index >= tableLength()) {
+                    return false;
+                }
+                Collection<Node> bucket = tableBucket(index++);
+                if (bucket != null) {
+                    bucketIterator = bucket.iterator();
+                }
+            }
+            return true;
+        }
+
+        Node nextNode() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = bucketIterator.next();
+            return last;
+        }
+
+        /**
+         * Removes the last node returned through the bucket's own iterator, which
+         * every bucket kind keeps consistent. removeFromBucket is bypassed, so the
+         * bucket itself is left as it is.
+         */
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            bucketIterator.remove();
+            afterNodeRemoval(last);
+            last = null;
+            --size;
+            expectedModCount = ++modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private class KeyIterator extends NodeIterator<K> {
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+    }
+
+    private class EntryIterator extends NodeIterator<Map.Entry<K, V>> {
+        @Override
+        public Map.Entry<K, V> next() {
+            return nextNode();
+        }
+    }
+
+    /** Covers buckets [lo, hi) and splits by halving that range. */
+    private abstract class NodeSpliterator<T> implements Spliterator<T> {
+        int lo;
+        final int hi;
+        final int expectedModCount;
+        /** The bucket being walked by tryAdvance, bucket lo - 1, or null. */
+        private Iterator<Node> current;
+
+        NodeSpliterator(int lo, int hi, int expectedModCount) {
+            this.lo = lo;
+            this.hi = hi;
+            this.expectedModCount = expectedModCount;
+        }
+
+        abstract T project(Node n);
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (current == null || !current.hasNext()) {
+                if (lo >= hi) {
+                    return false;
+                }
+                Collection<Node> bucket = tableBucket(lo++);
+                current = bucket == null ? null : bucket.iterator();
+            }
+            action.accept(project(current.next()));
+            checkForComodification();
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (current != null) {
+                current.forEachRemaining(n -> action.accept(project(n)));
+                current = null;
+            }
+            for (; lo < hi; ++lo) {
+                Collection<Node> bucket = tableBucket(lo);
+                if (bucket != null) {
+                    for (Node n : bucket) {
+                        action.accept(project(n));
+                    }
+                }
+            }
+            checkForComodification();
+        }
+
+        @Override
+        public long estimateSize() {
+            return (long) size * (hi - lo) / Math.max(1, tableLength());
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL;
+        }
+
+        int split() {
+            int mid = (lo + hi) >>> 1;
+            if (mid <= lo) {
+                return -1;
+            }
+            int re = lo;
+            lo = mid;
+            return re;
+        }
+
+        void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private class KeySpliterator extends NodeSpliterator<K> {
+        KeySpliterator(int lo, int hi, int expectedModCount) {
+            super(lo, hi, expectedModCount);
+        }
+
+        @Override
+        K project(Node n) {
+            return n.key;
+        }
+
+        @Override
+        public Spliterator<K> trySplit() {
+            int mid = (lo + hi) >>> 1;
+            int from = split();
+            return from < 0 ? null : new KeySpliterator(from, mid, expectedModCount);
+        }
+    }
+
+    private class EntrySpliterator extends NodeSpliterator<Map.Entry<K, V>> {
+        EntrySpliterator(int lo, int hi, int expectedModCount) {
+            super(lo, hi, expectedModCount);
+        }
+
+        @Override
+        Map.Entry<K, V> project(Node n) {
+            return n;
+        }
+
+        @Override
+        public Spliterator<Map.Entry<K, V>> trySplit() {
+            int mid = (lo + hi) >>> 1;
+            int from = split();
+            return from < 0 ? null : new EntrySpliterator(from, mid, expectedModCount);
         }
-        return re;
     }
 
     @Override
@@ -146,33 +554,115 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
     @Override
     public V get(K key) {
         Node dst = getNode(key);
-        return dst == null ? null : dst.value;
+        if (dst == null) {
+            return null;
+        }
+        afterNodeAccess(dst);
+        return dst.value;
     }
 
-    private Node getNode(K key) {
-        int index = Math.floorMod(key.hashCode(), buckets.length);
-        for (Node n : buckets[index]) {
-            if (key.equals(n.key)) {
-                return n;
-            }
+    /** Returns the node of KEY, or null, without counting as an access. */
+    protected Node getNode(K key) {
+        return getNode(key, key.hashCode());
+    }
+
+    /** As getNode, for a KEY whose hash code H is already known. */
+    private Node getNode(K key, int h) {
+        Node n = findIn(buckets[Math.floorMod(h, buckets.length)], key);
+        if (n == null && oldBuckets != null) {
+            // Not migrated yet? Then it is still in the old table.
+            n = findIn(oldBuckets[Math.floorMod(h, oldBuckets.length)], key);
         }
-        return null;
+        return n;
+    }
+
+    private Node findIn(Collection<Node> bucket, K key) {
+        return bucket == null ? null : findInBucket(bucket, key);
     }
 
     @Override
     public void put(K key, V value) {
         Node dst = getNode(key);
         if (dst == null) {
+            migrate();
             if (shouldResize()) {
                 resize(buckets.length * 2);
             }
 
-            int index = Math.floorMod(key.hashCode(), buckets.length);
-            buckets[index].add(createNode(key, value));
+            Node n = createNode(key, value);
+            insertNode(buckets, n);
             ++size;
+            ++modCount;
+            afterNodeInsertion(n);
             return ;
         }
         dst.value = value;
+        afterNodeAccess(dst);
+    }
+
+    /**
+     * Grows the table once, to the size the whole batch needs, before putting
+     * it. Keys already present count as new, so the table can end up one
+     * doubling larger than separate puts would leave it.
+     */
+    @Override
+    public void putAll(K[] keys, V[] values) {
+        if (values.length < keys.length) {
+            throw new IllegalArgumentException("Fewer values than keys: " + values.length + " < " + keys.length);
+        }
+        int capacity = buckets.length;
+        while (capacity < MAX_TABLE_SIZE && size + keys.length > capacity * loadFactor) {
+            capacity *= 2;
+        }
+        if (capacity > buckets.length) {
+            resize(capacity);
+        }
+        Map61B.super.putAll(keys, values);
+    }
+
+    /**
+     * Looks the keys up in two passes: the first fetches the bucket of every
+     * key and reads its size, and the second searches them. The loads of the
+     * first pass don't depend on each other, so the CPU overlaps their cache
+     * misses instead of waiting out each one in turn, and the buckets are
+     * then in cache for the second. Small batches are looked up in one pass,
+     * as is any batch during an incremental resize, with two tables to look in.
+     */
+    @Override
+    public void getAll(K[] keys, V[] out) {
+        if (keys.length < MIN_PREFETCH_BATCH || oldBuckets != null) {
+            Map61B.super.getAll(keys, out);
+        } else if (out.length < keys.length) {
+            throw new IllegalArgumentException("Output shorter than keys: " + out.length + " < " + keys.length);
+        } else {
+            getAllPrefetched(keys, out);
+        }
+    }
+
+    private void getAllPrefetched(K[] keys, V[] out) {
+        Collection<Node>[] table = buckets;
+        int[] indices = new int[Math.min(keys.length, PREFETCH_BATCH)];
+        int[] sizes = new int[indices.length];
+        for (int from = 0; from < keys.length; from += PREFETCH_BATCH) {
+            int to = Math.min(keys.length, from + PREFETCH_BATCH);
+            for (int i = from; i < to; ++i) {
+                int index = Math.floorMod(keys[i].hashCode(), table.length);
+                Collection<Node> bucket = table[index];
+                indices[i - from] = index;
+                // Buckets of a table created for incremental resizing stay null until used.
+                sizes[i - from] = bucket == null ? 0 : bucket.size();
+            }
+            for (int i = from; i < to; ++i) {
+                // The size read ahead is used here, so the JIT keeps the first pass.
+                Node n = sizes[i - from] == 0 ? null : findInBucket(table[indices[i - from]], keys[i]);
+                if (n == null) {
+                    out[i] = null;
+                } else {
+                    afterNodeAccess(n);
+                    out[i] = n.value;
+                }
+            }
+        }
     }
 
     @Override
@@ -182,9 +672,7 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
             return null;
         }
 
-        int index = Math.floorMod(key.hashCode(), buckets.length);
-        buckets[index].remove(dst);
-        --size;
+        removeNode(dst);
         return dst.value;
     }
 
@@ -195,26 +683,81 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
             return null;
         }
 
-        int index = Math.floorMod(key.hashCode(), buckets.length);
-        buckets[index].remove(dst);
-        --size;
+        removeNode(dst);
         return dst.value;
     }
 
+    /** Unlink DST from whichever table holds it, migrating first as any removal does. */
+    private void removeNode(Node dst) {
+        migrate();
+        Collection<Node>[] table = buckets;
+        int index = Math.floorMod(dst.key.hashCode(), table.length);
+        if (findIn(table[index], dst.key) != dst) {
+            table = oldBuckets;
+            index = Math.floorMod(dst.key.hashCode(), table.length);
+        }
+        table[index] = removeFromBucket(table[index], dst);
+        --size;
+        ++modCount;
+        afterNodeRemoval(dst);
+    }
+
     /**
      * Remember Java's GC.
      * You don't need to deallocate the nodes like in C++.
      * @param capacity the new capacity
      */
     private void resize(int capacity) {
+        long start = System.nanoTime();
+        ++resizeCount;
+        if (incrementalResize) {
+            // The table has filled up again before the last migration finished.
+            while (oldBuckets != null) {
+                migrate();
+            }
+            oldBuckets = buckets;
+            migrated = 0;
+            buckets = createTable(capacity);
+            ++modCount;
+            resizeNanos += System.nanoTime() - start;
+            return;
+        }
         Collection<Node>[] newBuckets = createTable(capacity);
         for (Collection<Node> bucket : buckets) {
             for (Node n : bucket) {
-                int index = Math.floorMod(n.key.hashCode(), newBuckets.length);
-                newBuckets[index].add(n);
+                insertNode(newBuckets, n);
             }
         }
         buckets = newBuckets;
+        ++modCount;
+        resizeNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Move the next few buckets of an incremental resize into the new table.
+     * Called only on structural changes made through the map: put of a new key
+     * and removal of a present one.
+     */
+    private void migrate() {
+        if (oldBuckets == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        int end = Math.min(migrated + MIGRATION_STEP, oldBuckets.length);
+        for (; migrated < end; ++migrated) {
+            Collection<Node> bucket = oldBuckets[migrated];
+            if (bucket != null) {
+                for (Node n : bucket) {
+                    insertNode(buckets, n);
+                }
+                oldBuckets[migrated] = null;
+                ++modCount;
+            }
+        }
+        if (migrated == oldBuckets.length) {
+            oldBuckets = null;
+        }
+        resizeNanos += System.nanoTime() - start;
     }
 
     private boolean shouldResize() {
@@ -225,4 +768,47 @@ public class MyHashMap<K, V> implements Map61B<K, V> {
     public Iterator<K> iterator() {
         return keySet().iterator();
     }
+
+    /**
+     * Returns the bucket lengths, resizes and estimated footprint. During an
+     * incremental resize the buckets of both tables are counted, except the
+     * old ones already migrated.
+     */
+    @Override
+    public MapStats stats() {
+        int[] lengths = new int[tableLength()];
+        int max = 0;
+        long bytes = MapStats.arrayBytes(buckets.length, MapStats.REFERENCE);
+        if (oldBuckets != null) {
+            bytes += MapStats.arrayBytes(oldBuckets.length, MapStats.REFERENCE);
+        }
+        for (int i = 0; i < lengths.length; ++i) {
+            Collection<Node> bucket = tableBucket(i);
+            if (bucket == null) {
+                lengths[i] = i < buckets.length ? 0 : -1;
+                continue;
+            }
+            bytes += bucketBytes(bucket);
+            lengths[i] = bucket.size();
+            max = Math.max(max, bucket.size());
+        }
+        int[] histogram = new int[max + 1];
+        for (int length : lengths) {
+            if (length >= 0) {
+                histogram[length]++;
+            }
+        }
+        bytes += size * nodeBytes();
+        return MapStats.ofChains(histogram, resizeCount, resizeNanos, size == 0 ? 0 : (double) bytes / size);
+    }
+
+    /** Returns the estimated heap taken by BUCKET itself, without its nodes. */
+    protected long bucketBytes(Collection<Node> bucket) {
+        return MapStats.collectionBytes(bucket);
+    }
+
+    /** Returns the estimated heap taken by one node: a header, key, value and outer map. */
+    protected long nodeBytes() {
+        return MapStats.align(MapStats.HEADER + 3 * MapStats.REFERENCE);
+    }
 }
@@ -0,0 +1,159 @@
+package hashmap;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.TreeSet;
+
+/**
+ * Hash Table whose buckets start as linked lists and turn into balanced trees
+ * once they grow long, as java.util.HashMap does since Java 8. A set of keys
+ * that all collide then costs O(log n) per lookup instead of O(n).
+ *
+ * A tree bucket orders its nodes by hash code and then by compareTo, so a
+ * bucket is only treeified while all its keys are of one Comparable class and
+ * no two of them compare equal without being equal; a tree would keep just
+ * one of those. A tree bucket shrinking below UNTREEIFY_THRESHOLD, or receiving
+ * a key of another class or one that compares equal to a different resident,
+ * turns back into a list. A list that cannot be treeified tries again only
+ * each time its size doubles, so adds to it stay cheap.
+ * @author Suiren
+ */
+public class MyHashMapAdaptiveBuckets<K, V> extends MyHashMap<K, V> {
+
+    /** A list bucket longer than this becomes a tree. */
+    static final int TREEIFY_THRESHOLD = 8;
+    /** A tree bucket shorter than this becomes a list. */
+    static final int UNTREEIFY_THRESHOLD = 6;
+
+    /** A bucket of nodes whose keys are all of keyClass, sorted by hash code, then key. */
+    private class TreeBucket extends TreeSet<Node> {
+        private static final long serialVersionUID = 1L;
+
+        private final Class<?> keyClass;
+
+        TreeBucket(Collection<Node> nodes, Class<?> keyClass) {
+            super((a, b) -> {
+                int cmp = Integer.compare(a.key.hashCode(), b.key.hashCode());
+                if (cmp != 0) {
+                    return cmp;
+                }
+                @SuppressWarnings("unchecked") Comparable<Object> key = (Comparable<Object>) a.key;
+                return key.compareTo(b.key);
+            });
+            this.keyClass = keyClass;
+            addAll(nodes);
+        }
+
+        boolean accepts(Object key) {
+            return key.getClass() == keyClass;
+        }
+    }
+
+    /**
+     * Constructor that creates a backing array with default
+     * initial size and load factor
+     */
+    public MyHashMapAdaptiveBuckets() {
+        super();
+    }
+
+    /**
+     * Constructor that creates a backing array of initialSize
+     * and default load factor
+     *
+     * @param initialSize initial size of backing array
+     */
+    public MyHashMapAdaptiveBuckets(int initialSize) {
+        super(initialSize);
+    }
+
+    /**
+     * Constructor that creates a backing array of initialSize.
+     * The load factor (# items / # buckets) should always be <= loadFactor
+     *
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     */
+    public MyHashMapAdaptiveBuckets(int initialSize, double maxLoad) {
+        super(initialSize, maxLoad);
+    }
+
+    @Override
+    protected Collection<Node> createBucket() {
+        return new LinkedList<>();
+    }
+
+    /**
+     * Adds N, whose key is not in BUCKET yet. A tree that already holds a key
+     * comparing equal to it (necessarily a different key) goes back to a list.
+     */
+    @Override
+    protected Collection<Node> addToBucket(Collection<Node> bucket, Node n) {
+        if (bucket instanceof MyHashMapAdaptiveBuckets.TreeBucket
+                && (!((TreeBucket) bucket).accepts(n.key) || bucket.contains(n))) {
+            bucket = untreeify(bucket);
+        }
+        bucket.add(n);
+        if (!(bucket instanceof MyHashMapAdaptiveBuckets.TreeBucket) && shouldTreeify(bucket.size())) {
+            Class<?> keyClass = commonComparableClass(bucket);
+            if (keyClass != null) {
+                TreeBucket tree = new TreeBucket(bucket, keyClass);
+                // A smaller tree dropped keys that compare equal without being equal.
+                if (tree.size() == bucket.size()) {
+                    bucket = tree;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    /** Whether a list bucket that just grew to SIZE should try to become a tree. */
+    private static boolean shouldTreeify(int size) {
+        return size == TREEIFY_THRESHOLD + 1 || (size > TREEIFY_THRESHOLD && Integer.bitCount(size) == 1);
+    }
+
+    @Override
+    protected Collection<Node> removeFromBucket(Collection<Node> bucket, Node n) {
+        bucket.remove(n);
+        if (bucket instanceof MyHashMapAdaptiveBuckets.TreeBucket
+                && bucket.size() < UNTREEIFY_THRESHOLD) {
+            bucket = untreeify(bucket);
+        }
+        return bucket;
+    }
+
+    @Override
+    protected Node findInBucket(Collection<Node> bucket, K key) {
+        if (!(bucket instanceof MyHashMapAdaptiveBuckets.TreeBucket)) {
+            return super.findInBucket(bucket, key);
+        }
+        TreeBucket tree = (TreeBucket) bucket;
+        if (!tree.accepts(key)) {
+            return null;
+        }
+        Node n = tree.floor(new Node(key, null));
+        return n != null && key.equals(n.key) ? n : null;
+    }
+
+    private Collection<Node> untreeify(Collection<Node> bucket) {
+        Collection<Node> list = createBucket();
+        list.addAll(bucket);
+        return list;
+    }
+
+    /** Returns the class of every key in BUCKET if it is one Comparable class, else null. */
+    private static Class<?> commonComparableClass(Collection<? extends MyHashMap<?, ?>.Node> bucket) {
+        Class<?> keyClass = null;
+        for (MyHashMap<?, ?>.Node n : bucket) {
+            if (keyClass == null) {
+                keyClass = n.key.getClass();
+                if (!Comparable.class.isAssignableFrom(keyClass)) {
+                    return null;
+                }
+            } else if (n.key.getClass() != keyClass) {
+                return null;
+            }
+        }
+        return keyClass;
+    }
+}
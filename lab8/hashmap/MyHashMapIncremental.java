@@ -0,0 +1,38 @@
+package hashmap;
+
+/**
+ * Hash Table that resizes incrementally: a put never rehashes the whole
+ * table, it migrates a few buckets of the old table instead.
+ * @author Suiren
+ */
+public class MyHashMapIncremental<K, V> extends MyHashMap<K, V> {
+
+    /**
+     * Constructor that creates a backing array with default
+     * initial size and load factor
+     */
+    public MyHashMapIncremental() {
+        this(16, 0.75);
+    }
+
+    /**
+     * Constructor that creates a backing array of initialSize
+     * and default load factor
+     *
+     * @param initialSize initial size of backing array
+     */
+    public MyHashMapIncremental(int initialSize) {
+        this(initialSize, 0.75);
+    }
+
+    /**
+     * Constructor that creates a backing array of initialSize.
+     * The load factor (# items / # buckets) should always be <= loadFactor
+     *
+     * @param initialSize initial size of backing array
+     * @param maxLoad maximum load factor
+     */
+    public MyHashMapIncremental(int initialSize, double maxLoad) {
+        super(initialSize, maxLoad, true);
+    }
+}
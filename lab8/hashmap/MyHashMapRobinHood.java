@@ -0,0 +1,285 @@
+package hashmap;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ *  An open-addressing hash table with Robin Hood linear probing.
+ *  Keys, values and hashes live in three parallel arrays, so there are no
+ *  bucket objects or nodes, and a lookup scans adjacent slots of one array.
+ *
+ *  Every key sits at or after its home slot (hash & mask). Its probe length is
+ *  the distance from home. On insertion, a key that has probed further than the
+ *  resident of a slot takes the slot, and the resident moves on instead, which
+ *  keeps probe lengths short and even. A lookup can therefore stop as soon as
+ *  it reaches a resident closer to home than itself. Removal shifts the following
+ *  keys of the cluster one slot back instead of leaving tombstones.
+ *
+ *  Assumes null keys will never be inserted, and does not resize down upon remove().
+ *  @author Suiren
+ */
+public class MyHashMapRobinHood<K, V> implements Map61B<K, V>, InstrumentedMap {
+
+    private static final int INITIAL_SIZE = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    /* Instance Variables */
+    private Object[] keys;
+    private Object[] values;
+    /** Spread hash codes of the keys, valid where keys[i] != null. */
+    private int[] hashes;
+    private int mask;
+    private int size;
+    private final int initialSize;
+    private final double loadFactor;
+    private int resizeCount;
+    private long resizeNanos;
+
+    /** Constructors */
+    public MyHashMapRobinHood() {
+        this(INITIAL_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    public MyHashMapRobinHood(int initialSize) {
+        this(initialSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructor that creates backing arrays of at least initialSize slots,
+     * rounded up to a power of two.
+     * The load factor (# items / # slots) should always be <= loadFactor
+     *
+     * @param initialSize initial size of backing arrays
+     * @param maxLoad maximum load factor, below 1
+     */
+    public MyHashMapRobinHood(int initialSize, double maxLoad) {
+        if (maxLoad <= 0 || maxLoad >= 1) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + maxLoad);
+        }
+        this.initialSize = tableSizeFor(initialSize);
+        this.loadFactor = maxLoad;
+        createTable(this.initialSize);
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = 2;
+        while (capacity < n) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void createTable(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /** Spread the high bits of the hash code down, since the home slot takes the low bits. */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /** Distance of the key in slot I from its home slot. */
+    private int probeLength(int i) {
+        return (i - hashes[i]) & mask;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        createTable(initialSize);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> re = new HashSet<>();
+        for (Object key : keys) {
+            if (key != null) {
+                @SuppressWarnings("unchecked") K k = (K) key;
+                re.add(k);
+            }
+        }
+        return re;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return findSlot(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int i = findSlot(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    /** Return the slot holding KEY, or -1. */
+    private int findSlot(K key) {
+        int h = hash(key);
+        int i = h & mask;
+        for (int dist = 0; keys[i] != null && dist <= probeLength(i); ++dist) {
+            if (hashes[i] == h && key.equals(keys[i])) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        if (size + 1 > keys.length * loadFactor) {
+            resize(keys.length * 2);
+        }
+        insert(hash(key), key, value);
+        ++size;
+    }
+
+    /** Insert a key known to be absent, displacing residents closer to home. */
+    private void insert(int h, Object key, Object value) {
+        int i = h & mask;
+        int dist = 0;
+        while (keys[i] != null) {
+            int resident = probeLength(i);
+            if (resident < dist) {
+                int th = hashes[i];
+                Object tk = keys[i];
+                Object tv = values[i];
+                hashes[i] = h;
+                keys[i] = key;
+                values[i] = value;
+                h = th;
+                key = tk;
+                value = tv;
+                dist = resident;
+            }
+            i = (i + 1) & mask;
+            ++dist;
+        }
+        hashes[i] = h;
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    @Override
+    public V remove(K key) {
+        int i = findSlot(key);
+        if (i < 0) {
+            return null;
+        }
+        @SuppressWarnings("unchecked") V old = (V) values[i];
+        deleteSlot(i);
+        return old;
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        int i = findSlot(key);
+        if (i < 0 || !Objects.equals(values[i], value)) {
+            return null;
+        }
+        deleteSlot(i);
+        return value;
+    }
+
+    /** Empty slot I by shifting the rest of its cluster one slot back. */
+    private void deleteSlot(int i) {
+        int next = (i + 1) & mask;
+        while (keys[next] != null && probeLength(next) > 0) {
+            hashes[i] = hashes[next];
+            keys[i] = keys[next];
+            values[i] = values[next];
+            i = next;
+            next = (next + 1) & mask;
+        }
+        keys[i] = null;
+        values[i] = null;
+        --size;
+    }
+
+    private void resize(int capacity) {
+        long start = System.nanoTime();
+        ++resizeCount;
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        createTable(capacity);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != null) {
+                insert(oldHashes[i], oldKeys[i], oldValues[i]);
+            }
+        }
+        resizeNanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return keySet().iterator();
+    }
+
+    /* Probe length statistics */
+
+    /** Returns the longest distance of a key from its home slot. */
+    public int maxProbeLength() {
+        int max = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != null) {
+                max = Math.max(max, probeLength(i));
+            }
+        }
+        return max;
+    }
+
+    /** Returns the mean distance of the keys from their home slots. */
+    public double averageProbeLength() {
+        if (size == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != null) {
+                total += probeLength(i);
+            }
+        }
+        return (double) total / size;
+    }
+
+    /** Returns how many keys sit at each distance from their home slot. */
+    public int[] probeLengthHistogram() {
+        int[] histogram = new int[maxProbeLength() + 1];
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != null) {
+                histogram[probeLength(i)]++;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the probe length histogram, resizes and estimated footprint:
+     * the three slot arrays, shared out over the entries.
+     */
+    @Override
+    public MapStats stats() {
+        long bytes = 2 * MapStats.arrayBytes(keys.length, MapStats.REFERENCE)
+                + MapStats.arrayBytes(keys.length, 4);
+        return new MapStats(probeLengthHistogram(), maxProbeLength(), averageProbeLength(),
+                resizeCount, resizeNanos, size == 0 ? 0 : (double) bytes / size);
+    }
+}
@@ -0,0 +1,162 @@
+package hashmap;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ *  A hash map from objects to int with no boxing of the values, a primitive sibling of Map61B.
+ *
+ *  Keys live in an Object array and values in a parallel flat int array, with
+ *  linear probing; a null key marks an empty slot. Removal shifts the following
+ *  keys of the cluster back instead of leaving tombstones. get, put, containsKey
+ *  and remove never allocate; only put may grow the arrays.
+ *
+ *  Assumes null keys will never be inserted. A missing key reads as the no-entry
+ *  value given at construction (0 by default).
+ *  @author Suiren
+ */
+public class ObjectIntMap<K> {
+
+    private static final int INITIAL_SIZE = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    private Object[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private final int initialSize;
+    private final double loadFactor;
+    private final int noEntryValue;
+
+    public ObjectIntMap() {
+        this(INITIAL_SIZE, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    public ObjectIntMap(int initialSize) {
+        this(initialSize, DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    /**
+     * @param initialSize initial number of slots, rounded up to a power of two
+     * @param maxLoad maximum load factor, below 1
+     * @param noEntryValue the value get returns for a missing key
+     */
+    public ObjectIntMap(int initialSize, double maxLoad, int noEntryValue) {
+        if (maxLoad <= 0 || maxLoad >= 1) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + maxLoad);
+        }
+        this.initialSize = PrimitiveHashing.tableSizeFor(initialSize);
+        this.loadFactor = maxLoad;
+        this.noEntryValue = noEntryValue;
+        createTable(this.initialSize);
+    }
+
+    private void createTable(int capacity) {
+        keys = new Object[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /** Removes all of the mappings from this map. */
+    public void clear() {
+        size = 0;
+        createTable(initialSize);
+    }
+
+    /** Returns the number of key-value mappings in this map. */
+    public int size() {
+        return size;
+    }
+
+    /** Returns true if this map contains a mapping for KEY. */
+    public boolean containsKey(K key) {
+        return findSlot(key) >= 0;
+    }
+
+    /** Returns the value of KEY, or the no-entry value if there is none. */
+    public int get(K key) {
+        return getOrDefault(key, noEntryValue);
+    }
+
+    /** Returns the value of KEY, or DEFAULTVALUE if there is none. */
+    public int getOrDefault(K key, int defaultValue) {
+        int i = findSlot(key);
+        return i < 0 ? defaultValue : values[i];
+    }
+
+    private int findSlot(K key) {
+        for (int i = PrimitiveHashing.mix(key) & mask; keys[i] != null; i = (i + 1) & mask) {
+            if (key.equals(keys[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Associates VALUE with KEY, replacing any previous value. */
+    public void put(K key, int value) {
+        int i = PrimitiveHashing.mix(key) & mask;
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (key.equals(keys[i])) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * loadFactor) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /** Removes the mapping of KEY; returns its value, or the no-entry value if there was none. */
+    public int remove(K key) {
+        int i = findSlot(key);
+        if (i < 0) {
+            return noEntryValue;
+        }
+        int old = values[i];
+        // Shift back every following key of the cluster that may move to the hole.
+        int next = (i + 1) & mask;
+        while (keys[next] != null) {
+            int home = PrimitiveHashing.mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - i) & mask)) {
+                keys[i] = keys[next];
+                values[i] = values[next];
+                i = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[i] = null;
+        --size;
+        return old;
+    }
+
+    /** Returns a Set of the keys of this map. */
+    public Set<K> keySet() {
+        Set<K> re = new HashSet<>();
+        for (Object key : keys) {
+            if (key != null) {
+                @SuppressWarnings("unchecked") K k = (K) key;
+                re.add(k);
+            }
+        }
+        return re;
+    }
+
+    private void resize(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        createTable(capacity);
+        for (int j = 0; j < oldKeys.length; ++j) {
+            if (oldKeys[j] != null) {
+                int i = PrimitiveHashing.mix(oldKeys[j]) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
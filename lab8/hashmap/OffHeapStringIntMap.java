@@ -0,0 +1,433 @@
+package hashmap;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ *  A String to int hash map that keeps its entries outside the Java heap, so
+ *  that a table of hundreds of millions of entries gives the GC nothing to trace.
+ *
+ *  The slot table is open-addressed with linear probing, in direct ByteBuffers of
+ *  16-byte slots: the spread hash of the key (0 marks an empty slot), the value,
+ *  and a reference to the key. Keys are stored once, as a length and their UTF-8
+ *  bytes, in an append-only arena of direct buffers. A lookup compares the inline
+ *  hash first and the key bytes only on a match. Both the table and the arena are
+ *  split into chunks of at most 64 MB, since a ByteBuffer is indexed by int.
+ *
+ *  Removal shifts the rest of the cluster back, as in IntIntMap, and leaves the
+ *  key bytes behind in the arena; the arena is compacted once more than half of
+ *  it is garbage.
+ *
+ *  close() frees the native memory at once rather than waiting for the buffers
+ *  to be collected; the map cannot be used afterwards. Direct memory is limited
+ *  by -XX:MaxDirectMemorySize, which defaults to the maximum heap size.
+ *  Null keys and values are not allowed.
+ *  @author Suiren
+ */
+public class OffHeapStringIntMap implements Map61B<String, Integer>, AutoCloseable {
+
+    private static final int INITIAL_SIZE = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+    /** The hash of an empty slot. */
+    private static final int EMPTY = 0;
+
+    /* Slot layout */
+    private static final int SLOT_BYTES = 16;
+    private static final int HASH = 0;
+    private static final int VALUE = 4;
+    private static final int KEY_REF = 8;
+    /** log2 of the number of slots in a full table chunk: 4M slots, 64 MB. */
+    private static final int SLOT_CHUNK_SHIFT = 22;
+    private static final int SLOT_CHUNK_MASK = (1 << SLOT_CHUNK_SHIFT) - 1;
+
+    /* Key arena */
+    private static final int FIRST_ARENA_CHUNK = 1 << 12;
+    private static final int MAX_ARENA_CHUNK = 1 << 26;
+    /** Garbage below this many bytes is never worth compacting. */
+    private static final long MIN_COMPACT_BYTES = 1 << 20;
+
+    /* Instance Variables */
+    private ByteBuffer[] slots;
+    private int mask;
+    private int size;
+    /** Arena chunks in use; arena[arenaChunks - 1] is appended to. */
+    private ByteBuffer[] arena;
+    private int arenaChunks;
+    private long liveKeyBytes;
+    private long garbageKeyBytes;
+    private boolean closed;
+    private final int initialSize;
+    private final double loadFactor;
+
+    /** Constructors */
+    public OffHeapStringIntMap() {
+        this(INITIAL_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    public OffHeapStringIntMap(int initialSize) {
+        this(initialSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param initialSize initial number of slots, rounded up to a power of two
+     * @param maxLoad maximum load factor, below 1
+     */
+    public OffHeapStringIntMap(int initialSize, double maxLoad) {
+        if (maxLoad <= 0 || maxLoad >= 1) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + maxLoad);
+        }
+        this.initialSize = PrimitiveHashing.tableSizeFor(initialSize);
+        this.loadFactor = maxLoad;
+        slots = createTable(this.initialSize);
+        arena = new ByteBuffer[4];
+    }
+
+    private ByteBuffer[] createTable(int capacity) {
+        mask = capacity - 1;
+        int chunkSlots = Math.min(capacity, 1 << SLOT_CHUNK_SHIFT);
+        ByteBuffer[] table = new ByteBuffer[capacity / chunkSlots];
+        for (int c = 0; c < table.length; ++c) {
+            table[c] = ByteBuffer.allocateDirect(chunkSlots * SLOT_BYTES);
+        }
+        return table;
+    }
+
+    /* Slot accessors */
+
+    private static ByteBuffer chunkOf(ByteBuffer[] table, int i) {
+        return table[i >>> SLOT_CHUNK_SHIFT];
+    }
+
+    private static int offsetOf(int i) {
+        return (i & SLOT_CHUNK_MASK) * SLOT_BYTES;
+    }
+
+    private static int hashAt(ByteBuffer[] table, int i) {
+        return chunkOf(table, i).getInt(offsetOf(i) + HASH);
+    }
+
+    private static int valueAt(ByteBuffer[] table, int i) {
+        return chunkOf(table, i).getInt(offsetOf(i) + VALUE);
+    }
+
+    private static long keyRefAt(ByteBuffer[] table, int i) {
+        return chunkOf(table, i).getLong(offsetOf(i) + KEY_REF);
+    }
+
+    private static void setSlot(ByteBuffer[] table, int i, int hash, int value, long keyRef) {
+        ByteBuffer chunk = chunkOf(table, i);
+        int off = offsetOf(i);
+        chunk.putInt(off + HASH, hash);
+        chunk.putInt(off + VALUE, value);
+        chunk.putLong(off + KEY_REF, keyRef);
+    }
+
+    /** Spread the hash code, keeping 0 free to mark empty slots. */
+    private static int hash(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return h == EMPTY ? 1 : h;
+    }
+
+    /* Key arena */
+
+    /** Returns the reference of a new copy of KEY in the arena. */
+    private long appendKey(byte[] key) {
+        int need = Integer.BYTES + key.length;
+        if (need > MAX_ARENA_CHUNK) {
+            throw new IllegalArgumentException("Key too long: " + key.length + " bytes");
+        }
+        ByteBuffer chunk = arenaChunks == 0 ? null : arena[arenaChunks - 1];
+        if (chunk == null || chunk.remaining() < need) {
+            int capacity = chunk == null ? FIRST_ARENA_CHUNK : Math.min(chunk.capacity() * 2, MAX_ARENA_CHUNK);
+            chunk = ByteBuffer.allocateDirect(Math.max(capacity, need));
+            if (arenaChunks == arena.length) {
+                arena = Arrays.copyOf(arena, arenaChunks * 2);
+            }
+            arena[arenaChunks++] = chunk;
+        }
+        long ref = ((long) (arenaChunks - 1) << 32) | chunk.position();
+        chunk.putInt(key.length);
+        chunk.put(key);
+        liveKeyBytes += need;
+        return ref;
+    }
+
+    private int keyLength(long ref) {
+        return arena[(int) (ref >>> 32)].getInt((int) ref);
+    }
+
+    private boolean keyEquals(long ref, byte[] key) {
+        ByteBuffer chunk = arena[(int) (ref >>> 32)];
+        int off = (int) ref;
+        if (chunk.getInt(off) != key.length) {
+            return false;
+        }
+        off += Integer.BYTES;
+        for (int j = 0; j < key.length; ++j) {
+            if (chunk.get(off + j) != key[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decodeKey(long ref) {
+        ByteBuffer chunk = arena[(int) (ref >>> 32)];
+        byte[] bytes = new byte[chunk.getInt((int) ref)];
+        chunk.get((int) ref + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /* Map61B */
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        checkOpen();
+        freeAll();
+        size = 0;
+        liveKeyBytes = 0;
+        garbageKeyBytes = 0;
+        slots = createTable(initialSize);
+        arena = new ByteBuffer[4];
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        checkOpen();
+        return findSlot(key.getBytes(StandardCharsets.UTF_8), hash(key)) >= 0;
+    }
+
+    @Override
+    public Integer get(String key) {
+        checkOpen();
+        int i = findSlot(key.getBytes(StandardCharsets.UTF_8), hash(key));
+        return i < 0 ? null : valueAt(slots, i);
+    }
+
+    /** Returns the value of KEY without boxing, or DEFAULTVALUE if there is none. */
+    public int getOrDefault(String key, int defaultValue) {
+        checkOpen();
+        int i = findSlot(key.getBytes(StandardCharsets.UTF_8), hash(key));
+        return i < 0 ? defaultValue : valueAt(slots, i);
+    }
+
+    /** Returns the slot of KEY, or -(the empty slot ending its probe) - 1. */
+    private int findSlot(byte[] key, int h) {
+        int i = h & mask;
+        for (int sh; (sh = hashAt(slots, i)) != EMPTY; i = (i + 1) & mask) {
+            if (sh == h && keyEquals(keyRefAt(slots, i), key)) {
+                return i;
+            }
+        }
+        return -i - 1;
+    }
+
+    @Override
+    public void put(String key, Integer value) {
+        if (value == null) {
+            throw new NullPointerException("OffHeapStringIntMap does not allow null values");
+        }
+        putInt(key, value);
+    }
+
+    /** Associates VALUE with KEY without boxing, replacing any previous value. */
+    public void putInt(String key, int value) {
+        checkOpen();
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int h = hash(key);
+        int i = findSlot(bytes, h);
+        if (i >= 0) {
+            chunkOf(slots, i).putInt(offsetOf(i) + VALUE, value);
+            return;
+        }
+        setSlot(slots, -i - 1, h, value, appendKey(bytes));
+        if (++size > (mask + 1) * loadFactor) {
+            resize((mask + 1) * 2);
+        }
+    }
+
+    @Override
+    public Integer remove(String key) {
+        checkOpen();
+        int i = findSlot(key.getBytes(StandardCharsets.UTF_8), hash(key));
+        if (i < 0) {
+            return null;
+        }
+        int old = valueAt(slots, i);
+        deleteSlot(i);
+        return old;
+    }
+
+    @Override
+    public Integer remove(String key, Integer value) {
+        checkOpen();
+        int i = findSlot(key.getBytes(StandardCharsets.UTF_8), hash(key));
+        if (i < 0 || value == null || valueAt(slots, i) != value) {
+            return null;
+        }
+        deleteSlot(i);
+        return value;
+    }
+
+    /** Empty slot I, shifting back every following key of the cluster that may move to the hole. */
+    private void deleteSlot(int i) {
+        long dead = Integer.BYTES + keyLength(keyRefAt(slots, i));
+        int next = (i + 1) & mask;
+        for (int h; (h = hashAt(slots, next)) != EMPTY; next = (next + 1) & mask) {
+            int home = h & mask;
+            if (((next - home) & mask) >= ((next - i) & mask)) {
+                setSlot(slots, i, h, valueAt(slots, next), keyRefAt(slots, next));
+                i = next;
+            }
+        }
+        setSlot(slots, i, EMPTY, 0, 0);
+        --size;
+        liveKeyBytes -= dead;
+        garbageKeyBytes += dead;
+        if (garbageKeyBytes > liveKeyBytes && garbageKeyBytes > MIN_COMPACT_BYTES) {
+            compact();
+        }
+    }
+
+    private void resize(int capacity) {
+        ByteBuffer[] old = slots;
+        int oldCapacity = mask + 1;
+        slots = createTable(capacity);
+        for (int j = 0; j < oldCapacity; ++j) {
+            int h = hashAt(old, j);
+            if (h != EMPTY) {
+                int i = h & mask;
+                while (hashAt(slots, i) != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                setSlot(slots, i, h, valueAt(old, j), keyRefAt(old, j));
+            }
+        }
+        for (ByteBuffer chunk : old) {
+            free(chunk);
+        }
+    }
+
+    /** Copy the live keys into a fresh arena, dropping the bytes of removed ones. */
+    private void compact() {
+        ByteBuffer[] oldArena = arena;
+        int oldChunks = arenaChunks;
+        arena = new ByteBuffer[4];
+        arenaChunks = 0;
+        liveKeyBytes = 0;
+        garbageKeyBytes = 0;
+        for (int i = 0; i <= mask; ++i) {
+            if (hashAt(slots, i) != EMPTY) {
+                long ref = keyRefAt(slots, i);
+                ByteBuffer chunk = oldArena[(int) (ref >>> 32)];
+                byte[] bytes = new byte[chunk.getInt((int) ref)];
+                chunk.get((int) ref + Integer.BYTES, bytes);
+                chunkOf(slots, i).putLong(offsetOf(i) + KEY_REF, appendKey(bytes));
+            }
+        }
+        for (int c = 0; c < oldChunks; ++c) {
+            free(oldArena[c]);
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        checkOpen();
+        Set<String> re = new HashSet<>();
+        for (int i = 0; i <= mask; ++i) {
+            if (hashAt(slots, i) != EMPTY) {
+                re.add(decodeKey(keyRefAt(slots, i)));
+            }
+        }
+        return re;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return keySet().iterator();
+    }
+
+    /** Returns the bytes of native memory held by the table and the key arena. */
+    public long offHeapBytes() {
+        long re = (long) (mask + 1) * SLOT_BYTES;
+        for (int c = 0; c < arenaChunks; ++c) {
+            re += arena[c].capacity();
+        }
+        return re;
+    }
+
+    /** Frees the native memory now. The map must not be used afterwards. */
+    @Override
+    public void close() {
+        if (!closed) {
+            freeAll();
+            slots = null;
+            arena = null;
+            size = 0;
+            closed = true;
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("OffHeapStringIntMap is closed");
+        }
+    }
+
+    private void freeAll() {
+        for (ByteBuffer chunk : slots) {
+            free(chunk);
+        }
+        for (int c = 0; c < arenaChunks; ++c) {
+            free(arena[c]);
+        }
+        arenaChunks = 0;
+    }
+
+    /* Freeing direct buffers. There is no public API for it before the FFM API,
+     * so use sun.misc.Unsafe.invokeCleaner when it is there, and otherwise leave
+     * the buffer to be freed when it is collected. */
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            // Left to the garbage collector.
+        }
+    }
+}
@@ -0,0 +1,536 @@
+package hashmap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ *  An immutable map, stored as a hash array mapped trie (HAMT). put and
+ *  remove return a new map and leave this one as it was. Only the nodes on
+ *  the path to the changed key are copied, one per level of at most 8, and
+ *  the new map shares every other node with the old one. Keeping an old version around is
+ *  therefore a snapshot that costs O(1) to take.
+ *
+ *  The trie consumes the hash 5 bits per level. A node has a 32-bit bitmap of
+ *  which of its 32 children exist and an array holding only those, indexed by
+ *  the number of set bits below the child's bit. A child is either a key and
+ *  its value or a subnode. Keys whose whole hash codes are equal end up
+ *  together in a collision node, which is searched linearly.
+ *
+ *  A Builder loads many entries faster: nodes it created itself belong to it
+ *  and are changed in place, so a run of puts copies each node at most once
+ *  instead of once per put.
+ *
+ *  Assumes null keys will never be inserted.
+ *  @author Suiren
+ */
+public final class PersistentMap<K, V> implements Iterable<K> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+    /** Returned by Node.find for an absent key, since values may be null. */
+    private static final Object NOT_FOUND = new Object();
+
+    /* Instance Variables */
+    /** The root, or null when empty. */
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /** Returns the empty map. */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    private static int hash(Object key) {
+        return PrimitiveHashing.mix(key.hashCode());
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(K key) {
+        return root != null && root.find(0, hash(key), key) != NOT_FOUND;
+    }
+
+    /** Returns the value of KEY, or null if it is absent. */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        Object v = root == null ? NOT_FOUND : root.find(0, hash(key), key);
+        return v == NOT_FOUND ? null : (V) v;
+    }
+
+    /** Returns a map with KEY mapped to VALUE, or this map if it already was. */
+    public PersistentMap<K, V> put(K key, V value) {
+        Change change = new Change();
+        Node r = root == null ? BitmapNode.EMPTY : root;
+        Node newRoot = r.assoc(null, 0, hash(key), key, value, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, change.added ? size + 1 : size);
+    }
+
+    /** Returns a map without KEY, or this map if KEY is absent. */
+    public PersistentMap<K, V> remove(K key) {
+        if (root == null) {
+            return this;
+        }
+        Change change = new Change();
+        Node newRoot = root.without(null, 0, hash(key), key, change);
+        if (!change.removed) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, size - 1);
+    }
+
+    /** Returns a new Builder starting from the entries of this map. */
+    public Builder<K, V> builder() {
+        return new Builder<>(root, size);
+    }
+
+    /** Returns a set of the keys, copied out of the trie. */
+    public Set<K> keySet() {
+        Set<K> re = new HashSet<>();
+        for (K key : this) {
+            re.add(key);
+        }
+        return re;
+    }
+
+    /** Iterates over the keys in trie order, which depends on their hash codes. */
+    @Override
+    public Iterator<K> iterator() {
+        return new KeyIterator<>(root);
+    }
+
+    /**
+     * Builds a PersistentMap by changing nodes in place, which must only
+     * happen to nodes that no published map can see. Each node records the
+     * Builder token it was created under; a builder edits nodes carrying its
+     * own token and copies any other node the first time it touches it.
+     * build() retires the token, so the builder's nodes are frozen from then
+     * on and the builder can't be used again. Not thread-safe.
+     */
+    public static final class Builder<K, V> {
+        /** Owner token of the nodes this builder may edit, or null once built. */
+        private Object edit = new Object();
+        private Node root;
+        private int size;
+
+        private Builder(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        private Object edit() {
+            if (edit == null) {
+                throw new IllegalStateException("Builder used after build()");
+            }
+            return edit;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(K key) {
+            Object v = root == null ? NOT_FOUND : root.find(0, hash(key), key);
+            return v == NOT_FOUND ? null : (V) v;
+        }
+
+        public Builder<K, V> put(K key, V value) {
+            Change change = new Change();
+            Node r = root == null ? BitmapNode.EMPTY : root;
+            root = r.assoc(edit(), 0, hash(key), key, value, change);
+            if (change.added) {
+                ++size;
+            }
+            return this;
+        }
+
+        public Builder<K, V> remove(K key) {
+            Object token = edit();
+            if (root != null) {
+                Change change = new Change();
+                root = root.without(token, 0, hash(key), key, change);
+                if (change.removed) {
+                    --size;
+                }
+            }
+            return this;
+        }
+
+        /** Returns the map built, and retires this builder. */
+        public PersistentMap<K, V> build() {
+            edit();
+            edit = null;
+            return size == 0 ? empty() : new PersistentMap<>(root, size);
+        }
+    }
+
+    /** What an assoc or without did, beyond the node it returned. */
+    private static class Change {
+        boolean added;
+        boolean removed;
+    }
+
+    private abstract static class Node {
+        /** The Builder token this node was created under, or null. */
+        final Object edit;
+
+        Node(Object edit) {
+            this.edit = edit;
+        }
+
+        /** Returns the value of KEY, of hash HASH, below level SHIFT, or NOT_FOUND. */
+        abstract Object find(int shift, int hash, Object key);
+
+        /**
+         * Returns this node with KEY mapped to VALUE: this node itself if nothing
+         * changed or it was edited in place under EDIT, else a copy.
+         */
+        abstract Node assoc(Object edit, int shift, int hash, Object key, Object value, Change change);
+
+        /** Returns this node without KEY, in the same way as assoc, or null once empty. */
+        abstract Node without(Object edit, int shift, int hash, Object key, Change change);
+
+        /** Returns the number of children, entries or subnodes. */
+        abstract int arity();
+
+        /** Returns child I: a key, or null for a subnode. */
+        abstract Object keyAt(int i);
+
+        /** Returns the value, or the subnode, of child I. */
+        abstract Object valueAt(int i);
+
+        boolean editable(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+    }
+
+    /**
+     * A trie node of up to 32 children, with key/value or null/subnode pairs at
+     * the start of array. A node owned by a Builder keeps spare room at the end,
+     * so that puts can shift the pairs in place.
+     */
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        int bitmap;
+        Object[] array;
+
+        BitmapNode(Object edit, int bitmap, Object[] array) {
+            super(edit);
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int i = 2 * index(bit);
+            Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).find(shift + BITS, hash, key);
+            }
+            return key.equals(k) ? array[i + 1] : NOT_FOUND;
+        }
+
+        /** Returns this node, if editable, or a copy to edit under EDIT. */
+        private BitmapNode ensureEditable(Object edit) {
+            if (editable(edit)) {
+                return this;
+            }
+            return new BitmapNode(edit, bitmap, array.clone());
+        }
+
+        private BitmapNode set(Object edit, int i, Object a) {
+            BitmapNode n = ensureEditable(edit);
+            n.array[i] = a;
+            return n;
+        }
+
+        private BitmapNode set(Object edit, int i, Object a, Object b) {
+            BitmapNode n = ensureEditable(edit);
+            n.array[i] = a;
+            n.array[i + 1] = b;
+            return n;
+        }
+
+        @Override
+        Node assoc(Object edit, int shift, int hash, Object key, Object value, Change change) {
+            int bit = bit(hash, shift);
+            int i = 2 * index(bit);
+            if ((bitmap & bit) != 0) {
+                Object k = array[i];
+                Object v = array[i + 1];
+                if (k == null) {
+                    Node sub = ((Node) v).assoc(edit, shift + BITS, hash, key, value, change);
+                    return sub == v ? this : set(edit, i + 1, sub);
+                }
+                if (key.equals(k)) {
+                    return v == value ? this : set(edit, i + 1, value);
+                }
+                change.added = true;
+                Node sub = pair(edit, shift + BITS, k, v, hash, key, value);
+                return set(edit, i, null, sub);
+            }
+            change.added = true;
+            int len = 2 * Integer.bitCount(bitmap);
+            if (edit != null) {
+                BitmapNode n = ensureEditable(edit);
+                if (len + 2 > n.array.length) {
+                    n.array = Arrays.copyOf(n.array, Math.min(2 * 32, Math.max(8, 2 * len)));
+                }
+                System.arraycopy(n.array, i, n.array, i + 2, len - i);
+                n.array[i] = key;
+                n.array[i + 1] = value;
+                n.bitmap |= bit;
+                return n;
+            }
+            Object[] grown = new Object[len + 2];
+            System.arraycopy(array, 0, grown, 0, i);
+            grown[i] = key;
+            grown[i + 1] = value;
+            System.arraycopy(array, i, grown, i + 2, len - i);
+            return new BitmapNode(null, bitmap | bit, grown);
+        }
+
+        @Override
+        Node without(Object edit, int shift, int hash, Object key, Change change) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = 2 * index(bit);
+            Object k = array[i];
+            if (k == null) {
+                Node sub = (Node) array[i + 1];
+                Node n = sub.without(edit, shift + BITS, hash, key, change);
+                if (n == sub) {
+                    return this;
+                }
+                if (n != null) {
+                    return set(edit, i + 1, n);
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            change.removed = true;
+            if (bitmap == bit) {
+                return null;
+            }
+            int len = 2 * Integer.bitCount(bitmap);
+            if (edit != null) {
+                BitmapNode n = ensureEditable(edit);
+                System.arraycopy(n.array, i + 2, n.array, i, len - i - 2);
+                n.array[len - 2] = null;
+                n.array[len - 1] = null;
+                n.bitmap ^= bit;
+                return n;
+            }
+            Object[] shrunk = new Object[len - 2];
+            System.arraycopy(array, 0, shrunk, 0, i);
+            System.arraycopy(array, i + 2, shrunk, i, len - i - 2);
+            return new BitmapNode(null, bitmap ^ bit, shrunk);
+        }
+
+        @Override
+        int arity() {
+            return Integer.bitCount(bitmap);
+        }
+
+        @Override
+        Object keyAt(int i) {
+            return array[2 * i];
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return array[2 * i + 1];
+        }
+    }
+
+    /** Returns a node holding both entries, which differ in key, below level SHIFT. */
+    private static Node pair(Object edit, int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+        int h1 = hash(k1);
+        if (h1 == h2) {
+            return new CollisionNode(edit, h1, new Object[] {k1, v1, k2, v2});
+        }
+        Change ignored = new Change();
+        return new BitmapNode(edit, 0, new Object[0])
+                .assoc(edit, shift, h1, k1, v1, ignored)
+                .assoc(edit, shift, h2, k2, v2, ignored);
+    }
+
+    /** The entries of keys that all have the hash hash, searched linearly. */
+    private static final class CollisionNode extends Node {
+        final int hash;
+        /** Key/value pairs. */
+        Object[] array;
+
+        CollisionNode(Object edit, int hash, Object[] array) {
+            super(edit);
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            return i < 0 ? NOT_FOUND : array[i + 1];
+        }
+
+        private Node withArray(Object edit, Object[] a) {
+            if (editable(edit)) {
+                array = a;
+                return this;
+            }
+            return new CollisionNode(edit, hash, a);
+        }
+
+        @Override
+        Node assoc(Object edit, int shift, int hash, Object key, Object value, Change change) {
+            if (hash != this.hash) {
+                // Nest this node one level down, beside the new key.
+                return new BitmapNode(edit, bit(this.hash, shift), new Object[] {null, this})
+                        .assoc(edit, shift, hash, key, value, change);
+            }
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                if (editable(edit)) {
+                    array[i + 1] = value;
+                    return this;
+                }
+                Object[] a = array.clone();
+                a[i + 1] = value;
+                return new CollisionNode(edit, hash, a);
+            }
+            change.added = true;
+            Object[] a = new Object[array.length + 2];
+            System.arraycopy(array, 0, a, 0, array.length);
+            a[array.length] = key;
+            a[array.length + 1] = value;
+            return withArray(edit, a);
+        }
+
+        @Override
+        Node without(Object edit, int shift, int hash, Object key, Change change) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            change.removed = true;
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] a = new Object[array.length - 2];
+            System.arraycopy(array, 0, a, 0, i);
+            System.arraycopy(array, i + 2, a, i, array.length - i - 2);
+            return withArray(edit, a);
+        }
+
+        @Override
+        int arity() {
+            return array.length / 2;
+        }
+
+        @Override
+        Object keyAt(int i) {
+            return array[2 * i];
+        }
+
+        @Override
+        Object valueAt(int i) {
+            return array[2 * i + 1];
+        }
+    }
+
+    /** Walks the trie depth first, with an explicit stack of nodes and child positions. */
+    private static class KeyIterator<K> implements Iterator<K> {
+        /** 7 levels of BitmapNode, then a CollisionNode. */
+        private final Node[] nodes = new Node[8];
+        private final int[] positions = new int[8];
+        private int depth = -1;
+        private Object next;
+
+        KeyIterator(Node root) {
+            if (root != null) {
+                nodes[0] = root;
+                depth = 0;
+                advance();
+            }
+        }
+
+        /** Sets next to the following key, or null at the end. */
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node n = nodes[depth];
+                int i = positions[depth];
+                if (i == n.arity()) {
+                    --depth;
+                    continue;
+                }
+                positions[depth] = i + 1;
+                Object k = n.keyAt(i);
+                if (k != null) {
+                    next = k;
+                    return;
+                }
+                ++depth;
+                nodes[depth] = (Node) n.valueAt(i);
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public K next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            @SuppressWarnings("unchecked") K re = (K) next;
+            advance();
+            return re;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package hashmap;
+
+/**
+ * Hash functions and sizing shared by the primitive maps.
+ * @author Suiren
+ */
+final class PrimitiveHashing {
+
+    private PrimitiveHashing() {
+    }
+
+    /** Scramble an int key, so that keys differing only in high bits land apart. */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Scramble a long key into an int hash. */
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** Scramble the hash code of an object key. */
+    static int mix(Object key) {
+        return mix(key.hashCode());
+    }
+
+    /** The smallest power of two, at least 2, not below N. */
+    static int tableSizeFor(int n) {
+        int capacity = 2;
+        while (capacity < n) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,99 @@
+package hashmap;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ *  A Map61B over a PersistentMap. Every write builds the next version of the
+ *  map and swings a reference to it with compareAndSet, retrying if another
+ *  writer got there first, so any number of threads may write. snapshot()
+ *  returns the current version in O(1), and it never changes afterwards
+ *  however much the map is written to.
+ *
+ *  Reads see one whole version, so a get never blocks or sees half a write.
+ *  Assumes null keys will never be inserted.
+ *  @author Suiren
+ */
+public class SnapshotMap<K, V> implements Map61B<K, V> {
+
+    private final AtomicReference<PersistentMap<K, V>> current;
+
+    public SnapshotMap() {
+        this(PersistentMap.empty());
+    }
+
+    /** Creates a map starting from the entries of INITIAL. */
+    public SnapshotMap(PersistentMap<K, V> initial) {
+        current = new AtomicReference<>(initial);
+    }
+
+    /** Returns the map as it is now, sharing its structure with this one. */
+    public PersistentMap<K, V> snapshot() {
+        return current.get();
+    }
+
+    @Override
+    public void clear() {
+        current.set(PersistentMap.empty());
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return current.get().containsKey(key);
+    }
+
+    @Override
+    public V get(K key) {
+        return current.get().get(key);
+    }
+
+    @Override
+    public int size() {
+        return current.get().size();
+    }
+
+    @Override
+    public void put(K key, V value) {
+        current.updateAndGet(m -> m.put(key, value));
+    }
+
+    /** Returns a set of the keys of the current version. */
+    @Override
+    public Set<K> keySet() {
+        return current.get().keySet();
+    }
+
+    @Override
+    public V remove(K key) {
+        while (true) {
+            PersistentMap<K, V> m = current.get();
+            if (!m.containsKey(key)) {
+                return null;
+            }
+            if (current.compareAndSet(m, m.remove(key))) {
+                return m.get(key);
+            }
+        }
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        while (true) {
+            PersistentMap<K, V> m = current.get();
+            if (!m.containsKey(key) || !Objects.equals(m.get(key), value)) {
+                return null;
+            }
+            if (current.compareAndSet(m, m.remove(key))) {
+                return value;
+            }
+        }
+    }
+
+    /** Iterates over the keys of the current version. */
+    @Override
+    public Iterator<K> iterator() {
+        return current.get().iterator();
+    }
+}
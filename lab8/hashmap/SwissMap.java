@@ -0,0 +1,267 @@
+package hashmap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ *  An open-addressing hash table in the style of Abseil's SwissTable.
+ *
+ *  Slots come in groups of 8, and each slot has a control byte: EMPTY, DELETED,
+ *  or, for a full slot, a 7-bit tag taken from the hash of its key. The 8 control
+ *  bytes of a group are packed into one long, so a lookup tests all 8 tags of a
+ *  group at once with a few word operations (SWAR, SIMD within a register) and
+ *  only compares keys where the tag matches. With 7 bits of tag, about one in 128
+ *  non-matching full slots needs a key comparison at all.
+ *
+ *  The rest of the hash picks the first group; later groups follow a triangular
+ *  sequence, which visits every group of a power-of-two table. A lookup stops at
+ *  the first group with an EMPTY slot. Removal leaves a DELETED tombstone,
+ *  and tombstones are cleared by the next rehash. The table holds at most 7/8
+ *  full or deleted slots.
+ *
+ *  Assumes null keys will never be inserted.
+ *  @author Suiren
+ */
+public class SwissMap<K, V> implements Map61B<K, V> {
+
+    private static final int GROUP_WIDTH = 8;
+    private static final int INITIAL_SIZE = 16;
+
+    /* Control bytes */
+    private static final long EMPTY = 0x80;
+    private static final long DELETED = 0xFE;
+    /** Every byte 0x01. */
+    private static final long LSBS = 0x0101010101010101L;
+    /** Every byte 0x80. */
+    private static final long MSBS = 0x8080808080808080L;
+    private static final long ALL_EMPTY = MSBS;
+
+    /* Instance Variables */
+    private Object[] keys;
+    private Object[] values;
+    /** Control bytes, group g in ctrl[g], slot g * 8 + b in byte b. */
+    private long[] ctrl;
+    private int groupMask;
+    private int size;
+    /** Number of EMPTY slots that may still be filled before a rehash. */
+    private int growthLeft;
+    private final int initialSize;
+
+    /** Constructors */
+    public SwissMap() {
+        this(INITIAL_SIZE);
+    }
+
+    /**
+     * @param initialSize initial number of slots, rounded up to a power of two of at least 16
+     */
+    public SwissMap(int initialSize) {
+        this.initialSize = Math.max(2 * GROUP_WIDTH, PrimitiveHashing.tableSizeFor(initialSize));
+        createTable(this.initialSize);
+    }
+
+    private void createTable(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        ctrl = new long[capacity / GROUP_WIDTH];
+        Arrays.fill(ctrl, ALL_EMPTY);
+        groupMask = ctrl.length - 1;
+        growthLeft = capacity - capacity / 8;
+    }
+
+    /** Spread the hash code over all 32 bits; the low 7 become the tag. */
+    private static int hash(Object key) {
+        return PrimitiveHashing.mix(key.hashCode());
+    }
+
+    private static int tag(int h) {
+        return h & 0x7F;
+    }
+
+    private int firstGroup(int h) {
+        return (h >>> 7) & groupMask;
+    }
+
+    /* SWAR group operations. A result has the high bit set in each byte that matches. */
+
+    /**
+     * Bytes of GROUP equal to TAG. May also report a byte just above a true match,
+     * which the key comparison then rejects.
+     */
+    private static long matchTag(long group, int tag) {
+        long x = group ^ (LSBS * tag);
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    /** Bytes of GROUP that are EMPTY: the only control byte with bit 7 set and bit 1 clear. */
+    private static long matchEmpty(long group) {
+        return group & ~(group << 6) & MSBS;
+    }
+
+    /** Bytes of GROUP that are EMPTY or DELETED, the only ones with bit 7 set. */
+    private static long matchFree(long group) {
+        return group & MSBS;
+    }
+
+    /** Returns the byte index of the lowest set high bit of MATCH. */
+    private static int lowestByte(long match) {
+        return Long.numberOfTrailingZeros(match) >>> 3;
+    }
+
+    private void setCtrl(int slot, long value) {
+        int shift = (slot % GROUP_WIDTH) * 8;
+        int g = slot / GROUP_WIDTH;
+        ctrl[g] = (ctrl[g] & ~(0xFFL << shift)) | (value << shift);
+    }
+
+    private long ctrlAt(int slot) {
+        return (ctrl[slot / GROUP_WIDTH] >>> ((slot % GROUP_WIDTH) * 8)) & 0xFF;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        createTable(initialSize);
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return findSlot(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int i = findSlot(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    /** Return the slot holding KEY, or -1. */
+    private int findSlot(K key) {
+        int h = hash(key);
+        int tag = tag(h);
+        int g = firstGroup(h);
+        for (int step = 1;; g = (g + step++) & groupMask) {
+            long group = ctrl[g];
+            for (long m = matchTag(group, tag); m != 0; m &= m - 1) {
+                int i = g * GROUP_WIDTH + lowestByte(m);
+                if (key.equals(keys[i])) {
+                    return i;
+                }
+            }
+            if (matchEmpty(group) != 0) {
+                return -1;
+            }
+        }
+    }
+
+    /** Return the first EMPTY or DELETED slot on the probe sequence of hash H. */
+    private int findFree(int h) {
+        int g = firstGroup(h);
+        for (int step = 1;; g = (g + step++) & groupMask) {
+            long m = matchFree(ctrl[g]);
+            if (m != 0) {
+                return g * GROUP_WIDTH + lowestByte(m);
+            }
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int i = findSlot(key);
+        if (i >= 0) {
+            values[i] = value;
+            return;
+        }
+        int h = hash(key);
+        i = findFree(h);
+        if (growthLeft == 0 && ctrlAt(i) == EMPTY) {
+            rehash();
+            i = findFree(h);
+        }
+        if (ctrlAt(i) == EMPTY) {
+            --growthLeft;
+        }
+        setCtrl(i, tag(h));
+        keys[i] = key;
+        values[i] = value;
+        ++size;
+    }
+
+    @Override
+    public V remove(K key) {
+        int i = findSlot(key);
+        if (i < 0) {
+            return null;
+        }
+        @SuppressWarnings("unchecked") V old = (V) values[i];
+        deleteSlot(i);
+        return old;
+    }
+
+    @Override
+    public V remove(K key, V value) {
+        int i = findSlot(key);
+        if (i < 0 || !Objects.equals(values[i], value)) {
+            return null;
+        }
+        deleteSlot(i);
+        return value;
+    }
+
+    private void deleteSlot(int i) {
+        setCtrl(i, DELETED);
+        keys[i] = null;
+        values[i] = null;
+        --size;
+    }
+
+    /**
+     * Rebuild without tombstones: at the same size if they were what filled the
+     * table, else at twice the size.
+     */
+    private void rehash() {
+        int capacity = keys.length;
+        if (size >= capacity / 2 - capacity / 16) {
+            capacity *= 2;
+        }
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        createTable(capacity);
+        for (int j = 0; j < oldKeys.length; ++j) {
+            if (oldKeys[j] != null) {
+                int h = hash(oldKeys[j]);
+                int i = findFree(h);
+                setCtrl(i, tag(h));
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                --growthLeft;
+            }
+        }
+    }
+
+    @Override
+    public Set<K> keySet() {
+        Set<K> re = new HashSet<>();
+        for (Object key : keys) {
+            if (key != null) {
+                @SuppressWarnings("unchecked") K k = (K) key;
+                re.add(k);
+            }
+        }
+        return re;
+    }
+
+    @Override
+    public Iterator<K> iterator() {
+        return keySet().iterator();
+    }
+}
@@ -0,0 +1,97 @@
+package hashmap;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/** Tests of the concurrent hash map, alone and from several threads. */
+public class TestConcurrentMyHashMap {
+
+    @Test
+    public void randomAgainstHashMapTest() {
+        Random r = new Random(61);
+        ConcurrentMyHashMap<Integer, Integer> b = new ConcurrentMyHashMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(5000);
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), b.remove(key));
+            } else {
+                expected.put(key, i);
+                b.put(key, i);
+            }
+            assertEquals(expected.size(), b.size());
+        }
+        for (int key = 0; key < 5000; key++) {
+            assertEquals(expected.get(key), b.get(key));
+        }
+        assertEquals(expected.keySet(), b.keySet());
+    }
+
+    /** Writers on disjoint keys race through many resizes while a reader looks on. */
+    @Test
+    public void concurrentPutRemoveTest() throws InterruptedException {
+        int threads = 4;
+        int perThread = 50000;
+        ConcurrentMyHashMap<Integer, Integer> b = new ConcurrentMyHashMap<>(2);
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+
+        Thread[] writers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int key = i * threads + id;
+                    b.put(key, -key);
+                    if (b.get(key) != -key) {
+                        failed.set(true);
+                    }
+                }
+                // Take out the odd keys again.
+                for (int i = 1; i < perThread; i += 2) {
+                    int key = i * threads + id;
+                    if (b.remove(key) == null) {
+                        failed.set(true);
+                    }
+                }
+            });
+        }
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                for (int key = 0; key < 1000; key++) {
+                    Integer v = b.get(key);
+                    if (v != null && v != -key) {
+                        failed.set(true);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertFalse(failed.get());
+        assertEquals(threads * perThread / 2, b.size());
+        for (int key = 0; key < threads * perThread; key++) {
+            Integer v = b.get(key);
+            if ((key / threads) % 2 == 0) {
+                assertEquals(-key, v.intValue());
+            } else {
+                assertNull(v);
+            }
+        }
+        assertEquals(threads * perThread / 2, b.keySet().size());
+    }
+}
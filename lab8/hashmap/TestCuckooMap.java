@@ -0,0 +1,77 @@
+package hashmap;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of the cuckoo hash map. */
+public class TestCuckooMap {
+
+    /** Fill a fixed table to its load limit, forcing long eviction walks and stashing. */
+    @Test
+    public void highLoadTest() {
+        CuckooMap<Integer, Integer> b = new CuckooMap<>(1 << 16);
+        Random r = new Random(61);
+        Map<Integer, Integer> expected = new HashMap<>();
+        while (expected.size() < (1 << 16) * 9 / 10) {
+            int key = r.nextInt();
+            expected.put(key, -key);
+            b.put(key, -key);
+        }
+        assertEquals(expected.size(), b.size());
+        for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+            assertEquals(e.getValue(), b.get(e.getKey()));
+        }
+        assertTrue(b.stashSize() <= 4);
+    }
+
+    /** Keys with one hash code overflow the stash instead of failing. */
+    @Test
+    public void collidingKeysTest() {
+        String[] keys = speed.StringUtils.collidingStrings(1000);
+        CuckooMap<String, Integer> b = new CuckooMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            b.put(keys[i], i);
+        }
+        b.put("unrelated", -1);
+        assertEquals(1001, b.size());
+        assertTrue(b.stashSize() > 4);
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i, b.get(keys[i]).intValue());
+        }
+        for (int i = 0; i < 100; i++) {
+            assertFalse(b.containsKey("absent" + i));
+            assertNull(b.get("absent" + i));
+        }
+        for (int i = 0; i < keys.length; i += 2) {
+            assertEquals(i, b.remove(keys[i]).intValue());
+        }
+        assertEquals(501, b.size());
+        assertEquals(-1, b.get("unrelated").intValue());
+    }
+
+    @Test
+    public void randomAgainstHashMapTest() {
+        Random r = new Random(61);
+        CuckooMap<Integer, Integer> b = new CuckooMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(5000);
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), b.remove(key));
+            } else {
+                expected.put(key, i);
+                b.put(key, i);
+            }
+            assertEquals(expected.size(), b.size());
+        }
+        for (int key = 0; key < 5000; key++) {
+            assertEquals(expected.get(key), b.get(key));
+        }
+        assertEquals(expected.keySet(), b.keySet());
+    }
+}
@@ -0,0 +1,143 @@
+package hashmap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of the linked hash map and its use as an LRU cache. */
+public class TestLinkedMyHashMap {
+
+    private static <T> List<T> toList(Iterable<T> it) {
+        List<T> re = new ArrayList<>();
+        it.forEach(re::add);
+        return re;
+    }
+
+    @Test
+    public void insertionOrderTest() {
+        LinkedMyHashMap<String, Integer> b = new LinkedMyHashMap<>();
+        b.put("c", 3);
+        b.put("a", 1);
+        b.put("b", 2);
+        b.get("c");
+        b.put("a", 11);
+        assertEquals(Arrays.asList("c", "a", "b"), toList(b));
+        b.remove("a");
+        b.put("a", 1);
+        assertEquals(Arrays.asList("c", "b", "a"), toList(b.keySet()));
+        assertEquals("c", b.eldest().getKey());
+        b.clear();
+        assertEquals(0, b.size());
+        assertFalse(b.iterator().hasNext());
+        assertNull(b.eldest());
+    }
+
+    @Test
+    public void lruEvictionTest() {
+        LinkedMyHashMap<Integer, Integer> b = new LinkedMyHashMap<>(3);
+        b.put(1, 1);
+        b.put(2, 2);
+        b.put(3, 3);
+        assertEquals(1, b.get(1).intValue());
+        assertTrue(b.containsKey(2));
+        b.put(4, 4);
+        // 2 was least recently used; containsKey is not an access.
+        assertEquals(Arrays.asList(3, 1, 4), toList(b));
+        b.put(3, 33);
+        b.put(5, 5);
+        assertEquals(Arrays.asList(4, 3, 5), toList(b));
+        assertNull(b.get(1));
+        assertEquals(3, b.size());
+        assertEquals(1, b.hits());
+        assertEquals(1, b.misses());
+        assertEquals(2, b.evictions());
+        b.resetCounters();
+        assertEquals(0, b.hits());
+    }
+
+    @Test
+    public void viewsTest() {
+        LinkedMyHashMap<Integer, Integer> b = new LinkedMyHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            b.put(i, i);
+        }
+        Iterator<Integer> it = b.iterator();
+        while (it.hasNext()) {
+            if (it.next() % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(Arrays.asList(1, 3, 5, 7, 9), toList(b));
+        assertTrue(b.keySet().remove(3));
+        for (Map.Entry<Integer, Integer> e : b.entrySet()) {
+            e.setValue(-e.getValue());
+        }
+        assertEquals(-5, b.get(5).intValue());
+        assertEquals(4, b.entrySet().size());
+
+        LinkedMyHashMap<Integer, Integer> lru = new LinkedMyHashMap<>(10);
+        lru.put(1, 1);
+        lru.put(2, 2);
+        Iterator<Integer> it2 = lru.iterator();
+        it2.next();
+        lru.get(1);
+        try {
+            it2.next();
+            fail();
+        } catch (ConcurrentModificationException expected) {
+            // get reorders an access-ordered map.
+        }
+    }
+
+    /** A batch much larger than the capacity leaves the table at the size the capacity needs. */
+    @Test
+    public void putAllBoundedTest() {
+        LinkedMyHashMap<Integer, Integer> b = new LinkedMyHashMap<>(100);
+        Integer[] keys = new Integer[100000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        b.putAll(keys, keys);
+        assertEquals(100, b.size());
+        assertEquals(0, b.stats().resizeCount());
+        assertEquals(99999, b.get(99999).intValue());
+        assertNull(b.get(99899));
+        assertEquals(99900, b.eldest().getKey().intValue());
+    }
+
+    @Test
+    public void randomAgainstLinkedHashMapTest() {
+        final int capacity = 100;
+        Map<Integer, Integer> expected = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > capacity;
+            }
+        };
+        LinkedMyHashMap<Integer, Integer> b = new LinkedMyHashMap<>(capacity);
+        Random r = new Random(61);
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(300);
+            int op = r.nextInt(4);
+            if (op == 0) {
+                assertEquals(expected.remove(key), b.remove(key));
+            } else if (op == 1) {
+                assertEquals(expected.get(key), b.get(key));
+            } else {
+                expected.put(key, i);
+                b.put(key, i);
+            }
+            assertEquals(expected.size(), b.size());
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), toList(b));
+    }
+}
@@ -0,0 +1,83 @@
+package hashmap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sanity tests every general-purpose Map61B implementation has to pass. Each
+ * implementation's own test class covers only what sets it apart.
+ */
+@RunWith(Parameterized.class)
+public class TestMap61B {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> implementations() {
+        return Arrays.asList(new Object[][] {
+            {"MyHashMap", (Supplier<Map61B<String, Integer>>) MyHashMap::new},
+            {"MyHashMapIncremental", (Supplier<Map61B<String, Integer>>) MyHashMapIncremental::new},
+            {"MyHashMapAdaptiveBuckets", (Supplier<Map61B<String, Integer>>) MyHashMapAdaptiveBuckets::new},
+            {"LinkedMyHashMap", (Supplier<Map61B<String, Integer>>) LinkedMyHashMap::new},
+            {"MyHashMapRobinHood", (Supplier<Map61B<String, Integer>>) MyHashMapRobinHood::new},
+            {"SwissMap", (Supplier<Map61B<String, Integer>>) SwissMap::new},
+            {"CuckooMap", (Supplier<Map61B<String, Integer>>) CuckooMap::new},
+            {"ConcurrentMyHashMap", (Supplier<Map61B<String, Integer>>) ConcurrentMyHashMap::new},
+            {"SnapshotMap", (Supplier<Map61B<String, Integer>>) SnapshotMap::new},
+            {"OffHeapStringIntMap", (Supplier<Map61B<String, Integer>>) OffHeapStringIntMap::new},
+        });
+    }
+
+    @Parameterized.Parameter(0)
+    public String name;
+
+    @Parameterized.Parameter(1)
+    public Supplier<Map61B<String, Integer>> factory;
+
+    private Map61B<String, Integer> b;
+
+    @Before
+    public void create() {
+        b = factory.get();
+    }
+
+    @After
+    public void close() throws Exception {
+        if (b instanceof AutoCloseable) {
+            ((AutoCloseable) b).close();
+        }
+    }
+
+    @Test
+    public void basicTest() {
+        for (int i = 0; i < 455; i++) {
+            b.put("hi" + i, i);
+        }
+        assertEquals(455, b.size());
+        for (int i = 0; i < 455; i++) {
+            assertTrue(b.containsKey("hi" + i));
+            assertEquals(i, b.get("hi" + i).intValue());
+        }
+        assertFalse(b.containsKey("hi455"));
+        assertNull(b.get("hi455"));
+        b.put("hi0", 42);
+        assertEquals(455, b.size());
+        assertEquals(42, b.get("hi0").intValue());
+        assertEquals(455, b.keySet().size());
+        assertNull(b.remove("hi1", 2));
+        assertEquals(1, b.remove("hi1", 1).intValue());
+        assertEquals(2, b.remove("hi2").intValue());
+        assertNull(b.remove("hi2"));
+        assertEquals(453, b.size());
+        b.clear();
+        assertEquals(0, b.size());
+        assertNull(b.get("hi3"));
+    }
+}
@@ -0,0 +1,155 @@
+package hashmap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of the memory-mapped map images. */
+public class TestMappedMap {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path image(Map61B<String, Integer> map) throws IOException {
+        Path file = folder.getRoot().toPath().resolve("map.img");
+        MappedMap.write(map, file, MappedMap.Codec.STRING, MappedMap.Codec.INTEGER);
+        return file;
+    }
+
+    @Test
+    public void roundTripTest() throws IOException {
+        MyHashMap<String, Integer> source = new MyHashMap<>();
+        for (int i = 0; i < 455; i++) {
+            source.put("hi" + i, i);
+        }
+        try (MappedMap<String, Integer> b = new MappedMap<>(image(source),
+                MappedMap.Codec.STRING, MappedMap.Codec.INTEGER)) {
+            assertEquals(source.size(), b.size());
+            assertEquals(source.keySet(), b.keySet());
+            for (String key : source) {
+                assertEquals(source.get(key), b.get(key));
+            }
+            assertNull(b.get("hi455"));
+        }
+    }
+
+    @Test
+    public void emptyImageTest() throws IOException {
+        try (MappedMap<String, Integer> b = new MappedMap<>(image(new MyHashMap<>()),
+                MappedMap.Codec.STRING, MappedMap.Codec.INTEGER)) {
+            assertEquals(0, b.size());
+            assertNull(b.get("a"));
+            assertTrue(b.keySet().isEmpty());
+            b.put("a", 1);
+            assertEquals(1, b.get("a").intValue());
+        }
+    }
+
+    /** Changes after opening sit in front of the image, and save() merges them. */
+    @Test
+    public void changesAndSaveTest() throws IOException {
+        MyHashMap<String, Integer> source = new MyHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            source.put("k" + i, i);
+        }
+        Path file = image(source);
+        try (MappedMap<String, Integer> b = new MappedMap<>(file, MappedMap.Codec.STRING, MappedMap.Codec.INTEGER)) {
+            b.put("k0", -1);
+            b.put("new", 7);
+            assertEquals(1, b.remove("k1").intValue());
+            assertNull(b.remove("k1"));
+            assertNull(b.remove("k2", 3));
+            assertEquals(2, b.remove("k2", 2).intValue());
+            assertEquals(7, b.remove("new").intValue());
+            b.put("k2", 22);
+            b.put("new", 8);
+            assertEquals(100, b.size());
+            assertFalse(b.containsKey("k1"));
+            assertEquals(-1, b.get("k0").intValue());
+            assertEquals(22, b.get("k2").intValue());
+            assertEquals(100, b.keySet().size());
+            assertFalse(b.keySet().contains("k1"));
+            b.save(file);
+            assertEquals(-1, b.get("k0").intValue());
+        }
+        try (MappedMap<String, Integer> b = new MappedMap<>(file, MappedMap.Codec.STRING, MappedMap.Codec.INTEGER)) {
+            assertEquals(100, b.size());
+            assertNull(b.get("k1"));
+            assertEquals(-1, b.get("k0").intValue());
+            assertEquals(22, b.get("k2").intValue());
+            assertEquals(8, b.get("new").intValue());
+            assertEquals(99, b.get("k99").intValue());
+            b.clear();
+            assertEquals(0, b.size());
+            assertNull(b.get("k99"));
+            assertTrue(b.keySet().isEmpty());
+        }
+    }
+
+    /** With 4 KB chunks, records of about a KB must be padded off the chunk boundaries. */
+    @Test
+    public void smallChunksTest() throws IOException {
+        Random r = new Random(61);
+        Map<String, Integer> expected = new HashMap<>();
+        MyHashMap<String, Integer> source = new MyHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = r.nextInt(1500);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('a' + r.nextInt(26)));
+            }
+            String key = sb.toString() + i;
+            source.put(key, i);
+            expected.put(key, i);
+        }
+        Path file = folder.getRoot().toPath().resolve("chunks.img");
+        MappedMap.write(source, file, MappedMap.Codec.STRING, MappedMap.Codec.INTEGER, 12);
+        try (MappedMap<String, Integer> b = new MappedMap<>(file, MappedMap.Codec.STRING, MappedMap.Codec.INTEGER)) {
+            assertEquals(expected.size(), b.size());
+            for (Map.Entry<String, Integer> e : expected.entrySet()) {
+                assertEquals(e.getValue(), b.get(e.getKey()));
+            }
+            assertEquals(expected.keySet(), b.keySet());
+        }
+    }
+
+    @Test
+    public void longValuesTest() throws IOException {
+        MyHashMap<Long, Long> source = new MyHashMap<>();
+        for (long i = 0; i < 1000; i++) {
+            source.put(i << 32, -i);
+        }
+        Path file = folder.getRoot().toPath().resolve("longs.img");
+        MappedMap.write(source, file, MappedMap.Codec.LONG, MappedMap.Codec.LONG);
+        try (MappedMap<Long, Long> b = new MappedMap<>(file, MappedMap.Codec.LONG, MappedMap.Codec.LONG)) {
+            for (long i = 0; i < 1000; i++) {
+                assertEquals(-i, b.get(i << 32).longValue());
+            }
+            assertNull(b.get(1L));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void notAnImageTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("junk");
+        Files.write(file, "not a map".getBytes());
+        new MappedMap<>(file, MappedMap.Codec.STRING, MappedMap.Codec.INTEGER);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedTest() throws IOException {
+        MappedMap<String, Integer> b = new MappedMap<>(image(new MyHashMap<>()),
+                MappedMap.Codec.STRING, MappedMap.Codec.INTEGER);
+        b.close();
+        b.get("a");
+    }
+}
@@ -0,0 +1,206 @@
+package hashmap;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/** Tests of the map whose buckets switch between lists and trees. */
+public class TestMyHashMapAdaptiveBuckets {
+
+    /** Keys of one class that all hash alike, ordered by their int value. */
+    private static class Colliding implements Comparable<Colliding> {
+        final int id;
+
+        Colliding(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Colliding && ((Colliding) o).id == id;
+        }
+
+        @Override
+        public int compareTo(Colliding o) {
+            return Integer.compare(id, o.id);
+        }
+    }
+
+    /**
+     * Colliding keys whose compareTo looks at the name only, while equals also
+     * checks the id, so different keys can compare equal.
+     */
+    private static class Named implements Comparable<Named> {
+        final String name;
+        final int id;
+
+        Named(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Named && ((Named) o).name.equals(name) && ((Named) o).id == id;
+        }
+
+        @Override
+        public int compareTo(Named o) {
+            return name.compareTo(o.name);
+        }
+    }
+
+    /** Like Colliding, but not Comparable, so its buckets stay lists. */
+    private static class Unordered {
+        final int id;
+
+        Unordered(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Unordered && ((Unordered) o).id == id;
+        }
+    }
+
+    @Test
+    public void collidingStringsTest() {
+        String[] keys = speed.StringUtils.collidingStrings(1000);
+        Set<String> distinct = new HashSet<>();
+        for (String key : keys) {
+            assertEquals(keys[0].hashCode(), key.hashCode());
+            distinct.add(key);
+        }
+        assertEquals(1000, distinct.size());
+
+        MyHashMap<String, Integer> b = new MyHashMapAdaptiveBuckets<>();
+        for (int i = 0; i < keys.length; i++) {
+            b.put(keys[i], i);
+        }
+        assertEquals(1000, b.size());
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i, b.get(keys[i]).intValue());
+        }
+        assertNull(b.get(keys[0] + "Aa"));
+        for (int i = 0; i < keys.length; i += 2) {
+            assertEquals(i, b.remove(keys[i]).intValue());
+        }
+        assertEquals(500, b.size());
+        assertEquals(500, b.keySet().size());
+    }
+
+    /** A bucket treeifies, shrinks back to a list, and grows again. */
+    @Test
+    public void treeifyAndUntreeifyTest() {
+        MyHashMap<Colliding, Integer> b = new MyHashMapAdaptiveBuckets<>();
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 20; i++) {
+                b.put(new Colliding(i), i);
+            }
+            for (int i = 0; i < 20; i++) {
+                assertEquals(i, b.get(new Colliding(i)).intValue());
+            }
+            for (int i = 0; i < 18; i++) {
+                assertEquals(i, b.remove(new Colliding(i)).intValue());
+            }
+            assertEquals(2, b.size());
+            assertEquals(18, b.get(new Colliding(18)).intValue());
+            assertEquals(19, b.remove(new Colliding(19), 19).intValue());
+            assertEquals(18, b.remove(new Colliding(18)).intValue());
+            assertEquals(0, b.size());
+        }
+    }
+
+    /** Different keys that compare equal are all kept, before and after treeifying. */
+    @Test
+    public void inconsistentCompareToTest() {
+        MyHashMap<Named, Integer> b = new MyHashMapAdaptiveBuckets<>();
+        for (int i = 0; i < 20; i++) {
+            b.put(new Named("same", i), i);
+        }
+        assertEquals(20, b.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, b.get(new Named("same", i)).intValue());
+        }
+
+        // Treeify on distinct names first, then add a key comparing equal to a resident.
+        MyHashMap<Named, Integer> c = new MyHashMapAdaptiveBuckets<>();
+        for (int i = 0; i < 20; i++) {
+            c.put(new Named("n" + i, 0), i);
+        }
+        for (int i = 0; i < 20; i++) {
+            c.put(new Named("n" + i, 1), -i);
+        }
+        assertEquals(40, c.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, c.get(new Named("n" + i, 0)).intValue());
+            assertEquals(-i, c.get(new Named("n" + i, 1)).intValue());
+        }
+        assertNull(c.get(new Named("n0", 2)));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, c.remove(new Named("n" + i, 0)).intValue());
+        }
+        assertEquals(20, c.size());
+        assertEquals(-5, c.get(new Named("n5", 1)).intValue());
+    }
+
+    /** Keys of several classes in one bucket are kept in a list, and still found. */
+    @Test
+    public void mixedKeysTest() {
+        MyHashMap<Object, Integer> b = new MyHashMapAdaptiveBuckets<>();
+        for (int i = 0; i < 20; i++) {
+            b.put(new Colliding(i), i);
+        }
+        for (int i = 0; i < 20; i++) {
+            b.put(new Unordered(i), -i);
+        }
+        assertEquals(40, b.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, b.get(new Colliding(i)).intValue());
+            assertEquals(-i, b.get(new Unordered(i)).intValue());
+        }
+    }
+
+    @Test
+    public void randomAgainstHashMapTest() {
+        Random r = new Random(61);
+        MyHashMap<Integer, Integer> b = new MyHashMapAdaptiveBuckets<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(5000) * 1024;
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), b.remove(key));
+            } else {
+                expected.put(key, i);
+                b.put(key, i);
+            }
+            assertEquals(expected.size(), b.size());
+        }
+        for (int key = 0; key < 5000 * 1024; key += 1024) {
+            assertEquals(expected.get(key), b.get(key));
+        }
+        assertEquals(expected.keySet(), b.keySet());
+    }
+}
@@ -3,6 +3,14 @@ package hashmap;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
 /** Tests of optional parts of lab 8. */
 public class TestMyHashMapExtra {
 
@@ -49,4 +57,144 @@ public class TestMyHashMapExtra {
         assertTrue(q.containsKey("b"));
         assertTrue(q.containsKey("f"));
     }
+
+    /** The views follow the map, in every bucket kind and mid incremental resize. */
+    @Test
+    public void testLiveViews() {
+        MyHashMap<Integer, Integer>[] maps = new MyHashMap[] {new MyHashMap<>(),
+            new MyHashMapHSBuckets<>(), new MyHashMapPQBuckets<>(), new MyHashMapTSBuckets<>(),
+            new MyHashMapAdaptiveBuckets<>(), new MyHashMapIncremental<>()};
+        for (MyHashMap<Integer, Integer> b : maps) {
+            Set<Integer> keys = b.keySet();
+            Set<Map.Entry<Integer, Integer>> entries = b.entrySet();
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 1000; i++) {
+                b.put(i * 16, i);
+                expected.put(i * 16, i);
+            }
+            assertEquals(expected.keySet(), keys);
+            assertEquals(expected.entrySet(), new HashSet<>(entries));
+            assertTrue(entries.contains(Map.entry(32, 2)));
+            assertTrue(keys.remove(32));
+            assertFalse(b.containsKey(32));
+            expected.remove(32);
+            for (Map.Entry<Integer, Integer> e : entries) {
+                e.setValue(-e.getValue());
+            }
+            assertEquals(-3, b.get(48).intValue());
+
+            // Remove every other key through the iterator.
+            Iterator<Integer> it = keys.iterator();
+            while (it.hasNext()) {
+                int k = it.next();
+                if (k % 32 == 0) {
+                    it.remove();
+                    expected.remove(k);
+                }
+            }
+            assertEquals(expected.size(), b.size());
+            assertEquals(expected.keySet(), keys);
+            assertEquals(expected.keySet().stream().mapToLong(k -> k).sum(),
+                    keys.parallelStream().mapToLong(k -> k).sum());
+            assertEquals(expected.size(), entries.parallelStream().count());
+        }
+    }
+
+    @Test
+    public void testIteratorFailFast() {
+        MyHashMap<String, Integer> b = new MyHashMap<>();
+        b.put("a", 1);
+        b.put("b", 2);
+        Iterator<String> it = b.iterator();
+        it.next();
+        b.put("a", 3); // not structural
+        it.next();
+        b.put("c", 4);
+        try {
+            it.hasNext();
+            fail();
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    /** Stats account for every bucket and entry, for each kind of table. */
+    @Test
+    public void testStats() {
+        for (MyHashMap<Integer, Integer> b : new MyHashMap[] {new MyHashMap<>(16), new MyHashMapHSBuckets<>(16),
+            new MyHashMapIncremental<>(16), new MyHashMapAdaptiveBuckets<>(16), new LinkedMyHashMap<>()}) {
+            for (int i = 0; i < 1000; i++) {
+                b.put(i, i);
+            }
+            MapStats stats = b.stats();
+            long entries = 0;
+            int[] histogram = stats.histogram();
+            for (int k = 0; k < histogram.length; k++) {
+                entries += (long) k * histogram[k];
+            }
+            assertEquals(1000, entries);
+            assertEquals(histogram.length - 1, stats.maxLength());
+            assertEquals(7, stats.resizeCount());
+            assertTrue(stats.meanLength() >= 1);
+            assertTrue(stats.bytesPerEntry() >= 24);
+        }
+        MyHashMapRobinHood<Integer, Integer> r = new MyHashMapRobinHood<>(16);
+        for (int i = 0; i < 1000; i++) {
+            r.put(i, i);
+        }
+        assertEquals(1000, Arrays.stream(r.stats().histogram()).sum());
+        assertEquals(7, r.stats().resizeCount());
+    }
+
+    /** Batches agree with single operations, across resizes and for every kind of table. */
+    @Test
+    public void testBatches() {
+        for (Map61B<Integer, Integer> b : new Map61B[] {new MyHashMap<>(16), new MyHashMapIncremental<>(16),
+            new MyHashMapAdaptiveBuckets<>(16), new LinkedMyHashMap<>(), new SwissMap<>()}) {
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int round = 0; round < 20; round++) {
+                Integer[] keys = new Integer[round * 50 + 1];
+                Integer[] values = new Integer[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = (i * 7919 + round) % 3000;
+                    values[i] = round * 10000 + i;
+                    expected.put(keys[i], values[i]);
+                }
+                b.putAll(keys, values);
+                assertEquals(expected.size(), b.size());
+
+                Integer[] probe = new Integer[500];
+                for (int i = 0; i < probe.length; i++) {
+                    probe[i] = (i * 31 + round) % 4000;
+                }
+                Integer[] out = new Integer[probe.length];
+                b.getAll(probe, out);
+                for (int i = 0; i < probe.length; i++) {
+                    assertEquals(expected.get(probe[i]), out[i]);
+                }
+            }
+            Integer[] gone = {0, 1, 2, 3999, 0};
+            int removed = 0;
+            for (int i = 0; i < 4; i++) {
+                removed += expected.remove(gone[i]) == null ? 0 : 1;
+            }
+            assertEquals(removed, b.removeAll(gone));
+            assertEquals(expected.size(), b.size());
+            assertNull(b.get(0));
+        }
+        try {
+            new MyHashMap<Integer, Integer>().getAll(new Integer[100], new Integer[99]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        MyHashMap<Integer, Integer> rejected = new MyHashMap<>(16);
+        try {
+            rejected.putAll(new Integer[100], new Integer[99]);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Rejected before the table grows for the batch.
+            assertEquals(0, rejected.stats().resizeCount());
+        }
+    }
 }
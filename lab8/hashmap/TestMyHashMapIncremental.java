@@ -0,0 +1,78 @@
+package hashmap;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of MyHashMap in incremental-resize mode. */
+public class TestMyHashMapIncremental {
+
+    /** Right after a resize most keys are still in the old table. */
+    @Test
+    public void midMigrationTest() {
+        MyHashMap<Integer, Integer> b = new MyHashMapIncremental<>(1024);
+        for (int i = 0; i <= 768; i++) {
+            b.put(i, i);
+        }
+        // The put of 768 started migrating 1024 buckets; only a few have moved.
+        assertEquals(769, b.size());
+        assertEquals(769, b.keySet().size());
+        assertNull(b.remove(1000));
+        assertEquals(700, b.remove(700).intValue());
+        assertNull(b.remove(5, 6));
+        assertEquals(5, b.remove(5, 5).intValue());
+        b.put(3, 33);
+        for (int i = 0; i <= 768; i++) {
+            if (i == 700 || i == 5) {
+                assertNull(b.get(i));
+            } else {
+                assertEquals(i == 3 ? 33 : i, b.get(i).intValue());
+            }
+        }
+        assertEquals(767, b.size());
+    }
+
+    /** Overwrites don't migrate, so they can be made while iterating. */
+    @Test
+    public void overwriteDuringIterationTest() {
+        MyHashMap<Integer, Integer> b = new MyHashMapIncremental<>(1024);
+        for (int i = 0; i <= 768; i++) {
+            b.put(i, i);
+        }
+        int seen = 0;
+        for (int key : b) {
+            b.put(key, -key);
+            assertEquals(-key, b.get(key).intValue());
+            ++seen;
+        }
+        assertEquals(769, seen);
+        for (int i = 0; i <= 768; i++) {
+            assertEquals(-i, b.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void randomAgainstHashMapTest() {
+        Random r = new Random(61);
+        MyHashMap<Integer, Integer> b = new MyHashMapIncremental<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(20000);
+            if (r.nextInt(4) == 0) {
+                assertEquals(expected.remove(key), b.remove(key));
+            } else {
+                expected.put(key, i);
+                b.put(key, i);
+            }
+            assertEquals(expected.size(), b.size());
+        }
+        for (int key = 0; key < 20000; key++) {
+            assertEquals(expected.get(key), b.get(key));
+        }
+        assertEquals(expected.keySet(), b.keySet());
+    }
+}
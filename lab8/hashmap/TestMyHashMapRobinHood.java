@@ -0,0 +1,66 @@
+package hashmap;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of the Robin Hood hash map. */
+public class TestMyHashMapRobinHood {
+
+    /** Keys 0, 64, 128... share a home slot, so removal has to shift the cluster back. */
+    @Test
+    public void removeFromClusterTest() {
+        MyHashMapRobinHood<Integer, String> b = new MyHashMapRobinHood<>(64);
+        for (int i = 0; i < 6; i++) {
+            b.put(i * 64, "v" + i);
+        }
+        b.put(1, "one");
+        assertEquals("v2", b.remove(128));
+        assertNull(b.remove(128));
+        assertNull(b.remove(0, "wrong"));
+        assertEquals("v0", b.remove(0, "v0"));
+        assertEquals(5, b.size());
+        for (int i = 3; i < 6; i++) {
+            assertEquals("v" + i, b.get(i * 64));
+        }
+        assertEquals("v1", b.get(64));
+        assertEquals("one", b.get(1));
+    }
+
+    @Test
+    public void randomAgainstHashMapTest() {
+        Random r = new Random(61);
+        MyHashMapRobinHood<Integer, Integer> b = new MyHashMapRobinHood<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(5000);
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), b.remove(key));
+            } else {
+                expected.put(key, i);
+                b.put(key, i);
+            }
+            assertEquals(expected.size(), b.size());
+        }
+        for (int key = 0; key < 5000; key++) {
+            assertEquals(expected.get(key), b.get(key));
+        }
+        assertEquals(expected.keySet(), b.keySet());
+    }
+
+    @Test
+    public void probeLengthTest() {
+        MyHashMapRobinHood<Integer, Integer> b = new MyHashMapRobinHood<>(64);
+        assertEquals(0, b.maxProbeLength());
+        for (int i = 0; i < 4; i++) {
+            b.put(i * 64, i);
+        }
+        assertEquals(3, b.maxProbeLength());
+        assertEquals(1.5, b.averageProbeLength(), 1e-9);
+        assertArrayEquals(new int[] {1, 1, 1, 1}, b.probeLengthHistogram());
+    }
+}
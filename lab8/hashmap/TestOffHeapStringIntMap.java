@@ -0,0 +1,76 @@
+package hashmap;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of the off-heap String to int map. */
+public class TestOffHeapStringIntMap {
+
+    /** The unboxed accessors agree with the Map61B ones. */
+    @Test
+    public void primitiveAccessTest() {
+        try (OffHeapStringIntMap b = new OffHeapStringIntMap()) {
+            b.putInt("a", 1);
+            b.put("b", 2);
+            assertEquals(1, b.getOrDefault("a", -1));
+            assertEquals(2, b.getOrDefault("b", -1));
+            assertEquals(-1, b.getOrDefault("c", -1));
+            b.putInt("a", 42);
+            assertEquals(2, b.size());
+            assertEquals(42, b.get("a").intValue());
+        }
+    }
+
+    /** Keys are compared as UTF-8 bytes, so any String must round-trip. */
+    @Test
+    public void unicodeKeysTest() {
+        try (OffHeapStringIntMap b = new OffHeapStringIntMap()) {
+            String[] keys = {"", "a", "\u00e9", "\u65e5\u672c\u8a9e", "\ud83d\ude00", "Aa", "BB"};
+            for (int i = 0; i < keys.length; i++) {
+                b.put(keys[i], i);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                assertEquals(i, b.get(keys[i]).intValue());
+            }
+            assertEquals(Map.of("", 0, "a", 1, "\u00e9", 2, "\u65e5\u672c\u8a9e", 3, "\ud83d\ude00", 4,
+                    "Aa", 5, "BB", 6).keySet(), b.keySet());
+        }
+    }
+
+    /** Enough churn to resize several times and compact the key arena. */
+    @Test
+    public void randomAgainstHashMapTest() {
+        Random r = new Random(61);
+        try (OffHeapStringIntMap b = new OffHeapStringIntMap()) {
+            Map<String, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 300000; i++) {
+                String key = "key" + r.nextInt(20000);
+                if (r.nextInt(2) == 0) {
+                    assertEquals(expected.remove(key), b.remove(key));
+                } else {
+                    expected.put(key, i);
+                    b.put(key, i);
+                }
+                assertEquals(expected.size(), b.size());
+            }
+            for (int k = 0; k < 20000; k++) {
+                assertEquals(expected.get("key" + k), b.get("key" + k));
+            }
+            assertEquals(expected.keySet(), b.keySet());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedTest() {
+        OffHeapStringIntMap b = new OffHeapStringIntMap();
+        b.put("a", 1);
+        b.close();
+        b.close();
+        b.get("a");
+    }
+}
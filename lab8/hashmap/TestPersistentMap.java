@@ -0,0 +1,134 @@
+package hashmap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of the persistent hash trie and SnapshotMap. */
+public class TestPersistentMap {
+
+    /** Updates that change nothing return the same version; null values are kept. */
+    @Test
+    public void noOpUpdatesTest() {
+        PersistentMap<String, Integer> m = PersistentMap.empty();
+        for (int i = 0; i < 455; i++) {
+            m = m.put("hi" + i, i);
+        }
+        assertEquals(455, m.size());
+        assertEquals(455, m.keySet().size());
+        assertSame(m, m.put("hi0", m.get("hi0")));
+        assertSame(m, m.remove("absent"));
+        m = m.put("nothing", null);
+        assertTrue(m.containsKey("nothing"));
+        assertNull(m.get("nothing"));
+        assertEquals(456, m.size());
+    }
+
+    /** Old versions are unchanged by puts and removes on newer ones. */
+    @Test
+    public void versionsTest() {
+        Random r = new Random(61);
+        List<PersistentMap<Integer, Integer>> versions = new ArrayList<>();
+        List<Map<Integer, Integer>> expected = new ArrayList<>();
+        PersistentMap<Integer, Integer> m = PersistentMap.empty();
+        Map<Integer, Integer> e = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = r.nextInt(2000);
+            if (r.nextInt(3) == 0) {
+                m = m.remove(key);
+                e.remove(key);
+            } else {
+                m = m.put(key, i);
+                e.put(key, i);
+            }
+            if (i % 1000 == 0) {
+                versions.add(m);
+                expected.add(new HashMap<>(e));
+            }
+        }
+        for (int v = 0; v < versions.size(); v++) {
+            assertEquals(expected.get(v).size(), versions.get(v).size());
+            assertEquals(expected.get(v).keySet(), versions.get(v).keySet());
+            for (int key = 0; key < 2000; key++) {
+                assertEquals(expected.get(v).get(key), versions.get(v).get(key));
+            }
+        }
+    }
+
+    /** Keys with equal hash codes share a collision node. */
+    @Test
+    public void collidingKeysTest() {
+        String[] keys = speed.StringUtils.collidingStrings(32);
+        PersistentMap<String, Integer> m = PersistentMap.empty();
+        for (int i = 0; i < keys.length; i++) {
+            m = m.put(keys[i], i).put("other" + i, -i);
+        }
+        PersistentMap<String, Integer> all = m;
+        for (int i = 0; i < keys.length; i += 2) {
+            m = m.remove(keys[i]);
+        }
+        assertEquals(48, m.size());
+        assertEquals(64, all.size());
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), m.get(keys[i]));
+            assertEquals(i, all.get(keys[i]).intValue());
+            assertEquals(-i, m.get("other" + i).intValue());
+        }
+        assertEquals(48, m.keySet().size());
+    }
+
+    @Test
+    public void builderTest() {
+        PersistentMap<Integer, Integer> base = PersistentMap.empty();
+        base = base.put(1, 1).put(2, 2);
+        PersistentMap.Builder<Integer, Integer> b = base.builder();
+        for (int i = 0; i < 10000; i++) {
+            b.put(i, i * i);
+        }
+        b.remove(5).remove(-1);
+        assertEquals(9999, b.size());
+        PersistentMap<Integer, Integer> built = b.build();
+        assertEquals(9999, built.size());
+        assertNull(built.get(5));
+        assertEquals(49, built.get(7).intValue());
+        // The base map is untouched, and a new builder does not edit the built one.
+        assertEquals(2, base.size());
+        assertEquals(2, base.get(2).intValue());
+        PersistentMap<Integer, Integer> next = built.builder().put(7, 0).build();
+        assertEquals(49, built.get(7).intValue());
+        assertEquals(0, next.get(7).intValue());
+        try {
+            b.put(1, 1);
+            fail();
+        } catch (IllegalStateException expected) {
+            // A built builder is retired.
+        }
+    }
+
+    @Test
+    public void snapshotMapTest() {
+        SnapshotMap<String, Integer> b = new SnapshotMap<>();
+        for (int i = 0; i < 100; i++) {
+            b.put("hi" + i, i);
+        }
+        PersistentMap<String, Integer> snapshot = b.snapshot();
+        assertNull(b.remove("hi1", 2));
+        assertEquals(1, b.remove("hi1", 1).intValue());
+        assertEquals(2, b.remove("hi2").intValue());
+        assertNull(b.remove("hi2"));
+        b.put("hi3", 33);
+        assertEquals(98, b.size());
+        assertEquals(100, snapshot.size());
+        assertEquals(3, snapshot.get("hi3").intValue());
+        assertEquals(33, b.get("hi3").intValue());
+        b.clear();
+        assertEquals(0, b.size());
+        assertEquals(100, snapshot.keySet().size());
+    }
+}
@@ -0,0 +1,96 @@
+package hashmap;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of IntIntMap, LongObjectMap and ObjectIntMap against java.util.HashMap. */
+public class TestPrimitiveMaps {
+
+    @Test
+    public void intIntZeroKeyTest() {
+        IntIntMap m = new IntIntMap(16, 0.75, -1);
+        assertEquals(-1, m.get(0));
+        assertFalse(m.containsKey(0));
+        m.put(0, 5);
+        m.put(16, 6);
+        assertTrue(m.containsKey(0));
+        assertEquals(5, m.get(0));
+        assertEquals(2, m.size());
+        assertEquals(5, m.remove(0));
+        assertEquals(-1, m.remove(0));
+        assertEquals(6, m.get(16));
+        assertEquals(1, m.size());
+        assertEquals(7, m.getOrDefault(3, 7));
+    }
+
+    @Test
+    public void intIntRandomTest() {
+        Random r = new Random(61);
+        IntIntMap m = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200000; i++) {
+            int key = r.nextInt(4000) - 2000;
+            if (r.nextInt(3) == 0) {
+                Integer old = expected.remove(key);
+                assertEquals(old == null ? 0 : old, m.remove(key));
+            } else {
+                expected.put(key, i);
+                m.put(key, i);
+            }
+            assertEquals(expected.size(), m.size());
+        }
+        for (int key = -2000; key < 2000; key++) {
+            assertEquals(expected.containsKey(key), m.containsKey(key));
+            assertEquals(expected.getOrDefault(key, 0).intValue(), m.get(key));
+        }
+        assertEquals(expected.size(), m.keys().length);
+    }
+
+    @Test
+    public void longObjectRandomTest() {
+        Random r = new Random(61);
+        LongObjectMap<String> m = new LongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 200000; i++) {
+            long key = (r.nextInt(4000) - 2000) * 1000000007L;
+            if (r.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), m.remove(key));
+            } else {
+                expected.put(key, "v" + i);
+                m.put(key, "v" + i);
+            }
+            assertEquals(expected.size(), m.size());
+        }
+        for (long key : m.keys()) {
+            assertEquals(expected.get(key), m.get(key));
+        }
+        assertEquals(expected.size(), m.keys().length);
+    }
+
+    @Test
+    public void objectIntRandomTest() {
+        Random r = new Random(61);
+        ObjectIntMap<String> m = new ObjectIntMap<>();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200000; i++) {
+            String key = "k" + r.nextInt(4000);
+            if (r.nextInt(3) == 0) {
+                Integer old = expected.remove(key);
+                assertEquals(old == null ? 0 : old, m.remove(key));
+            } else {
+                expected.put(key, i);
+                m.put(key, i);
+            }
+            assertEquals(expected.size(), m.size());
+        }
+        assertEquals(expected.keySet(), m.keySet());
+        for (String key : expected.keySet()) {
+            assertEquals(expected.get(key).intValue(), m.get(key));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package hashmap;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** Tests of the SwissTable-style map. */
+public class TestSwissMap {
+
+    /** Equal hash codes share tag and first group, so probing has to move on. */
+    @Test
+    public void collidingKeysTest() {
+        String[] keys = speed.StringUtils.collidingStrings(100);
+        SwissMap<String, Integer> b = new SwissMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            b.put(keys[i], i);
+        }
+        for (int i = 0; i < keys.length; i += 3) {
+            assertEquals(i, b.remove(keys[i]).intValue());
+        }
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i % 3 == 0 ? null : Integer.valueOf(i), b.get(keys[i]));
+        }
+    }
+
+    /** Heavy churn on few keys: tombstones must be reclaimed rather than grow the table. */
+    @Test
+    public void randomAgainstHashMapTest() {
+        Random r = new Random(61);
+        SwissMap<Integer, Integer> b = new SwissMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200000; i++) {
+            int key = r.nextInt(i < 100000 ? 5000 : 100000);
+            if (r.nextInt(2) == 0) {
+                assertEquals(expected.remove(key), b.remove(key));
+            } else {
+                expected.put(key, i);
+                b.put(key, i);
+            }
+            assertEquals(expected.size(), b.size());
+        }
+        for (int key = 0; key < 100000; key++) {
+            assertEquals(expected.get(key), b.get(key));
+        }
+        assertEquals(expected.keySet(), b.keySet());
+    }
+}
@@ -0,0 +1,114 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.Random;
+import java.util.Scanner;
+
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+
+/** Puts N random Strings of length L into MyHashMap in batches, then gets
+ *  them back in batches, for batch sizes from 1 to 4096, and reports the
+ *  throughput of putAll and getAll against the same number of single puts
+ *  and gets. The gets look the keys up in a shuffled order, so that a batch
+ *  touches buckets all over the table.
+ *  @author Suiren
+ */
+public class BatchSpeedTest {
+    private static final int[] BATCH_SIZES = {1, 4, 16, 64, 256, 1024, 4096};
+
+    /** Something to consume results with, so the JIT can't drop the gets. */
+    private static long sink;
+
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program puts N random Strings of length L into\n"
+                + " MyHashMap with putAll and gets them with getAll, in batches\n"
+                + " of 1 to 4096, and reports M ops/sec against single puts and gets.\n");
+        System.out.print("What would you like L to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # strings to insert into each map: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+            StringUtils.setSeed(61);
+            String[] keys = new String[N];
+            Integer[] values = new Integer[N];
+            for (int i = 0; i < N; i++) {
+                keys[i] = StringUtils.randomString(L);
+                values[i] = i;
+            }
+            String[] shuffled = keys.clone();
+            Random r = new Random(61);
+            for (int i = N - 1; i > 0; i--) {
+                int j = r.nextInt(i + 1);
+                String t = shuffled[i];
+                shuffled[i] = shuffled[j];
+                shuffled[j] = t;
+            }
+
+            time("single", 0, keys, values, shuffled);
+            for (int batch : BATCH_SIZES) {
+                time("batch " + batch, batch, keys, values, shuffled);
+            }
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    /** Times putting KEYS and getting SHUFFLED in batches of BATCH, or one by one for 0. */
+    private static void time(String label, int batch, String[] keys, Integer[] values, String[] shuffled) {
+        int N = keys.length;
+        Map61B<String, Integer> map = new MyHashMap<>();
+        Stopwatch sw = new Stopwatch();
+        if (batch == 0) {
+            for (int i = 0; i < N; i++) {
+                map.put(keys[i], values[i]);
+            }
+        } else {
+            String[] keyBatch = new String[batch];
+            Integer[] valueBatch = new Integer[batch];
+            for (int i = 0; i < N; i += batch) {
+                int n = Math.min(batch, N - i);
+                if (n < batch) {
+                    keyBatch = new String[n];
+                    valueBatch = new Integer[n];
+                }
+                System.arraycopy(keys, i, keyBatch, 0, n);
+                System.arraycopy(values, i, valueBatch, 0, n);
+                map.putAll(keyBatch, valueBatch);
+            }
+        }
+        double put = sw.elapsedTime();
+
+        sw = new Stopwatch();
+        if (batch == 0) {
+            for (int i = 0; i < N; i++) {
+                sink += map.get(shuffled[i]);
+            }
+        } else {
+            String[] keyBatch = new String[batch];
+            Integer[] out = new Integer[batch];
+            for (int i = 0; i < N; i += batch) {
+                int n = Math.min(batch, N - i);
+                if (n < batch) {
+                    keyBatch = new String[n];
+                }
+                System.arraycopy(shuffled, i, keyBatch, 0, n);
+                map.getAll(keyBatch, out);
+                for (int j = 0; j < n; j++) {
+                    sink += out[j];
+                }
+            }
+        }
+        double get = sw.elapsedTime();
+        System.out.printf("%-12s put %6.2f M ops/sec, get %6.2f M ops/sec\n",
+                label + ":", N / put / 1e6, N / get / 1e6);
+    }
+}
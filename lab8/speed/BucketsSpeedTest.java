@@ -3,14 +3,19 @@ package speed;
 import edu.princeton.cs.algs4.Stopwatch;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Scanner;
 
+import hashmap.InstrumentedMap;
 import hashmap.Map61B;
 import hashmap.MyHashMapALBuckets;
 import hashmap.MyHashMapLLBuckets;
 import hashmap.MyHashMapTSBuckets;
 import hashmap.MyHashMapHSBuckets;
 import hashmap.MyHashMapPQBuckets;
+import hashmap.MyHashMapRobinHood;
+import hashmap.MyHashMapAdaptiveBuckets;
+import hashmap.MyHashMapIncremental;
 
 /** Performs a timing test on three different set implementations.
  *  @author Neil Kulkarni adapted from Josh Hug, Brendan Hu
@@ -42,6 +47,10 @@ public class BucketsSpeedTest {
             timeRandomMap61B(new MyHashMapTSBuckets<>(), N, L);
             timeRandomMap61B(new MyHashMapHSBuckets<>(), N, L);
             timeRandomMap61B(new MyHashMapPQBuckets<>(), N, L);
+            timeRandomMap61B(new MyHashMapAdaptiveBuckets<>(), N, L);
+            timeRandomMap61B(new MyHashMapIncremental<>(), N, L);
+            timeRandomMap61B(new MyHashMapRobinHood<>(), N, L);
+            timeRandomHashMap(new HashMap<>(), N, L);
 
             System.out.print("\nWould you like to try more timed-tests? (y/n)");
             repeat = input.nextLine();
@@ -58,20 +67,53 @@ public class BucketsSpeedTest {
         String s = "cat";
         for (int i = 0; i < N; i++) {
             s = StringUtils.randomString(L);
-            map61B.put(s, new Integer(i));
+            map61B.put(s, i);
+        }
+        return sw.elapsedTime();
+    }
+
+    /**
+     * Returns time needed to put N random strings of length L into the
+     * HashMap hashMap.
+     */
+    public static double insertRandom(HashMap<String, Integer> hashMap, int N, int L) {
+        Stopwatch sw = new Stopwatch();
+        String s = "cat";
+        for (int i = 0; i < N; i++) {
+            s = StringUtils.randomString(L);
+            hashMap.put(s, i);
         }
         return sw.elapsedTime();
     }
 
     /**
      * Attempts to insert N random strings of length L into map,
-     * Prints time of the N insert calls, otherwise
+     * Prints time of the N insert calls and the map's stats, otherwise
      * Prints a nice message about the error
      */
     public static void timeRandomMap61B(Map61B<String, Integer> map, int N, int L) {
         try {
             double mapTime = insertRandom(map, N, L);
             System.out.printf(map.getClass() + ": %.2f sec\n", mapTime);
+            if (map instanceof InstrumentedMap) {
+                System.out.println(((InstrumentedMap) map).stats());
+            }
+        } catch (StackOverflowError e) {
+            printInfoOnStackOverflow(N, L);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Attempts to insert N random strings of length L into a HashMap
+     * Prints time of the N insert calls, otherwise
+     * Prints a nice message about the error
+     */
+    public static void timeRandomHashMap(HashMap<String, Integer> hashMap, int N, int L) {
+        try {
+            double javaTime = insertRandom(hashMap, N, L);
+            System.out.printf("Java's Built-in HashMap: %.2f sec\n", javaTime);
         } catch (StackOverflowError e) {
             printInfoOnStackOverflow(N, L);
         } catch (RuntimeException e) {
@@ -0,0 +1,83 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.HashMap;
+import java.util.Scanner;
+
+import hashmap.Map61B;
+import hashmap.MyHashMapAdaptiveBuckets;
+import hashmap.MyHashMapLLBuckets;
+import hashmap.MyHashMapTSBuckets;
+
+/** Times puts and gets of N String keys that all share one hashCode,
+ *  as an attacker flooding a hash table would send, against list, tree
+ *  and adaptive buckets, and then the same maps on random keys.
+ *  @author Suiren
+ */
+public class CollidingKeysSpeedTest {
+    /** Something to consume results with, so the JIT can't drop the gets. */
+    private static long sink;
+
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program puts N colliding String keys into\n"
+                + " different types of maps, then gets every key back.\n");
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # colliding keys (try 20000): ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+            String[] colliding = StringUtils.collidingStrings(N);
+            String[] random = new String[N];
+            for (int i = 0; i < N; i++) {
+                random[i] = StringUtils.randomString(colliding[0].length());
+            }
+
+            System.out.println("\nColliding keys, all with hashCode " + colliding[0].hashCode() + ":");
+            time(new MyHashMapLLBuckets<>(), colliding);
+            time(new MyHashMapTSBuckets<>(), colliding);
+            time(new MyHashMapAdaptiveBuckets<>(), colliding);
+            timeHashMap(colliding);
+            System.out.println("\nRandom keys of the same length:");
+            time(new MyHashMapLLBuckets<>(), random);
+            time(new MyHashMapTSBuckets<>(), random);
+            time(new MyHashMapAdaptiveBuckets<>(), random);
+            timeHashMap(random);
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    private static void time(Map61B<String, Integer> map, String[] keys) {
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        double put = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (String key : keys) {
+            sink += map.get(key);
+        }
+        System.out.printf("%-28s put %.3f sec, get %.3f sec\n",
+                map.getClass().getSimpleName() + ":", put, sw.elapsedTime());
+    }
+
+    private static void timeHashMap(String[] keys) {
+        HashMap<String, Integer> map = new HashMap<>();
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        double put = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (String key : keys) {
+            sink += map.get(key);
+        }
+        System.out.printf("%-28s put %.3f sec, get %.3f sec\n",
+                "Java's Built-in HashMap:", put, sw.elapsedTime());
+    }
+}
@@ -0,0 +1,93 @@
+package speed;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.Scanner;
+
+import hashmap.CuckooMap;
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+
+/** Times every single get, in random order, of N random Strings of length L
+ *  held by CuckooMap, MyHashMap and Java's HashMap, and reports the p50, p99,
+ *  p99.9 and max latency. Each get is timed with System.nanoTime, whose own
+ *  cost of a few tens of nanoseconds is included in every figure.
+ *  @author Suiren
+ */
+public class GetLatencySpeedTest {
+    /** Something to consume results with, so the JIT can't drop the gets. */
+    private static long sink;
+
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program puts N random Strings of length L into\n"
+                + " each map, then times each get of them in random order.\n");
+        System.out.print("What would you like L to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # strings to insert into each map: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+            String[] keys = new String[N];
+            for (int i = 0; i < N; i++) {
+                keys[i] = StringUtils.randomString(L);
+            }
+            String[] order = keys.clone();
+            Random r = new Random(61);
+            for (int i = N - 1; i > 0; i--) {
+                int j = r.nextInt(i + 1);
+                String t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+
+            System.out.printf("\n%-26s %8s %8s %8s %10s   (ns)\n", "", "p50", "p99", "p99.9", "max");
+            report("CuckooMap:", time(new CuckooMap<>(), keys, order));
+            report("MyHashMap:", time(new MyHashMap<>(), keys, order));
+            report("Java's Built-in HashMap:", timeHashMap(keys, order));
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    private static long[] time(Map61B<String, Integer> map, String[] keys, String[] order) {
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        long[] latencies = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            long start = System.nanoTime();
+            Integer v = map.get(order[i]);
+            latencies[i] = System.nanoTime() - start;
+            sink += v;
+        }
+        return latencies;
+    }
+
+    private static long[] timeHashMap(String[] keys, String[] order) {
+        HashMap<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        long[] latencies = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            long start = System.nanoTime();
+            Integer v = map.get(order[i]);
+            latencies[i] = System.nanoTime() - start;
+            sink += v;
+        }
+        return latencies;
+    }
+
+    private static void report(String name, long[] latencies) {
+        Arrays.sort(latencies);
+        int n = latencies.length - 1;
+        System.out.printf("%-26s %8d %8d %8d %10d\n", name, latencies[n / 2],
+                latencies[(int) (n * 0.99)], latencies[(int) (n * 0.999)], latencies[n]);
+    }
+}
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.util.Scanner;
 import edu.princeton.cs.algs4.Stopwatch;
 
+import hashmap.InstrumentedMap;
 import hashmap.Map61B;
 import hashmap.ULLMap;
 import hashmap.MyHashMap;
@@ -86,6 +87,9 @@ public class InsertInOrderSpeedTest {
         try {
             double mapTime = insertInOrder(map, N);
             System.out.printf(map.getClass() + ": %.2f sec\n", mapTime);
+            if (map instanceof InstrumentedMap) {
+                System.out.println(((InstrumentedMap) map).stats());
+            }
         } catch (StackOverflowError e) {
             printInfoOnStackOverflow(N);
         } catch (RuntimeException e) {
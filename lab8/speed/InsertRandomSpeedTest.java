@@ -5,22 +5,32 @@ import java.io.IOException;
 import java.util.Scanner;
 import edu.princeton.cs.algs4.Stopwatch;
 
+import hashmap.ConcurrentMyHashMap;
+import hashmap.InstrumentedMap;
 import hashmap.Map61B;
 import hashmap.ULLMap;
 import hashmap.MyHashMap;
 
 /** Performs a timing test on three different set implementations.
+ *  With --threads T, instead times concurrent inserts from 1 up to T
+ *  threads into ConcurrentMyHashMap and into a MyHashMap behind one lock.
  *  @author Josh Hug
  *  @author Brendan Hu
  */
 public class InsertRandomSpeedTest {
     /**
      * Requests user input and performs tests of three different set
-     * implementations. ARGS is unused. 
+     * implementations. ARGS may hold --threads T for the multi-threaded mode.
      */
     public static void main(String[] args) throws IOException {
         int N;
         Scanner input = new Scanner(System.in);
+        int threads = 0;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[i + 1]);
+            }
+        }
 
         System.out.println("\n This program inserts random "
                 + "Strings of length L\n"
@@ -29,6 +39,12 @@ public class InsertRandomSpeedTest {
         System.out.print("What would you like L to be?: ");
         int L = waitForPositiveInt(input);
 
+        if (threads > 0) {
+            timeThreadScaling(input, threads, L);
+            input.close();
+            return;
+        }
+
         String repeat = "y";
         do {
             System.out.print("\nEnter # strings to insert into hashmap.ULLMap: ");
@@ -86,6 +102,9 @@ public class InsertRandomSpeedTest {
         try {
             double mapTime = insertRandom(map, N, L);
             System.out.printf(map.getClass() + ": %.2f sec\n", mapTime);
+            if (map instanceof InstrumentedMap) {
+                System.out.println(((InstrumentedMap) map).stats());
+            }
         } catch (StackOverflowError e) {
             printInfoOnStackOverflow(N, L);
         } catch (RuntimeException e) {
@@ -109,6 +128,76 @@ public class InsertRandomSpeedTest {
         }
     }
 
+    /**
+     * Repeatedly asks for N and times N inserts split across 1, 2, 4 ... MAXTHREADS
+     * threads, reporting throughput and the speedup over one thread.
+     */
+    private static void timeThreadScaling(Scanner input, int maxThreads, int L) {
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors available.");
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # strings to insert concurrently: ");
+            int N = waitForPositiveInt(input);
+            String[] keys = new String[N];
+            for (int i = 0; i < N; i++) {
+                keys[i] = StringUtils.randomString(L);
+            }
+
+            double concurrentBase = 0;
+            double lockedBase = 0;
+            for (int t = 1; t <= maxThreads; t = t == maxThreads ? t + 1 : Math.min(t * 2, maxThreads)) {
+                double concurrent = N / insertConcurrently(new ConcurrentMyHashMap<>(), keys, t, false);
+                double locked = N / insertConcurrently(new MyHashMap<>(), keys, t, true);
+                if (t == 1) {
+                    concurrentBase = concurrent;
+                    lockedBase = locked;
+                }
+                System.out.printf("%2d threads: ConcurrentMyHashMap %6.2f M puts/sec (x%.2f), "
+                        + "locked MyHashMap %6.2f M puts/sec (x%.2f)\n", t,
+                        concurrent / 1e6, concurrent / concurrentBase,
+                        locked / 1e6, locked / lockedBase);
+            }
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+    }
+
+    /**
+     * Returns the seconds THREADS threads take to put KEYS into MAP, each thread
+     * taking an interleaved share. With LOCKED, every put holds the map's monitor.
+     */
+    private static double insertConcurrently(Map61B<String, Integer> map, String[] keys,
+                                             int threads, boolean locked) {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                for (int i = first; i < keys.length; i += threads) {
+                    if (locked) {
+                        synchronized (map) {
+                            map.put(keys[i], i);
+                        }
+                    } else {
+                        map.put(keys[i], i);
+                    }
+                }
+            });
+        }
+        Stopwatch sw = new Stopwatch();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return sw.elapsedTime();
+    }
+
     /**
      * Waits for the user on other side of Scanner
      * to enter a positive int,
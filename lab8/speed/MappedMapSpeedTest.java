@@ -0,0 +1,83 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+
+import hashmap.MappedMap;
+import hashmap.MyHashMap;
+
+/** Compares two ways of getting a map of N random Strings of length L back
+ *  after a restart: putting every entry into a new MyHashMap again, and
+ *  opening an image of it with MappedMap. Reports the time to the first
+ *  answered get for each, then the rate of gets on the mapped image.
+ *  The image goes to a temporary file, deleted afterwards. The first open
+ *  finds the file in the page cache, as a restarting process usually would.
+ *  @author Suiren
+ */
+public class MappedMapSpeedTest {
+    /** Something to consume results with, so the JIT can't drop the gets. */
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program builds a map of N random Strings of length L\n"
+                + " by putting them into MyHashMap, and by opening a MappedMap image,\n"
+                + " and reports the time until each answers its first get.\n");
+        System.out.print("What would you like L to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # strings to insert into each map: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+            time(N, L);
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    private static void time(int N, int L) throws IOException {
+        StringUtils.setSeed(61);
+        Stopwatch sw = new Stopwatch();
+        MyHashMap<String, Integer> replayed = new MyHashMap<>();
+        for (int i = 0; i < N; i++) {
+            replayed.put(StringUtils.randomString(L), i);
+        }
+        sink += replayed.get(StringUtils.randomString(L)) == null ? 0 : 1;
+        System.out.printf("replaying puts:   %.3f sec to first get\n", sw.elapsedTime());
+
+        Path file = Files.createTempFile("mappedmap", ".img");
+        try {
+            sw = new Stopwatch();
+            MappedMap.write(replayed, file, MappedMap.Codec.STRING, MappedMap.Codec.INTEGER);
+            System.out.printf("writing image:    %.3f sec, %.1f MB\n", sw.elapsedTime(),
+                    Files.size(file) / (1024.0 * 1024.0));
+            replayed = null;
+
+            StringUtils.setSeed(61);
+            String first = StringUtils.randomString(L);
+            sw = new Stopwatch();
+            try (MappedMap<String, Integer> mapped = new MappedMap<>(file,
+                    MappedMap.Codec.STRING, MappedMap.Codec.INTEGER)) {
+                sink += mapped.get(first);
+                System.out.printf("opening image:    %.3f sec to first get\n", sw.elapsedTime());
+
+                StringUtils.setSeed(61);
+                sw = new Stopwatch();
+                for (int i = 0; i < N; i++) {
+                    sink += mapped.get(StringUtils.randomString(L));
+                }
+                System.out.printf("mapped gets:      %.2f M ops/sec\n", N / sw.elapsedTime() / 1e6);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
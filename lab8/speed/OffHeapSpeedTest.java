@@ -0,0 +1,96 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Scanner;
+
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+import hashmap.OffHeapStringIntMap;
+
+/** Puts N random Strings of length L into MyHashMap and into
+ *  OffHeapStringIntMap, gets them all back, and reports throughput together
+ *  with the number and total time of the garbage collections each run caused
+ *  and the heap the finished map holds.
+ *  Both runs draw the same keys, from a fixed seed, generated as they go.
+ *  For large N give the heap room for MyHashMap and the off-heap map direct
+ *  memory of its own, e.g. -Xmx4g -XX:MaxDirectMemorySize=4g.
+ *  @author Suiren
+ */
+public class OffHeapSpeedTest {
+    /** Something to consume results with, so the JIT can't drop the gets. */
+    private static long sink;
+
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program puts N random Strings of length L into\n"
+                + " MyHashMap and into OffHeapStringIntMap, gets them back,\n"
+                + " and reports ops/sec and garbage collection.\n");
+        System.out.print("What would you like L to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # strings to insert into each map: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+            MyHashMap<String, Integer> onHeap = new MyHashMap<>();
+            time(onHeap, N, L);
+            onHeap = null;
+            try (OffHeapStringIntMap offHeap = new OffHeapStringIntMap()) {
+                time(offHeap, N, L);
+                System.out.printf("  off-heap memory: %.1f MB\n", offHeap.offHeapBytes() / (1024.0 * 1024.0));
+            }
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    private static void time(Map61B<String, Integer> map, int N, int L) {
+        long heap = usedHeap();
+        long[] gc = gcTotals();
+        StringUtils.setSeed(61);
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < N; i++) {
+            map.put(StringUtils.randomString(L), i);
+        }
+        double put = sw.elapsedTime();
+        StringUtils.setSeed(61);
+        sw = new Stopwatch();
+        for (int i = 0; i < N; i++) {
+            sink += map.get(StringUtils.randomString(L));
+        }
+        double get = sw.elapsedTime();
+        long[] after = gcTotals();
+        System.out.printf("%-20s put %6.2f M ops/sec, get %6.2f M ops/sec, "
+                        + "%d GCs taking %.2f sec, heap %.1f MB\n",
+                map.getClass().getSimpleName() + ":", N / put / 1e6, N / get / 1e6,
+                after[0] - gc[0], (after[1] - gc[1]) / 1000.0,
+                (usedHeap() - heap) / (1024.0 * 1024.0));
+    }
+
+    /** Returns the number of collections so far and their total milliseconds. */
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] {count, millis};
+    }
+
+    /** Returns the bytes of live heap, after asking for a few collections. */
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,172 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.Random;
+import java.util.Scanner;
+
+import hashmap.IntIntMap;
+import hashmap.LongObjectMap;
+import hashmap.MyHashMap;
+import hashmap.ObjectIntMap;
+
+/** Compares the primitive maps with MyHashMap on the same keys:
+ *  put and get throughput, and the heap the finished map holds.
+ *  Run it with a large heap (e.g. -Xmx4g) for 10M entries.
+ *  The keys are generated before timing and shared by both maps,
+ *  so the heap figures count the maps alone.
+ *  @author Suiren
+ */
+public class PrimitiveMapSpeedTest {
+    /** Something to consume results with, so the JIT can't drop the gets. */
+    private static long sink;
+
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program puts N keys into a primitive map and into\n"
+                + " MyHashMap, then gets every key back, and reports ops/sec\n"
+                + " and the heap held by each map.\n");
+        System.out.print("What would you like L, the length of String keys, to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # entries (10000000 for the full comparison): ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+            String[] strings = new String[N];
+            for (int i = 0; i < N; i++) {
+                strings[i] = StringUtils.randomString(L);
+            }
+            System.out.println("\n<String, int> keys:");
+            timeObjectIntMap(strings);
+            timeMyHashMap(strings);
+            strings = null;
+
+            int[] ints = new Random(61).ints(N).toArray();
+            System.out.println("\n<int, int> keys:");
+            timeIntIntMap(ints);
+            timeMyHashMapInts(ints);
+
+            long[] longs = new Random(61).longs(N).toArray();
+            System.out.println("\n<long, Object> keys:");
+            timeLongObjectMap(longs);
+            timeMyHashMapLongs(longs);
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    private static void timeObjectIntMap(String[] keys) {
+        long heap = usedHeap();
+        Stopwatch sw = new Stopwatch();
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        double put = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (String key : keys) {
+            sink += map.get(key);
+        }
+        report("ObjectIntMap<String>", keys.length, put, sw.elapsedTime(), usedHeap() - heap);
+        map.clear();
+    }
+
+    private static void timeMyHashMap(String[] keys) {
+        long heap = usedHeap();
+        Stopwatch sw = new Stopwatch();
+        MyHashMap<String, Integer> map = new MyHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        double put = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (String key : keys) {
+            sink += map.get(key);
+        }
+        report("MyHashMap<String, Integer>", keys.length, put, sw.elapsedTime(), usedHeap() - heap);
+        map.clear();
+    }
+
+    private static void timeIntIntMap(int[] keys) {
+        long heap = usedHeap();
+        Stopwatch sw = new Stopwatch();
+        IntIntMap map = new IntIntMap();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        double put = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (int key : keys) {
+            sink += map.get(key);
+        }
+        report("IntIntMap", keys.length, put, sw.elapsedTime(), usedHeap() - heap);
+        map.clear();
+    }
+
+    private static void timeMyHashMapInts(int[] keys) {
+        long heap = usedHeap();
+        Stopwatch sw = new Stopwatch();
+        MyHashMap<Integer, Integer> map = new MyHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        double put = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (int key : keys) {
+            sink += map.get(key);
+        }
+        report("MyHashMap<Integer, Integer>", keys.length, put, sw.elapsedTime(), usedHeap() - heap);
+        map.clear();
+    }
+
+    private static void timeLongObjectMap(long[] keys) {
+        long heap = usedHeap();
+        Stopwatch sw = new Stopwatch();
+        LongObjectMap<String> map = new LongObjectMap<>();
+        for (long key : keys) {
+            map.put(key, "v");
+        }
+        double put = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (long key : keys) {
+            sink += map.get(key).length();
+        }
+        report("LongObjectMap<String>", keys.length, put, sw.elapsedTime(), usedHeap() - heap);
+        map.clear();
+    }
+
+    private static void timeMyHashMapLongs(long[] keys) {
+        long heap = usedHeap();
+        Stopwatch sw = new Stopwatch();
+        MyHashMap<Long, String> map = new MyHashMap<>();
+        for (long key : keys) {
+            map.put(key, "v");
+        }
+        double put = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (long key : keys) {
+            sink += map.get(key).length();
+        }
+        report("MyHashMap<Long, String>", keys.length, put, sw.elapsedTime(), usedHeap() - heap);
+        map.clear();
+    }
+
+    private static void report(String name, int n, double putSecs, double getSecs, long heap) {
+        System.out.printf("%-28s put %6.2f M ops/sec, get %6.2f M ops/sec, heap %7.1f MB\n",
+                name, n / putSecs / 1e6, n / getSecs / 1e6, heap / (1024.0 * 1024.0));
+    }
+
+    /** Returns the bytes of live heap, after asking for a few collections. */
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,79 @@
+package speed;
+
+import java.util.Arrays;
+import java.util.Scanner;
+
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+import hashmap.MyHashMapIncremental;
+
+/** Times every single put into MyHashMap, with and without incremental
+ *  resizing, and reports p50, p99 and max put latency for each range of
+ *  table sizes. A put that triggers a full resize shows up in the max column.
+ *  Run it with a large, fixed heap (e.g. -Xms4g -Xmx4g) for tens of millions
+ *  of entries; young collections pause puts too, and -Xlog:gc tells them apart.
+ *  @author Suiren
+ */
+public class PutLatencySpeedTest {
+
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program puts N random Strings of length L\n"
+                + " into MyHashMap with and without incremental resizing,\n"
+                + " timing each put.\n");
+        System.out.print("What would you like L to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # strings to insert into each map: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+            System.out.println("\nMyHashMap:");
+            report(timePuts(new MyHashMap<>(), N, L));
+            System.out.println("\nMyHashMapIncremental:");
+            report(timePuts(new MyHashMapIncremental<>(), N, L));
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    /** Returns the nanoseconds taken by each of N puts of random strings into MAP. */
+    private static long[] timePuts(Map61B<String, Integer> map, int N, int L) {
+        long[] latencies = new long[N];
+        for (int i = 0; i < N; i++) {
+            String s = StringUtils.randomString(L);
+            Integer v = i;
+            long start = System.nanoTime();
+            map.put(s, v);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    /**
+     * Prints the latency percentiles of the puts made while the map held
+     * [2^k, 2^(k+1)) entries, for each k from 2^10 entries up.
+     */
+    private static void report(long[] latencies) {
+        System.out.printf("%22s %10s %10s %12s\n", "entries", "p50 (ns)", "p99 (ns)", "max (ns)");
+        int lo = 0;
+        int hi = Math.min(1024, latencies.length);
+        while (lo < latencies.length) {
+            long[] range = Arrays.copyOfRange(latencies, lo, hi);
+            Arrays.sort(range);
+            System.out.printf("%10d - %9d %10d %10d %12d\n", lo, hi - 1,
+                    range[(range.length - 1) / 2], range[(int) ((range.length - 1) * 0.99)],
+                    range[range.length - 1]);
+            lo = hi;
+            hi = (int) Math.min(2L * hi, latencies.length);
+        }
+        long[] all = latencies.clone();
+        Arrays.sort(all);
+        System.out.printf("%22s %10d %10d %12d\n", "all", all[(all.length - 1) / 2],
+                all[(int) ((all.length - 1) * 0.99)], all[all.length - 1]);
+    }
+}
@@ -0,0 +1,111 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.HashMap;
+import java.util.Scanner;
+
+import hashmap.MyHashMap;
+import hashmap.PersistentMap;
+import hashmap.SnapshotMap;
+
+/** Times N puts of random Strings of length L, taking a snapshot of the map
+ *  every S puts: O(1) with SnapshotMap, a full copy with MyHashMap and Java's
+ *  HashMap. Then times a bulk load of the same Strings into a PersistentMap
+ *  one put at a time and through a Builder.
+ *  @author Suiren
+ */
+public class SnapshotSpeedTest {
+    /** Something to consume results with, so the JIT can't drop the snapshots. */
+    private static long sink;
+
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program puts N random Strings of length L into\n"
+                + " each map, taking a snapshot every S puts.\n");
+        System.out.print("What would you like L to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # strings to insert into each map: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+            System.out.print("Enter # puts between snapshots S (try 1000): ");
+            int S = InsertRandomSpeedTest.waitForPositiveInt(input);
+            String[] keys = new String[N];
+            for (int i = 0; i < N; i++) {
+                keys[i] = StringUtils.randomString(L);
+            }
+
+            System.out.println();
+            timeSnapshotMap(keys, S);
+            timeMyHashMap(keys, S);
+            timeHashMap(keys, S);
+            System.out.println();
+            timeBulkLoad(keys);
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    private static void timeSnapshotMap(String[] keys, int every) {
+        SnapshotMap<String, Integer> map = new SnapshotMap<>();
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+            if ((i + 1) % every == 0) {
+                sink += map.snapshot().size();
+            }
+        }
+        System.out.printf("%-36s %.2f sec\n", "SnapshotMap, snapshot():", sw.elapsedTime());
+    }
+
+    private static void timeMyHashMap(String[] keys, int every) {
+        MyHashMap<String, Integer> map = new MyHashMap<>();
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+            if ((i + 1) % every == 0) {
+                MyHashMap<String, Integer> copy = new MyHashMap<>(map.size() * 2);
+                for (String key : map) {
+                    copy.put(key, map.get(key));
+                }
+                sink += copy.size();
+            }
+        }
+        System.out.printf("%-36s %.2f sec\n", "MyHashMap, copied:", sw.elapsedTime());
+    }
+
+    private static void timeHashMap(String[] keys, int every) {
+        HashMap<String, Integer> map = new HashMap<>();
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+            if ((i + 1) % every == 0) {
+                sink += new HashMap<>(map).size();
+            }
+        }
+        System.out.printf("%-36s %.2f sec\n", "Java's Built-in HashMap, copied:", sw.elapsedTime());
+    }
+
+    private static void timeBulkLoad(String[] keys) {
+        Stopwatch sw = new Stopwatch();
+        PersistentMap<String, Integer> m = PersistentMap.empty();
+        for (int i = 0; i < keys.length; i++) {
+            m = m.put(keys[i], i);
+        }
+        sink += m.size();
+        System.out.printf("%-36s %.2f sec\n", "PersistentMap bulk load, put:", sw.elapsedTime());
+
+        sw = new Stopwatch();
+        PersistentMap.Builder<String, Integer> b = PersistentMap.<String, Integer>empty().builder();
+        for (int i = 0; i < keys.length; i++) {
+            b.put(keys[i], i);
+        }
+        sink += b.build().size();
+        System.out.printf("%-36s %.2f sec\n", "PersistentMap bulk load, Builder:", sw.elapsedTime());
+    }
+}
@@ -77,6 +77,26 @@ public class StringUtils {
         return sb.toString();
     }
 
+    /**
+     * Returns N distinct strings that all have the same hashCode. "Aa" and "BB"
+     * hash alike, so every string made of k such blocks does too, giving 2^k keys.
+     */
+    public static String[] collidingStrings(int n) {
+        int blocks = 1;
+        while (blocks < 31 && (1 << blocks) < n) {
+            blocks++;
+        }
+        String[] re = new String[n];
+        for (int i = 0; i < n; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int b = blocks - 1; b >= 0; b--) {
+                sb.append(((i >>> b) & 1) == 0 ? "Aa" : "BB");
+            }
+            re[i] = sb.toString();
+        }
+        return re;
+    }
+
     /** Returns true if S is all 'z'. False for empty strings */
     public static boolean isAllzs(String s) {
         return Pattern.matches("[z]+", s);
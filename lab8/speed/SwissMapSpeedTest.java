@@ -0,0 +1,92 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.HashMap;
+import java.util.Scanner;
+
+import hashmap.Map61B;
+import hashmap.MyHashMap;
+import hashmap.SwissMap;
+
+/** Times gets of N keys that are all present (hit-heavy) and of N keys that
+ *  are all absent (miss-heavy) in SwissMap, MyHashMap and Java's HashMap
+ *  holding the same N random Strings of length L.
+ *  @author Suiren
+ */
+public class SwissMapSpeedTest {
+    /** Something to consume results with, so the JIT can't drop the gets. */
+    private static long sink;
+
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program puts N random Strings of length L into\n"
+                + " each map, then gets N present and N absent keys.\n");
+        System.out.print("What would you like L to be?: ");
+        int L = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("\nEnter # strings to insert into each map: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+            String[] present = new String[N];
+            String[] absent = new String[N];
+            for (int i = 0; i < N; i++) {
+                present[i] = StringUtils.randomString(L);
+                // Upper case never comes out of randomString, so these miss.
+                absent[i] = StringUtils.randomString(L).toUpperCase();
+            }
+
+            time(new SwissMap<>(), present, absent);
+            time(new MyHashMap<>(), present, absent);
+            timeHashMap(present, absent);
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    private static void time(Map61B<String, Integer> map, String[] present, String[] absent) {
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < present.length; i++) {
+            map.put(present[i], i);
+        }
+        double put = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (String key : present) {
+            sink += map.get(key);
+        }
+        double hit = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (String key : absent) {
+            sink += map.get(key) == null ? 0 : 1;
+        }
+        report(map.getClass().getSimpleName() + ":", present.length, put, hit, sw.elapsedTime());
+    }
+
+    private static void timeHashMap(String[] present, String[] absent) {
+        HashMap<String, Integer> map = new HashMap<>();
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < present.length; i++) {
+            map.put(present[i], i);
+        }
+        double put = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (String key : present) {
+            sink += map.get(key);
+        }
+        double hit = sw.elapsedTime();
+        sw = new Stopwatch();
+        for (String key : absent) {
+            sink += map.get(key) == null ? 0 : 1;
+        }
+        report("Java's Built-in HashMap:", present.length, put, hit, sw.elapsedTime());
+    }
+
+    private static void report(String name, int n, double put, double hit, double miss) {
+        System.out.printf("%-26s put %6.2f, hit %6.2f, miss %6.2f M ops/sec\n",
+                name, n / put / 1e6, n / hit / 1e6, n / miss / 1e6);
+    }
+}
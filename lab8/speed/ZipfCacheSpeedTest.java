@@ -0,0 +1,121 @@
+package speed;
+
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+
+import hashmap.LinkedMyHashMap;
+
+/** Replays a Zipfian trace of key requests against read-through caches of
+ *  C entries: a get, and on a miss a put of the key. Key k of a universe of
+ *  U is requested with probability proportional to 1 / k^s, as in web and
+ *  storage traces where a few keys are hot. Reports the hit rate and the
+ *  operations per second of LinkedMyHashMap in access (LRU) and insertion
+ *  (FIFO) order, and of java.util.LinkedHashMap as an LRU cache.
+ *  @author Suiren
+ */
+public class ZipfCacheSpeedTest {
+    /** Something to consume results with, so the JIT can't drop the gets. */
+    private static long sink;
+
+    public static void main(String[] args) {
+        Scanner input = new Scanner(System.in);
+
+        System.out.println("\n This program replays N requests for keys out of U,\n"
+                + " drawn from a Zipf distribution of exponent s = 1, against\n"
+                + " caches of C entries.\n");
+        System.out.print("Enter # distinct keys U: ");
+        int U = InsertRandomSpeedTest.waitForPositiveInt(input);
+
+        String repeat = "y";
+        do {
+            System.out.print("Enter cache capacity C: ");
+            int C = InsertRandomSpeedTest.waitForPositiveInt(input);
+            System.out.print("Enter # requests N: ");
+            int N = InsertRandomSpeedTest.waitForPositiveInt(input);
+            String[] keys = new String[U];
+            for (int i = 0; i < U; i++) {
+                keys[i] = "key" + i;
+            }
+            String[] trace = zipfTrace(keys, N, 1.0, new Random(61));
+
+            System.out.println();
+            time("LinkedMyHashMap, LRU:", new LinkedMyHashMap<>(C, true), trace);
+            time("LinkedMyHashMap, FIFO:", new LinkedMyHashMap<>(C, false), trace);
+            timeLinkedHashMap(C, trace);
+
+            System.out.print("\nWould you like to try more timed-tests? (y/n)");
+            repeat = input.nextLine();
+        } while (!repeat.equalsIgnoreCase("n") && !repeat.equalsIgnoreCase("no"));
+        input.close();
+    }
+
+    /** Returns N draws from KEYS, the k-th (from 1) with weight 1 / k^S, in a random order of ranks. */
+    static String[] zipfTrace(String[] keys, int N, double s, Random r) {
+        // Shuffle which key gets which rank, so the hot keys are not the first ones put.
+        String[] ranked = keys.clone();
+        for (int i = ranked.length - 1; i > 0; i--) {
+            int j = r.nextInt(i + 1);
+            String t = ranked[i];
+            ranked[i] = ranked[j];
+            ranked[j] = t;
+        }
+        double[] cdf = new double[ranked.length];
+        double total = 0;
+        for (int k = 0; k < ranked.length; k++) {
+            total += 1 / Math.pow(k + 1, s);
+            cdf[k] = total;
+        }
+        String[] trace = new String[N];
+        for (int i = 0; i < N; i++) {
+            int k = Arrays.binarySearch(cdf, r.nextDouble() * total);
+            trace[i] = ranked[k < 0 ? -k - 1 : k];
+        }
+        return trace;
+    }
+
+    private static void time(String name, LinkedMyHashMap<String, Integer> cache, String[] trace) {
+        Stopwatch sw = new Stopwatch();
+        for (String key : trace) {
+            Integer v = cache.get(key);
+            if (v == null) {
+                v = key.length();
+                cache.put(key, v);
+            }
+            sink += v;
+        }
+        report(name, cache.hits(), trace.length, sw.elapsedTime());
+        System.out.printf("%28s %d evictions\n", "", cache.evictions());
+    }
+
+    private static void timeLinkedHashMap(int capacity, String[] trace) {
+        Map<String, Integer> cache = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > capacity;
+            }
+        };
+        long hits = 0;
+        Stopwatch sw = new Stopwatch();
+        for (String key : trace) {
+            Integer v = cache.get(key);
+            if (v == null) {
+                v = key.length();
+                cache.put(key, v);
+            } else {
+                ++hits;
+            }
+            sink += v;
+        }
+        report("Java's LinkedHashMap, LRU:", hits, trace.length, sw.elapsedTime());
+    }
+
+    private static void report(String name, long hits, int requests, double seconds) {
+        System.out.printf("%-28s hit rate %.2f%%, %.2f M ops/sec\n", name,
+                100.0 * hits / requests, requests / seconds / 1e6);
+    }
+}
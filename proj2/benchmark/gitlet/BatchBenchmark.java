@@ -0,0 +1,118 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/** Compares running a gitlet script one process per command against batch mode.
+ *  Run it in an empty scratch directory:
+ *      java gitlet.BatchBenchmark [COMMANDS] [SAMPLE]
+ *  It writes a script of COMMANDS commands (10000 by default) and runs all of them
+ *  with "gitlet batch" in one JVM. Starting COMMANDS JVMs would take far too long,
+ *  so the one-process-per-command time is measured on the first SAMPLE commands
+ *  and scaled up.
+ *  @author Suiren
+ */
+public class BatchBenchmark {
+
+    /** Number of files the script adds and commits first. */
+    private static final int FILES = 100;
+
+    public static void main(String[] args) {
+        int commands = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int sample = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        List<String[]> script = script(commands);
+
+        File batchDir = prepare("batch");
+        List<String> lines = new ArrayList<>();
+        for (String[] command : script) {
+            StringBuilder line = new StringBuilder();
+            for (String word : command) {
+                line.append('"').append(word).append("\" ");
+            }
+            lines.add(line.toString());
+        }
+        File scriptFile = join(Repository.CWD, "script.txt");
+        writeContents(scriptFile, String.join("\n", lines) + "\n");
+        long start = System.nanoTime();
+        run(batchDir, "batch", scriptFile.getAbsolutePath());
+        double batchSecs = (System.nanoTime() - start) / 1e9;
+
+        File processDir = prepare("process");
+        start = System.nanoTime();
+        for (int i = 0; i < sample && i < script.size(); ++i) {
+            run(processDir, script.get(i));
+        }
+        double perProcess = (System.nanoTime() - start) / 1e9 / Math.min(sample, script.size());
+
+        System.out.printf("batch, %d commands:             %.2f sec%n", script.size(), batchSecs);
+        System.out.printf("one process per command:        %.1f ms/command (over %d commands)%n",
+                perProcess * 1000, Math.min(sample, script.size()));
+        System.out.printf("estimated for %d commands:      %.1f sec%n", script.size(),
+                perProcess * script.size());
+        System.out.printf("speedup:                        %.1fx%n",
+                perProcess * script.size() / batchSecs);
+    }
+
+    /**
+     * Build the script: init, add and commit FILES files, then rounds of
+     * status, branching, checkout, find, file checkout and log.
+     */
+    private static List<String[]> script(int commands) {
+        List<String[]> script = new ArrayList<>();
+        script.add(new String[] {"init"});
+        for (int i = 0; i < FILES; ++i) {
+            script.add(new String[] {"add", "f" + i + ".txt"});
+            script.add(new String[] {"commit", "add f" + i});
+        }
+        for (int k = 0; script.size() < commands; ++k) {
+            String branch = "b" + k;
+            script.add(new String[] {"status"});
+            script.add(new String[] {"branch", branch});
+            script.add(new String[] {"checkout", branch});
+            script.add(new String[] {"checkout", "master"});
+            script.add(new String[] {"rm-branch", branch});
+            script.add(new String[] {"find", "add f" + (k % FILES)});
+            script.add(new String[] {"checkout", "--", "f" + (k % FILES) + ".txt"});
+            script.add(new String[] {"log"});
+        }
+        return script.subList(0, commands);
+    }
+
+    /** Create an empty working directory NAME holding the files the script adds. */
+    private static File prepare(String name) {
+        File dir = join(Repository.CWD, name);
+        if (dir.exists()) {
+            message("Run the benchmark in an empty directory.");
+            System.exit(0);
+        }
+        dir.mkdir();
+        for (int i = 0; i < FILES; ++i) {
+            writeContents(join(dir, "f" + i + ".txt"), "contents of file " + i + "\n");
+        }
+        return dir;
+    }
+
+    /** Run gitlet in DIR in a separate JVM, discarding its output. */
+    private static void run(File dir, String... args) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(join(System.getProperty("java.home"), "bin", "java").getPath());
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add("-Dgitlet.fsync=false");
+        cmd.add("gitlet.Main");
+        for (String a : args) {
+            cmd.add(a);
+        }
+        try {
+            new ProcessBuilder(cmd).directory(dir)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectErrorStream(true).start().waitFor();
+        } catch (IOException | InterruptedException e) {
+            throw error("Cannot run gitlet: " + e.getMessage());
+        }
+    }
+}
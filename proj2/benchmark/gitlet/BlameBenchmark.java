@@ -0,0 +1,71 @@
+package gitlet;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static gitlet.Utils.*;
+
+/** Times blame on a file with a long history. Run it in an empty scratch directory:
+ *      java gitlet.BlameBenchmark [REVISIONS] [LINES]
+ *  It commits REVISIONS versions of one LINES-line file, each editing one random
+ *  line, then reports a cold blame, a repeat blame and a blame after a few more commits.
+ *  @author Suiren
+ */
+public class BlameBenchmark {
+
+    public static void main(String[] args) {
+        int revisions = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int lineCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        if (Repository.GITLET_DIR.exists()) {
+            message("Run the benchmark in an empty directory.");
+            System.exit(0);
+        }
+        Journal.setDurable(false);
+        Repository.init();
+
+        Random r = new Random(61);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < lineCount; ++i) {
+            lines.add("line " + i);
+        }
+        long start = System.nanoTime();
+        for (int rev = 0; rev < revisions; ++rev) {
+            edit(lines, r, rev);
+        }
+        System.out.printf("built %d revisions in %.2f sec%n", revisions,
+                (System.nanoTime() - start) / 1e9);
+
+        System.out.printf("cold blame:        %.3f sec%n", timeBlame());
+        System.out.printf("repeat blame:      %.3f sec%n", timeBlame());
+        for (int rev = revisions; rev < revisions + 10; ++rev) {
+            edit(lines, r, rev);
+        }
+        System.out.printf("after 10 commits:  %.3f sec%n", timeBlame());
+        StateCache.flush();
+        Journal.close();
+    }
+
+    /** Change one random line of the file and commit it. */
+    private static void edit(List<String> lines, Random r, int rev) {
+        lines.set(r.nextInt(lines.size()), "line changed in revision " + rev);
+        File file = join(Repository.CWD, "blamed.txt");
+        writeContents(file, String.join("\n", lines) + "\n");
+        Repository.add(file.getName());
+        Repository.commit("revision " + rev);
+    }
+
+    /** @return seconds taken by one blame, with its output discarded. */
+    private static double timeBlame() {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long start = System.nanoTime();
+        Repository.blame("blamed.txt");
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.setOut(out);
+        return secs;
+    }
+}
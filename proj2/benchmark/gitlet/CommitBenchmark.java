@@ -0,0 +1,50 @@
+package gitlet;
+
+import java.io.File;
+
+import static gitlet.Utils.*;
+
+/** Measures how many commits per second gitlet sustains, with and without
+ *  fsync of the journal. Run it in an empty scratch directory:
+ *      java gitlet.CommitBenchmark [N]
+ *  It creates a repository there and makes N commits in each mode.
+ *  @author Suiren
+ */
+public class CommitBenchmark {
+
+    /** Default number of commits per mode. */
+    private static final int DEFAULT_COMMITS = 500;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_COMMITS;
+        if (Repository.GITLET_DIR.exists()) {
+            message("Run the benchmark in an empty directory.");
+            System.exit(0);
+        }
+        Repository.init();
+        StateCache.flush();
+
+        double durable = timeCommits(n, true, "durable");
+        double relaxed = timeCommits(n, false, "relaxed");
+        System.out.printf("durable (fsync):    %.1f commits/sec%n", n / durable);
+        System.out.printf("relaxed (no fsync): %.1f commits/sec%n", n / relaxed);
+        Journal.close();
+    }
+
+    /**
+     * Time N add + commit rounds, each changing one file.
+     * @return elapsed seconds
+     */
+    private static double timeCommits(int n, boolean durable, String tag) {
+        Journal.setDurable(durable);
+        File file = join(Repository.CWD, "bench.txt");
+        long start = System.nanoTime();
+        for (int i = 0; i < n; ++i) {
+            writeContents(file, tag + " " + i + "\n");
+            Repository.add(file.getName());
+            Repository.commit(tag + " commit " + i);
+            StateCache.flush();
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+}
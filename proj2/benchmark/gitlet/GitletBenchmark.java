@@ -0,0 +1,175 @@
+package gitlet;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static gitlet.Utils.*;
+
+/** JMH benchmarks of the gitlet commands against repositories made by RepoGenerator.
+ *  Every parameter combination runs in its own fork, which generates a fresh
+ *  repository in target/gitlet-bench-repo before measuring. Each benchmarked
+ *  call includes the StateCache flush a real command ends with.
+ *  The journal runs with -Dgitlet.fsync=false, so the numbers don't depend on the disk.
+ *  @author Suiren
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dgitlet.cwd=target/gitlet-bench-repo", "-Dgitlet.fsync=false"})
+public class GitletBenchmark {
+
+    @Param({"200", "2000"})
+    public int commits;
+
+    @Param({"4"})
+    public int branches;
+
+    @Param({"10"})
+    public int mergeEvery;
+
+    @Param({"100"})
+    public int files;
+
+    @Param({"1024"})
+    public int fileSize;
+
+    private RepoGenerator generator;
+    private PrintStream stdout;
+    /** Tip of master after generation and its first parent, for reset and merge. */
+    private String masterTip;
+    private String masterParent;
+    private boolean onMaster = true;
+    private boolean atTip = true;
+    private int edits = 0;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        generator = new RepoGenerator(commits, branches, mergeEvery, files, fileSize);
+        generator.generate();
+        Commit tip = Repository.getCurrentCommit();
+        masterTip = tip.getID();
+        masterParent = tip.getFirstParent();
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreOutput() {
+        System.setOut(stdout);
+        Journal.close();
+    }
+
+    /** A state whose setup modifies a file before every call. */
+    @State(Scope.Benchmark)
+    public static class Modified {
+        @Setup(Level.Invocation)
+        public void modify(GitletBenchmark bench) {
+            bench.backToMaster();
+            writeContents(join(Repository.CWD, RepoGenerator.fileName(0)),
+                    "edit " + bench.edits++ + "\n");
+        }
+    }
+
+    /** A state whose setup also stages the modified file. */
+    @State(Scope.Benchmark)
+    public static class Staged {
+        @Setup(Level.Invocation)
+        public void stage(GitletBenchmark bench, Modified modified) {
+            Repository.add(RepoGenerator.fileName(0));
+            StateCache.flush();
+        }
+    }
+
+    /** A state whose setup rewinds master to its generated tip, so b1 can be merged again. */
+    @State(Scope.Benchmark)
+    public static class Rewound {
+        @Setup(Level.Invocation)
+        public void rewind(GitletBenchmark bench) {
+            bench.backToMaster();
+            Repository.reset(bench.masterTip);
+            StateCache.flush();
+        }
+    }
+
+    private void backToMaster() {
+        if (!onMaster) {
+            Repository.checkoutBranch(Repository.DEFAULT_BRANCH);
+            StateCache.flush();
+            onMaster = true;
+        }
+    }
+
+    @Benchmark
+    public void add(Modified modified) {
+        Repository.add(RepoGenerator.fileName(0));
+        StateCache.flush();
+    }
+
+    @Benchmark
+    public void commit(Staged staged) {
+        Repository.commit("bench commit");
+        StateCache.flush();
+    }
+
+    @Benchmark
+    public void status() {
+        Repository.status();
+    }
+
+    @Benchmark
+    public void log() {
+        Repository.log();
+    }
+
+    @Benchmark
+    public void globalLog() {
+        Repository.globalLog();
+    }
+
+    @Benchmark
+    public void find() {
+        try {
+            Repository.find("generated base");
+        } catch (GitletException e) {
+            // not found is a valid outcome
+        }
+    }
+
+    @Benchmark
+    public void checkout() {
+        Repository.checkoutBranch(onMaster ? RepoGenerator.branchName(1) : Repository.DEFAULT_BRANCH);
+        StateCache.flush();
+        onMaster = !onMaster;
+    }
+
+    @Benchmark
+    public void reset() {
+        backToMaster();
+        Repository.reset(atTip ? masterParent : masterTip);
+        StateCache.flush();
+        atTip = !atTip;
+    }
+
+    @Benchmark
+    public void merge(Rewound rewound) {
+        Repository.merge(RepoGenerator.branchName(1));
+        StateCache.flush();
+    }
+}
@@ -0,0 +1,95 @@
+package gitlet;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static gitlet.Utils.*;
+
+/** Stress test of repository locking with concurrent gitlet processes.
+ *  Run it in an empty scratch directory:
+ *      java gitlet.LockStressTest [N] [M]
+ *  N writer threads each spawn M rounds of "add" + "commit" processes on their
+ *  own file, while N reader threads keep running "log" and "status".
+ *  Afterwards the number of commits on master must equal the number of commits
+ *  that reported success, i.e. no update was lost.
+ *  @author Suiren
+ */
+public class LockStressTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        if (Repository.GITLET_DIR.exists()) {
+            message("Run the stress test in an empty directory.");
+            System.exit(0);
+        }
+        run("init");
+
+        AtomicInteger commits = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < n; ++w) {
+            final String file = "w" + w + ".txt";
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < m; ++i) {
+                    writeContents(join(Repository.CWD, file), file + " " + i + "\n");
+                    run("add", file);
+                    if (run("commit", file + " " + i).isEmpty()) {
+                        commits.incrementAndGet();
+                    }
+                }
+                done.incrementAndGet();
+            }));
+        }
+        for (int r = 0; r < n; ++r) {
+            final String command = r % 2 == 0 ? "log" : "status";
+            threads.add(new Thread(() -> {
+                while (done.get() < n) {
+                    run(command);
+                }
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        int logged = 0;
+        for (String line : run("log").split("\n")) {
+            if (line.startsWith("commit ")) {
+                ++logged;
+            }
+        }
+        System.out.printf("%d writers x %d rounds, %d readers: %.2f sec%n", n, m, n, secs);
+        System.out.printf("successful commits: %d, commits in log: %d%n", commits.get(), logged - 1);
+        System.out.println(commits.get() == logged - 1 ? "OK" : "LOST UPDATES");
+    }
+
+    /** Run gitlet in a separate JVM and return its output. */
+    private static String run(String... args) {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(join(System.getProperty("java.home"), "bin", "java").getPath());
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add("gitlet.Main");
+        for (String a : args) {
+            cmd.add(a);
+        }
+        try {
+            Process p = new ProcessBuilder(cmd).directory(Repository.CWD)
+                    .redirectErrorStream(true).start();
+            String out = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            p.waitFor();
+            return out;
+        } catch (IOException | InterruptedException e) {
+            throw error("Cannot run gitlet: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static gitlet.Utils.*;
+
+/** Generates synthetic gitlet repositories for benchmarking.
+ *  The repository is built in Repository.CWD (see -Dgitlet.cwd), which is
+ *  emptied first. Usage:
+ *      java -Dgitlet.cwd=DIR gitlet.RepoGenerator COMMITS BRANCHES MERGE_EVERY FILES FILE_SIZE
+ *  The shape of the repository:
+ *  1. FILES files of FILE_SIZE bytes each, committed on master.
+ *  2. BRANCHES branches (master included) all starting from that commit.
+ *  3. COMMITS commits spread round-robin over the branches, each changing a few files.
+ *  4. Every MERGE_EVERY-th commit is a merge of the next branch into the current one.
+ *  5. master and b1 both get one more commit at the end, so b1 can be merged into master.
+ *  Generation uses a fixed seed, so the same parameters give the same history.
+ *  @author Suiren
+ */
+public class RepoGenerator {
+    /** Characters used for file contents. */
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ";
+    /** Length of one line of generated file contents. */
+    private static final int LINE_LENGTH = 64;
+
+    private final int commits;
+    private final int branches;
+    private final int mergeEvery;
+    private final int files;
+    private final int fileSize;
+    private final Random random = new Random(61);
+
+    public RepoGenerator(int commits, int branches, int mergeEvery, int files, int fileSize) {
+        this.commits = commits;
+        this.branches = Math.max(1, branches);
+        this.mergeEvery = mergeEvery;
+        this.files = files;
+        this.fileSize = fileSize;
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 5) {
+            message("Usage: java -Dgitlet.cwd=DIR gitlet.RepoGenerator "
+                    + "COMMITS BRANCHES MERGE_EVERY FILES FILE_SIZE");
+            System.exit(0);
+        }
+        long start = System.nanoTime();
+        new RepoGenerator(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                Integer.parseInt(args[4])).generate();
+        message("Generated %s in %.2f sec.", Repository.CWD,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /** Name of the I-th generated file. */
+    public static String fileName(int i) {
+        return "f" + i + ".txt";
+    }
+
+    /** Name of the I-th branch, master being the 0th. */
+    public static String branchName(int i) {
+        return i == 0 ? Repository.DEFAULT_BRANCH : "b" + i;
+    }
+
+    /**
+     * Wipe Repository.CWD and build the repository in it. Output of the commands is discarded.
+     * Refuses to run unless -Dgitlet.cwd names the directory explicitly.
+     */
+    public void generate() {
+        if (System.getProperty("gitlet.cwd") == null) {
+            throw error("Set -Dgitlet.cwd to the directory to generate the repository in.");
+        }
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            wipe(Repository.CWD);
+            Repository.CWD.mkdirs();
+            Journal.setDurable(false);
+            Repository.init();
+            for (int i = 0; i < files; ++i) {
+                writeFile(i);
+                Repository.add(fileName(i));
+            }
+            Repository.commit("generated base");
+            for (int b = 1; b < branches; ++b) {
+                Repository.branch(branchName(b));
+            }
+
+            String current = Repository.DEFAULT_BRANCH;
+            for (int c = 0; c < commits; ++c) {
+                String branch = branchName(c % branches);
+                if (!branch.equals(current)) {
+                    Repository.checkoutBranch(branch);
+                    current = branch;
+                }
+                if (mergeEvery > 0 && branches > 1 && c % mergeEvery == mergeEvery - 1) {
+                    merge(branchName((c + 1) % branches));
+                    current = currentBranch(); // a fast-forward switches branches
+                } else {
+                    change(current + " commit " + c);
+                }
+            }
+
+            if (branches > 1) {
+                checkout(current, branchName(1));
+                change("b1 tip");
+                current = branchName(1);
+            }
+            checkout(current, Repository.DEFAULT_BRANCH);
+            change("master tip");
+            StateCache.flush();
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static String currentBranch() {
+        return new File(StateCache.readString(Repository.HEAD_FILE)).getName();
+    }
+
+    private void checkout(String current, String branch) {
+        if (!current.equals(branch)) {
+            Repository.checkoutBranch(branch);
+        }
+    }
+
+    /** Rewrite one to three random files and commit them with MESSAGE. */
+    public void change(String message) {
+        int n = 1 + random.nextInt(Math.min(3, files));
+        for (int i = 0; i < n; ++i) {
+            int f = random.nextInt(files);
+            writeFile(f);
+            Repository.add(fileName(f));
+        }
+        Repository.commit(message);
+    }
+
+    /** Merge BRANCH into the current branch; gitlet refuses some merges, which is fine. */
+    private void merge(String branch) {
+        try {
+            Repository.merge(branch);
+        } catch (GitletException e) {
+            // ancestor or fast-forward: nothing to commit
+        }
+    }
+
+    private void writeFile(int i) {
+        StringBuilder sb = new StringBuilder(fileSize);
+        while (sb.length() < fileSize) {
+            for (int k = 0; k < LINE_LENGTH - 1 && sb.length() < fileSize - 1; ++k) {
+                sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            sb.append('\n');
+        }
+        writeContents(join(Repository.CWD, fileName(i)), sb.toString());
+    }
+
+    /** Delete DIR and everything under it. */
+    static void wipe(File dir) {
+        if (!dir.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            throw error("Cannot wipe %s: %s", dir, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static gitlet.Repository.*;
+import static gitlet.Utils.*;
+
+/**
+ * Object stores shared between repositories on one host.
+ * <p>
+ * .gitlet/objects/info/alternates lists other objects directories, one per line;
+ * a relative path is taken relative to the objects directory holding the list. An
+ * object missing from the local store is looked up in each of them in turn, and
+ * in their own alternates after them, so a clone of a shared clone still reaches
+ * every object. They are only ever read: new
+ * objects are still written to the local store, so a repository can borrow the
+ * history of another without copying it.
+ * <p>
+ * The clone command builds on this: a shared clone only records the source store
+ * as an alternate, and a plain clone hard-links the source objects instead of
+ * copying them whenever both live on the same file system.
+ * @author Suiren
+ */
+class Alternates {
+    /** The list of alternate object stores. */
+    static final File ALTERNATES_FILE = join(OBJECTS_DIR, "info", "alternates");
+    /** Subdirectory of an object store holding commits. */
+    static final String COMMITS = "commits";
+    /** Subdirectory of an object store holding blobs. */
+    static final String BLOBS = "blobs";
+
+    /** The alternate stores, loaded on first use. */
+    private static List<File> stores;
+
+    /** @return the alternate object stores, in lookup order. */
+    static List<File> stores() {
+        if (stores == null) {
+            stores = alternatesOf(OBJECTS_DIR);
+        }
+        return stores;
+    }
+
+    /**
+     * @return the alternates of the objects directory OBJECTS, followed transitively
+     * and breadth first. OBJECTS itself and repeated stores are left out.
+     */
+    private static List<File> alternatesOf(File objects) {
+        objects = objects.toPath().toAbsolutePath().normalize().toFile();
+        Set<File> seen = new LinkedHashSet<>();
+        seen.add(objects);
+        Deque<File> queue = new ArrayDeque<>();
+        queue.add(objects);
+        while (!queue.isEmpty()) {
+            File dir = queue.remove();
+            File list = join(dir, "info", "alternates");
+            if (!list.isFile()) {
+                continue;
+            }
+            for (String line : readContentsAsString(list).split("\n")) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    File store = new File(line);
+                    store = (store.isAbsolute() ? store : join(dir, line)).toPath()
+                            .toAbsolutePath().normalize().toFile();
+                    if (seen.add(store)) {
+                        queue.add(store);
+                    }
+                }
+            }
+        }
+        seen.remove(objects);
+        return new ArrayList<>(seen);
+    }
+
+    /** @return the file holding the object in the first of STORES that has it, or null. */
+    private static File findIn(List<File> stores, String kind, String id) {
+        for (File store : stores) {
+            File file = join(store, kind, id);
+            if (file.exists()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Locate an object, in the local store first and then in the alternates.
+     * @param kind COMMITS or BLOBS
+     * @return the file holding the object; the local one, which doesn't exist, if none does
+     */
+    static File find(String kind, String id) {
+        File local = join(OBJECTS_DIR, kind, id);
+        if (local.exists()) {
+            return local;
+        }
+        File alternate = findAlternate(kind, id);
+        return alternate == null ? local : alternate;
+    }
+
+    /** @return the file of the object in an alternate store, or null if none has it. */
+    static File findAlternate(String kind, String id) {
+        return findIn(stores(), kind, id);
+    }
+
+    /**
+     * @return the IDs of all objects of a kind, local, borrowed or saved but not yet
+     * flushed, in sorted order.
+     */
+    static List<String> list(String kind) {
+        List<String> local = Objects.requireNonNull(plainFilenamesIn(join(OBJECTS_DIR, kind)));
+        List<String> pending = StateCache.pendingObjects(join(OBJECTS_DIR, kind));
+        if (stores().isEmpty() && pending.isEmpty()) {
+            return local;
+        }
+        TreeSet<String> ids = new TreeSet<>(local);
+        ids.addAll(pending);
+        for (File store : stores()) {
+            List<String> borrowed = plainFilenamesIn(join(store, kind));
+            if (borrowed != null) {
+                ids.addAll(borrowed);
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /** Append STORE, an objects directory, to the alternates list. */
+    static void add(File store) {
+        ALTERNATES_FILE.getParentFile().mkdirs();
+        String entries = ALTERNATES_FILE.exists() ? readContentsAsString(ALTERNATES_FILE) : "";
+        writeContents(ALTERNATES_FILE, entries + store.getAbsolutePath() + "\n");
+        stores = null;
+    }
+
+    /**
+     * Create a new repository in the working directory from the one in SOURCE:
+     * same branches, same current branch, and the head commit checked out.
+     * If SHARED, the source objects become an alternate store; otherwise they are
+     * hard-linked, or copied where linking is impossible.
+     * @param source the working directory of the source repository
+     * @param shared whether to borrow the objects instead of linking them
+     */
+    static void cloneFrom(File source, boolean shared) {
+        File srcGitlet = join(source, ".gitlet");
+        if (GITLET_DIR.exists()) {
+            throw error("A Gitlet version-control system already exists in the current directory.");
+        }
+        if (!srcGitlet.isDirectory()) {
+            throw error("Source is not a Gitlet repository.");
+        }
+        // Check everything the clone needs before creating any of it.
+        File srcObjects = join(srcGitlet, "objects").toPath().normalize().toFile();
+        File srcHeads = join(srcGitlet, "refs", "heads");
+        List<File> srcStores = new ArrayList<>();
+        srcStores.add(srcObjects);
+        srcStores.addAll(alternatesOf(srcObjects));
+        File srcHeadFile = join(srcGitlet, "HEAD");
+        List<String> branches = plainFilenamesIn(srcHeads);
+        if (!srcHeadFile.isFile() || branches == null) {
+            throw error("Source is not a Gitlet repository.");
+        }
+        String head = readContentsAsString(srcHeadFile);
+        File srcBranch = join(srcGitlet, head);
+        File headFile = srcBranch.isFile()
+                ? findIn(srcStores, COMMITS, readContentsAsString(srcBranch)) : null;
+        if (headFile == null) {
+            throw error("Source head commit is missing.");
+        }
+        Commit headCommit = readObject(headFile, Commit.class);
+        Map<String, File> checkout = new TreeMap<>();
+        for (Map.Entry<String, String> e : headCommit.getTrack().entrySet()) {
+            File blobFile = findIn(srcStores, BLOBS, e.getValue());
+            if (blobFile == null) {
+                throw error("Source object %s is missing.", e.getValue());
+            }
+            if (join(CWD, e.getKey()).exists()) {
+                throw error("There is an untracked file in the way;"
+                        + " delete it, or add and commit it first.");
+            }
+            checkout.put(e.getKey(), blobFile);
+        }
+
+        GITLET_DIR.mkdir();
+        OBJECTS_DIR.mkdir();
+        REFS_DIR.mkdir();
+        BRANCH_HEADS_DIR.mkdir();
+        BLOBS_DIR.mkdir();
+        COMMITS_DIR.mkdir();
+        if (shared) {
+            // The source's own alternates are reached through it.
+            add(srcObjects);
+        } else {
+            linkAll(join(srcObjects, COMMITS), COMMITS_DIR);
+            linkAll(join(srcObjects, BLOBS), BLOBS_DIR);
+            // Objects the source only borrows stay borrowed by the clone too.
+            for (File store : srcStores.subList(1, srcStores.size())) {
+                add(store);
+            }
+        }
+        writeObject(STAGE_AREA, new StageArea());
+        for (String branch : branches) {
+            StateCache.write(join(BRANCH_HEADS_DIR, branch),
+                    readContentsAsString(join(srcHeads, branch)));
+        }
+        StateCache.write(HEAD_FILE, head);
+
+        for (Map.Entry<String, File> e : checkout.entrySet()) {
+            Blob blob = readObject(e.getValue(), Blob.class);
+            writeContents(join(CWD, e.getKey()), (Object) blob.getContent());
+        }
+    }
+
+    /** Hard-link every object of SRC into DST, copying when the link fails. */
+    private static void linkAll(File src, File dst) {
+        List<String> ids = plainFilenamesIn(src);
+        if (ids == null) {
+            return;
+        }
+        for (String id : ids) {
+            File from = join(src, id);
+            File to = join(dst, id);
+            try {
+                Files.createLink(to.toPath(), from.toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                try {
+                    Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException ex) {
+                    throw error("Cannot copy object %s: %s", id, ex.getMessage());
+                }
+            }
+        }
+    }
+}
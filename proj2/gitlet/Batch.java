@@ -0,0 +1,102 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/**
+ * Batch mode: run many gitlet commands in one JVM.
+ *      java gitlet.Main batch [SCRIPT]
+ * Reads one command per line from SCRIPT, or from standard input if SCRIPT is
+ * absent or "-". A line is split on blanks, and double quotes group words, e.g.
+ *      commit "a message with spaces"
+ * Blank lines and lines starting with # are skipped. A failing command prints
+ * its message as usual and the script goes on.
+ * <p>
+ * The repository is locked exclusively for the whole script. HEAD, the index,
+ * the branch heads and the commits read stay in the StateCache between
+ * commands, and the dirty state is flushed once at the end or at a line saying
+ *      checkpoint
+ * @author Suiren
+ */
+class Batch {
+
+    static void run(String[] args) {
+        if (args.length > 2) {
+            throw error("Incorrect operands.");
+        }
+        boolean stdin = args.length == 1 || args[1].equals("-");
+        try (InputStream in = stdin ? System.in : new FileInputStream(new File(args[1]))) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            boolean locked = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] command = tokenize(line);
+                if (command.length == 0 || command[0].startsWith("#")) {
+                    continue;
+                }
+                if (!locked && Repository.GITLET_DIR.exists()) {
+                    RepoLock.acquire(false);
+                    locked = true;
+                }
+                if (command[0].equals("checkpoint")) {
+                    flush();
+                } else if (command[0].equals("batch")) {
+                    message("Cannot nest batch.");
+                } else {
+                    Main.runCommand(command);
+                }
+            }
+        } catch (IOException e) {
+            throw error("Cannot read batch script: " + e.getMessage());
+        } finally {
+            flush();
+            Journal.close();
+            RepoLock.release();
+        }
+    }
+
+    private static void flush() {
+        try {
+            StateCache.flush();
+        } catch (GitletException e) {
+            message(e.getMessage());
+        }
+    }
+
+    /** Split LINE into words on blanks, keeping double-quoted words together. */
+    static String[] tokenize(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean quoted = false;
+        boolean inWord = false;
+        for (int i = 0; i < line.length(); ++i) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inWord = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inWord) {
+                    words.add(word.toString());
+                    word.setLength(0);
+                    inWord = false;
+                }
+            } else {
+                word.append(c);
+                inWord = true;
+            }
+        }
+        if (inWord) {
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,177 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static gitlet.Helper.*;
+import static gitlet.Utils.*;
+
+/**
+ * Line-by-line origin of a file, as reported by the blame command.
+ * <p>
+ * Blame walks the first-parent history of the current commit backwards,
+ * collecting the commits where the file's blob changes, and stops as soon as it
+ * reaches a commit whose origins for the file are already known. It then replays those changes
+ * forwards with the diff engine: lines kept by the diff inherit their origin,
+ * and every other line originates in the commit that introduced it.
+ * <p>
+ * Origins are cached per (commit ID, path) under .gitlet/blame, for the blamed commit
+ * and every CHECKPOINT_INTERVAL-th version on the way. They are not keyed by blob
+ * alone: the same content reached through another history (a revert, or another
+ * branch) has different origins. A repeat blame only replays the commits made
+ * after the cached result.
+ * @author Suiren
+ */
+class Blame {
+    /** The directory of cached origin maps, one file per (commit ID, path). */
+    static final File BLAME_DIR = join(Repository.GITLET_DIR, "blame");
+
+    /** Cache an intermediate origin map every this many versions. */
+    private static final int CHECKPOINT_INTERVAL = 64;
+
+    /** The origin map of one file version: the ID of the commit each line comes from. */
+    private static class Origins implements Serializable {
+        /** Pinned so cache files stay readable as the class changes. */
+        private static final long serialVersionUID = -8679134820556366347L;
+
+        private final String[] commits;
+
+        Origins(String[] commits) {
+            this.commits = commits;
+        }
+    }
+
+    /** One version of the file on the first-parent history. */
+    private static class Version {
+        private final Commit commit;
+        private final String blobID;
+
+        Version(Commit commit, String blobID) {
+            this.commit = commit;
+            this.blobID = blobID;
+        }
+    }
+
+    /**
+     * Print every line of FILE in the current commit, prefixed with the
+     * abbreviated ID and date of the commit that last changed it.
+     */
+    static void blame(String file) {
+        Commit head = Repository.getCurrentCommit();
+        if (!head.getTrack().containsKey(file)) {
+            throw error("File does not exist in that commit.");
+        }
+        String blobID = head.getTrack().get(file);
+        String[] lines = Diff.splitLines(readBlob(blobID).getContent());
+        String[] origins = origins(head, file);
+
+        Map<String, Commit> commits = new HashMap<>();
+        for (int i = 0; i < lines.length; ++i) {
+            Commit origin = commits.computeIfAbsent(origins[i], Repository::getCommitFromID);
+            String line = lines[i].endsWith("\n")
+                    ? lines[i].substring(0, lines[i].length() - 1) : lines[i];
+            System.out.printf("%s (%s %4d) %s%n", origins[i].substring(0, 7),
+                    timeConvert(origin.getDate()), i + 1, line);
+        }
+    }
+
+    /** Compute (or fetch) the origin of every line of FILE as of commit HEAD. */
+    static String[] origins(Commit head, String file) {
+        // Walk back until the file disappears, history ends or a cached blob is hit.
+        List<Version> versions = new ArrayList<>();
+        String[] base = new String[0];
+        String baseBlob = null;
+        Commit cur = head;
+        while (cur != null && cur.getTrack().containsKey(file)) {
+            String blobID = cur.getTrack().get(file);
+            Origins cached = readCache(cur.getID(), file);
+            if (cached != null) {
+                base = cached.commits;
+                baseBlob = blobID;
+                break;
+            }
+            if (versions.isEmpty() || !versions.get(versions.size() - 1).blobID.equals(blobID)) {
+                versions.add(new Version(cur, blobID));
+            } else {
+                // Same blob further back: the change happened no later than here.
+                versions.set(versions.size() - 1, new Version(cur, blobID));
+            }
+            cur = cur.getFirstParent().isEmpty()
+                    ? null : Repository.getCommitFromID(cur.getFirstParent());
+        }
+
+        // Replay forwards, oldest version first.
+        String[] prevLines = baseBlob == null ? new String[0]
+                : Diff.splitLines(readBlob(baseBlob).getContent());
+        String[] prevOrigins = base;
+        int replayed = 0;
+        String cachedAt = null;
+        for (int v = versions.size() - 1; v >= 0; --v) {
+            Version version = versions.get(v);
+            if (version.blobID.equals(baseBlob)) {
+                continue;
+            }
+            String[] lines = Diff.splitLines(readBlob(version.blobID).getContent());
+            int[] match = Diff.matchLines(prevLines, lines);
+            String[] origins = new String[lines.length];
+            for (int i = 0; i < lines.length; ++i) {
+                origins[i] = match[i] >= 0 ? prevOrigins[match[i]] : version.commit.getID();
+            }
+            prevLines = lines;
+            prevOrigins = origins;
+            baseBlob = version.blobID;
+            if (++replayed % CHECKPOINT_INTERVAL == 0 || v == 0) {
+                cachedAt = version.commit.getID();
+                writeCache(cachedAt, file, origins);
+            }
+        }
+        if (!versions.isEmpty() && !head.getID().equals(cachedAt)) {
+            // The blamed version was introduced further back; cache it under HEAD too.
+            writeCache(head.getID(), file, prevOrigins);
+        }
+        return prevOrigins;
+    }
+
+    private static Blob readBlob(String blobID) {
+        return readObject(findObjectBlobFile(blobID), Blob.class);
+    }
+
+    /** The cache file of the origins of FILE as of the commit COMMITID. */
+    private static File cacheFile(String commitID, String file) {
+        return join(BLAME_DIR, sha1(commitID, file));
+    }
+
+    private static Origins readCache(String commitID, String file) {
+        File cache = cacheFile(commitID, file);
+        if (!cache.exists()) {
+            return null;
+        }
+        return readObject(cache, Origins.class);
+    }
+
+    /**
+     * Save the origins of FILE as of the commit COMMITID. The cache file is written aside and renamed,
+     * since blame runs under the shared lock and other blamers may be reading it.
+     */
+    private static void writeCache(String commitID, String file, String[] origins) {
+        if (!BLAME_DIR.exists()) {
+            BLAME_DIR.mkdir();
+        }
+        try {
+            File cache = cacheFile(commitID, file);
+            File tmp = File.createTempFile(cache.getName(), ".tmp", BLAME_DIR);
+            writeObject(tmp, new Origins(origins));
+            Files.move(tmp.toPath(), cache.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw error("Cannot write blame cache: " + e.getMessage());
+        }
+    }
+}
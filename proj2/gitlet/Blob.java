@@ -17,6 +17,9 @@ import static gitlet.Utils.sha1;
  * And write the content of the files when writing files.
  */
 public class Blob implements Serializable {
+    /** Pinned as in Commit, so stored blobs stay readable. */
+    private static final long serialVersionUID = 991657916346914533L;
+
     /** The name of the source file in the working directory. */
     private String path;
     /** The content of the blob. */
@@ -37,6 +40,18 @@ public class Blob implements Serializable {
         this.file = getObjectBlobFile(this.ID);
     }
 
+    /**
+     * Create a blob of the given content for the file named PATH.
+     * @param path the name of the file in working directory
+     * @param content the content of the file
+     */
+    public Blob(String path, byte[] content) {
+        this.content = content;
+        this.path = path;
+        this.ID = sha1(this.path, this.content);
+        this.file = getObjectBlobFile(this.ID);
+    }
+
     public String getPath() {
         return this.path;
     }
@@ -19,6 +19,12 @@ import static gitlet.Utils.sha1;
  *  @author Suiren
  */
 public class Commit implements Serializable {
+    /**
+     * Stream version of the stored objects. Pinned to the value the first release
+     * computed, so adding methods doesn't make existing repositories unreadable.
+     */
+    private static final long serialVersionUID = -7154592736974567892L;
+
     /**
      * Message: The message of this Commit
      * Date: The date of this Commit, in the form of a Date object
@@ -109,8 +115,12 @@ public class Commit implements Serializable {
     }
 
     private String generateID() {
-        return sha1(this.message, timeConvert(this.date),
-                this.firstParent, this.blobIDs.toString());
+        return generateID(this.message, timeConvert(this.date), this.firstParent, this.blobIDs);
+    }
+
+    /** The ID of a commit with these fields, its date already formatted as TIME. */
+    static String generateID(String message, String time, String firstParent, Map<String, String> track) {
+        return sha1(message, time, firstParent, track.toString());
     }
 
     public void recomputeID() {
@@ -0,0 +1,160 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line diff engine, an implementation of Myers' O((N + M) D) algorithm in its
+ * linear-space form.
+ * Lines are interned to ints first, so the inner loop compares ints
+ * rather than Strings. The common prefix and suffix are stripped before the
+ * search, which makes the usual small edit nearly linear.
+ * @author Suiren
+ */
+public class Diff {
+
+    /** Split CONTENT into lines, each keeping its trailing newline. */
+    public static String[] splitLines(byte[] content) {
+        String text = new String(content, StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); ++i) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    /**
+     * Match the lines of B against the lines of A along a shortest edit script.
+     * @return an array M where M[j] is the index of the line of A that line j
+     *         of B is kept from, or -1 if line j was inserted.
+     */
+    public static int[] matchLines(String[] a, String[] b) {
+        int[][] ids = intern(a, b);
+        int[] x = ids[0];
+        int[] y = ids[1];
+        int[] match = new int[y.length];
+        Arrays.fill(match, -1);
+
+        int prefix = 0;
+        while (prefix < x.length && prefix < y.length && x[prefix] == y[prefix]) {
+            match[prefix] = prefix;
+            ++prefix;
+        }
+        int suffix = 0;
+        while (suffix < x.length - prefix && suffix < y.length - prefix
+                && x[x.length - 1 - suffix] == y[y.length - 1 - suffix]) {
+            match[y.length - 1 - suffix] = x.length - 1 - suffix;
+            ++suffix;
+        }
+        int half = (x.length + y.length + 1) / 2 + 1;
+        int[] vf = new int[2 * half + 2];
+        int[] vb = new int[2 * half + 2];
+        myers(x, prefix, x.length - suffix, y, prefix, y.length - suffix, match, vf, vb, half);
+        return match;
+    }
+
+    /** Map every distinct line of A and B to a small int. */
+    private static int[][] intern(String[] a, String[] b) {
+        Map<String, Integer> table = new HashMap<>();
+        int[] x = new int[a.length];
+        int[] y = new int[b.length];
+        for (int i = 0; i < a.length; ++i) {
+            x[i] = table.computeIfAbsent(a[i], k -> table.size());
+        }
+        for (int i = 0; i < b.length; ++i) {
+            y[i] = table.computeIfAbsent(b[i], k -> table.size());
+        }
+        return new int[][] {x, y};
+    }
+
+    /**
+     * Record into MATCH the lines kept by a shortest edit script of X[xLo, xHi)
+     * into Y[yLo, yHi). Myers' linear-space refinement: find the middle snake of
+     * the script by searching from both ends at once, then recurse on the parts
+     * before and after it. Only the two furthest-reaching vectors VF and VB are
+     * kept, so memory stays O(N + M) however different the inputs are; keeping
+     * every round's vector for a backtrack would take O((N + M) D).
+     * OFFSET is the index of diagonal 0 in VF and VB.
+     */
+    private static void myers(int[] x, int xLo, int xHi, int[] y, int yLo, int yHi,
+                              int[] match, int[] vf, int[] vb, int offset) {
+        while (xLo < xHi && yLo < yHi && x[xLo] == y[yLo]) {
+            match[yLo++] = xLo++;
+        }
+        while (xLo < xHi && yLo < yHi && x[xHi - 1] == y[yHi - 1]) {
+            match[--yHi] = --xHi;
+        }
+        if (xLo == xHi || yLo == yHi) {
+            return;
+        }
+        int[] snake = middleSnake(x, xLo, xHi, y, yLo, yHi, vf, vb, offset);
+        for (int i = snake[0], j = snake[1]; i < snake[2]; ++i, ++j) {
+            match[yLo + j] = xLo + i;
+        }
+        myers(x, xLo, xLo + snake[0], y, yLo, yLo + snake[1], match, vf, vb, offset);
+        myers(x, xLo + snake[2], xHi, y, yLo + snake[3], yHi, match, vf, vb, offset);
+    }
+
+    /**
+     * Find the middle snake of a shortest edit script of X[xLo, xHi) into
+     * Y[yLo, yHi), whose first and last lines differ.
+     * @return {start x, start y, end x, end y} of the snake, relative to xLo and yLo
+     */
+    private static int[] middleSnake(int[] x, int xLo, int xHi, int[] y, int yLo, int yHi,
+                                     int[] vf, int[] vb, int offset) {
+        int n = xHi - xLo;
+        int m = yHi - yLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        vf[offset + 1] = 0;
+        vb[offset + 1] = 0;
+        for (int d = 0; d <= (n + m + 1) / 2; ++d) {
+            // Forward: vf[k] is the furthest x reached on diagonal k = x - y.
+            for (int k = -d; k <= d; k += 2) {
+                int i = k == -d || (k != d && vf[offset + k - 1] < vf[offset + k + 1])
+                        ? vf[offset + k + 1] : vf[offset + k - 1] + 1;
+                int j = i - k;
+                int startI = i;
+                int startJ = j;
+                while (i < n && j < m && x[xLo + i] == y[yLo + j]) {
+                    ++i;
+                    ++j;
+                }
+                vf[offset + k] = i;
+                int back = delta - k;
+                if (odd && back >= -(d - 1) && back <= d - 1 && i + vb[offset + back] >= n) {
+                    return new int[] {startI, startJ, i, j};
+                }
+            }
+            // Backward: the same search on both sequences reversed.
+            for (int k = -d; k <= d; k += 2) {
+                int i = k == -d || (k != d && vb[offset + k - 1] < vb[offset + k + 1])
+                        ? vb[offset + k + 1] : vb[offset + k - 1] + 1;
+                int j = i - k;
+                int startI = i;
+                int startJ = j;
+                while (i < n && j < m && x[xHi - 1 - i] == y[yHi - 1 - j]) {
+                    ++i;
+                    ++j;
+                }
+                vb[offset + k] = i;
+                int forward = delta - k;
+                if (!odd && forward >= -d && forward <= d && i + vf[offset + forward] >= n) {
+                    return new int[] {n - i, m - j, n - startI, m - startJ};
+                }
+            }
+        }
+        throw new IllegalStateException("No middle snake found.");
+    }
+}
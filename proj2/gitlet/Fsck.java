@@ -0,0 +1,236 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static gitlet.Helper.timeConvert;
+import static gitlet.StageArea.getStageArea;
+import static gitlet.Utils.*;
+
+/**
+ * Integrity and connectivity check of the object store, run by the fsck command.
+ * <p>
+ * First every file under objects/ is read and verified, in parallel on all cores:
+ * a blob must deserialize and sha1(path, content) must equal its file name; a
+ * commit must deserialize and carry the ID it is stored under. Then the ID of
+ * every intact commit is recomputed: an ordinary commit hashes the files its parent
+ * tracks, so it is checked against its parent, while the initial commit and merges
+ * hash their own. A merge hashes its files in the order it added them, which its
+ * stored copy doesn't keep, so a merge whose ID can't be recomputed is not reported
+ * as corrupt but counted as checked for self-consistency only. Then the commit
+ * graph is walked from every branch head, checking that the parents and blobs of
+ * each reachable commit exist and are intact. Objects nothing reaches (neither a
+ * branch head nor the stage area) are reported as dangling. Objects borrowed from
+ * alternate stores are trusted and only followed, the repositories owning them check them.
+ * @author Suiren
+ */
+class Fsck {
+
+    /** Objects that failed verification, as "kind id" strings. */
+    private final Set<String> corrupt = ConcurrentHashMap.newKeySet();
+    /** Intact commits by ID. */
+    private final Map<String, Commit> commits = new ConcurrentHashMap<>();
+    /** Intact blob IDs. */
+    private final Set<String> blobs = ConcurrentHashMap.newKeySet();
+    /** Bytes read while verifying. */
+    private final LongAdder bytes = new LongAdder();
+    /** Problems found, sorted for stable output. */
+    private final Set<String> problems = new TreeSet<>();
+    /** Merge commits whose ID could not be recomputed. */
+    private int selfConsistentOnly;
+
+    /** Check the repository and print what is wrong with it. */
+    static void fsck() {
+        new Fsck().run();
+    }
+
+    private void run() {
+        List<String> commitIDs = plainFilenamesIn(Repository.COMMITS_DIR);
+        List<String> blobIDs = plainFilenamesIn(Repository.BLOBS_DIR);
+        long start = System.nanoTime();
+        commitIDs.parallelStream().forEach(this::verifyCommit);
+        blobIDs.parallelStream().forEach(this::verifyBlob);
+        double secs = (System.nanoTime() - start) / 1e9;
+        for (String object : corrupt) {
+            problems.add("corrupt " + object);
+        }
+        for (Map.Entry<String, Commit> entry : commits.entrySet()) {
+            verifyID(entry.getKey(), entry.getValue());
+        }
+
+        Set<String> reachedCommits = new HashSet<>();
+        Set<String> reachedBlobs = new HashSet<>();
+        walk(reachedCommits, reachedBlobs);
+        for (String id : commits.keySet()) {
+            if (!reachedCommits.contains(id)) {
+                problems.add("dangling commit " + id);
+            }
+        }
+        for (String id : blobs) {
+            if (!reachedBlobs.contains(id)) {
+                problems.add("dangling blob " + id);
+            }
+        }
+
+        for (String problem : problems) {
+            System.out.println(problem);
+        }
+        if (problems.isEmpty()) {
+            System.out.println("No problems found.");
+        }
+        if (selfConsistentOnly > 0) {
+            System.out.printf("%d merge commits were only checked for self-consistency.%n",
+                    selfConsistentOnly);
+        }
+        double mb = bytes.sum() / (1024.0 * 1024.0);
+        System.out.printf("Checked %d commits and %d blobs, %.1f MB in %.2f sec "
+                + "(%.1f MB/s on %d cores).%n", commitIDs.size(), blobIDs.size(), mb, secs,
+                secs > 0 ? mb / secs : 0.0, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Walk the commit graph from the branch heads and the stage area. */
+    private void walk(Set<String> reachedCommits, Set<String> reachedBlobs) {
+        Queue<String> queue = new ArrayDeque<>();
+        for (String branch : plainFilenamesIn(Repository.BRANCH_HEADS_DIR)) {
+            String head = StateCache.readString(join(Repository.BRANCH_HEADS_DIR, branch));
+            reach(head, "head of branch " + branch, reachedCommits, queue);
+        }
+        for (String blob : getStageArea().getAddStage().values()) {
+            reachBlob(blob, "the stage area", reachedBlobs);
+        }
+        while (!queue.isEmpty()) {
+            String id = queue.remove();
+            Commit commit = lookup(id);
+            if (commit == null) {
+                continue; // corrupt or missing, already reported
+            }
+            reach(commit.getFirstParent(), "parent of commit " + id, reachedCommits, queue);
+            reach(commit.getSecondParent(), "parent of commit " + id, reachedCommits, queue);
+            for (String blob : commit.getTrack().values()) {
+                reachBlob(blob, "commit " + id, reachedBlobs);
+            }
+        }
+    }
+
+    /** @return the intact commit ID, own or borrowed, or null if there is none. */
+    private Commit lookup(String id) {
+        Commit commit = commits.get(id);
+        if (commit == null) {
+            File borrowed = Alternates.findAlternate(Alternates.COMMITS, id);
+            if (borrowed != null) {
+                commit = readObject(borrowed, Commit.class);
+            }
+        }
+        return commit;
+    }
+
+    /** Recompute the ID of the intact COMMIT stored under ID. */
+    private void verifyID(String id, Commit commit) {
+        Map<String, String> hashed = commit.getTrack();
+        if (!commit.hasSecondParent() && !commit.getFirstParent().isEmpty()) {
+            Commit parent = lookup(commit.getFirstParent());
+            if (parent == null) {
+                return; // corrupt or missing, reported as such
+            }
+            hashed = parent.getTrack();
+        }
+        if (hashesTo(id, commit, hashed)) {
+            return;
+        }
+        if (commit.hasSecondParent()) {
+            ++selfConsistentOnly;
+        } else {
+            problems.add("corrupt commit " + id + " (its ID does not match its contents)");
+        }
+    }
+
+    /**
+     * @return whether COMMIT, tracking the files in TRACK, hashes to ID. The date is
+     * hashed in the committer's time zone, which isn't stored, so each UTC offset is
+     * tried in turn after the local one.
+     */
+    private static boolean hashesTo(String id, Commit commit, Map<String, String> track) {
+        String time = timeConvert(commit.getDate());
+        if (Commit.generateID(commit.getMessage(), time, commit.getFirstParent(), track).equals(id)) {
+            return true;
+        }
+        for (int minutes = -12 * 60; minutes <= 14 * 60; minutes += 15) {
+            TimeZone zone = TimeZone.getTimeZone(ZoneOffset.ofTotalSeconds(minutes * 60));
+            time = timeConvert(commit.getDate(), zone);
+            if (Commit.generateID(commit.getMessage(), time, commit.getFirstParent(), track).equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reach(String id, String from, Set<String> reached, Queue<String> queue) {
+        if (id == null || id.isEmpty() || !reached.add(id)) {
+            return;
+        }
+        if (!commits.containsKey(id) && !corrupt.contains("commit " + id)
+                && Alternates.findAlternate(Alternates.COMMITS, id) == null) {
+            problems.add("missing commit " + id + " (" + from + ")");
+        }
+        queue.add(id);
+    }
+
+    private void reachBlob(String id, String from, Set<String> reached) {
+        if (id == null || !reached.add(id)) {
+            return;
+        }
+        if (!blobs.contains(id) && !corrupt.contains("blob " + id)
+                && Alternates.findAlternate(Alternates.BLOBS, id) == null) {
+            problems.add("missing blob " + id + " (in " + from + ")");
+        }
+    }
+
+    private void verifyBlob(String id) {
+        Object obj = load(Repository.BLOBS_DIR, id);
+        if (obj instanceof Blob) {
+            Blob blob = (Blob) obj;
+            if (sha1(blob.getPath(), blob.getContent()).equals(id)) {
+                blobs.add(id);
+                return;
+            }
+        }
+        corrupt.add("blob " + id);
+    }
+
+    private void verifyCommit(String id) {
+        Object obj = load(Repository.COMMITS_DIR, id);
+        if (obj instanceof Commit && id.equals(((Commit) obj).getID())) {
+            commits.put(id, (Commit) obj);
+            return;
+        }
+        corrupt.add("commit " + id);
+    }
+
+    /** @return the object stored in DIR under ID, or null if it cannot be read. */
+    private Object load(File dir, String id) {
+        try {
+            byte[] content = Files.readAllBytes(join(dir, id).toPath());
+            bytes.add(content.length);
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(content))) {
+                return in.readObject();
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            return null;
+        }
+    }
+}
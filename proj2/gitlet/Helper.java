@@ -1,12 +1,16 @@
 package gitlet;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.TimeZone;
 
 import static gitlet.Utils.*;
 
@@ -18,7 +22,13 @@ public class Helper {
      * @return target Date information String
      */
     public static String timeConvert(Date date) {
+        return timeConvert(date, TimeZone.getDefault());
+    }
+
+    /** As timeConvert, for the time in ZONE rather than the local one. */
+    public static String timeConvert(Date date, TimeZone zone) {
         DateFormat re = new SimpleDateFormat("EEE MMM d HH:mm:ss yyyy Z", Locale.US);
+        re.setTimeZone(zone);
         return re.format(date);
     }
 
@@ -36,6 +46,20 @@ public class Helper {
         return join(Repository.COMMITS_DIR, id);
     }
 
+    /**
+     * Locate the blob node File to read, in the local store or an alternate one.
+     */
+    public static File findObjectBlobFile(String id) {
+        return Alternates.find(Alternates.BLOBS, id);
+    }
+
+    /**
+     * Locate the commit node File to read, in the local store or an alternate one.
+     */
+    public static File findObjectCommitFile(String id) {
+        return Alternates.find(Alternates.COMMITS, id);
+    }
+
 //    /**
 //     * Retrieve the file Object from its ID in Objects directory.
 //     * @return The file Object
@@ -58,13 +82,28 @@ public class Helper {
     /**
      * Save the Objects as files in Objects directory.
      * If the commits or blobs directory doesn't exist, create it.
+     * An existing object is replaced by renaming a new file over it, never rewritten
+     * in place, since a cloned repository may share the file through a hard link.
      */
     public static void saveObjectFile(File file, Serializable obj) {
         File dir = file.getParentFile();
         if (!dir.exists()) {
             dir.mkdir();
         }
-        writeObject(file, obj);
+        if (!file.exists()) {
+            writeObject(file, obj);
+            return;
+        }
+        File tmpDir = join(Repository.GITLET_DIR, "tmp");
+        tmpDir.mkdir();
+        try {
+            File tmp = File.createTempFile(file.getName(), ".tmp", tmpDir);
+            writeObject(tmp, obj);
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw error("Cannot save object %s: %s", file.getName(), e.getMessage());
+        }
     }
 
 
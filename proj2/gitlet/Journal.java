@@ -0,0 +1,451 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static gitlet.Repository.GITLET_DIR;
+import static gitlet.Utils.*;
+
+/**
+ * An append-only write-ahead journal for the .gitlet directory.
+ * A command that has to update several files together (say, a commit writes the
+ * commit object, the index, HEAD and the branch head) records all of its writes
+ * as one transaction in .gitlet/journal before touching any of the files.
+ * <p>
+ * Commit a transaction in three steps:
+ * 1. Append the transaction record (with a CRC32 checksum) to the journal, then fsync it.
+ * 2. Apply each write by writing a temporary file and renaming it over the target,
+ *    so a target file is either the old version or the new one, never a torn one.
+ * 3. Force the targets and their directories, then append an applied marker for the
+ *    transaction, so the marker never becomes durable ahead of the files it covers.
+ * <p>
+ * Group commit: the fsync in step 1 is shared. A thread only forces the journal
+ * if no other thread has already forced past its own record, so concurrent or
+ * back-to-back transactions in one JVM pay for a single fsync.
+ * <p>
+ * Recovery: recover() runs before every command. Records without an applied marker
+ * are replayed in order, and a torn tail (short record or checksum mismatch)
+ * is discarded since its writes were never started.
+ * <p>
+ * Durability can be switched off with -Dgitlet.fsync=false, which keeps the
+ * atomic renames but skips the fsync.
+ * @author Suiren
+ */
+class Journal {
+    /** The journal file. */
+    static final File JOURNAL_FILE = join(GITLET_DIR, "journal");
+
+    /** Scratch directory for the temporary files renamed over their targets. */
+    private static final File TMP_DIR = join(GITLET_DIR, "tmp");
+
+    /** Tag of a transaction record. */
+    private static final int TX_RECORD = 0x47544c54;
+    /** Tag of an applied marker. */
+    private static final int APPLIED_RECORD = 0x47544c41;
+    /** Once every transaction is applied, a journal larger than this is truncated. */
+    private static final long CHECKPOINT_SIZE = 1 << 20;
+
+    /** Whether the journal is forced to disk before a transaction is applied. */
+    private static boolean durable = !"false".equals(System.getProperty("gitlet.fsync"));
+
+    /** The journal opened for appending, null until the first transaction. */
+    private static FileChannel channel;
+    /** Sequence number of the next transaction. */
+    private static long nextSeq = 0;
+    /** Journal size after the last appended record. */
+    private static volatile long appended = 0;
+    /** Journal size covered by the last fsync. */
+    private static long synced = 0;
+    /** Serializes the fsync calls of group commit. */
+    private static final Object SYNC_LOCK = new Object();
+
+    static void setDurable(boolean d) {
+        durable = d;
+    }
+
+    static boolean isDurable() {
+        return durable;
+    }
+
+    /** Start a new transaction. Nothing is written until commit() is called. */
+    static Transaction begin() {
+        return new Transaction();
+    }
+
+    /**
+     * A batch of whole-file writes which are applied all together or not at all.
+     * Later writes to the same file inside one transaction replace earlier ones.
+     */
+    static class Transaction {
+        /** Pending writes, keyed by path relative to the .gitlet parent directory. */
+        private final Map<String, byte[]> writes = new LinkedHashMap<>();
+        /** Reference files and the contents they must still hold at commit, null if absent. */
+        private final Map<File, String> expected = new LinkedHashMap<>();
+        private boolean committed = false;
+
+        /**
+         * Make the commit conditional: it only goes ahead if FILE still holds CONTENT
+         * (or doesn't exist, if CONTENT is null), compared under the reference lock.
+         */
+        void expect(File file, String content) {
+            expected.put(file, content);
+        }
+
+        /** Stage a write of the concatenated CONTENTS (Strings or byte arrays) to FILE. */
+        void write(File file, Object... contents) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (Object obj : contents) {
+                byte[] bytes = obj instanceof byte[]
+                        ? (byte[]) obj : ((String) obj).getBytes(StandardCharsets.UTF_8);
+                out.write(bytes, 0, bytes.length);
+            }
+            writes.put(relativePath(file), out.toByteArray());
+        }
+
+        /** Stage a write of the serialized OBJ to FILE. */
+        void writeObject(File file, Serializable obj) {
+            write(file, (Object) serialize(obj));
+        }
+
+        boolean isEmpty() {
+            return writes.isEmpty();
+        }
+
+        /**
+         * Log the transaction durably, then apply it.
+         * Throws a GitletException, writing nothing, if an expected reference has moved.
+         */
+        void commit() {
+            if (committed) {
+                throw error("Transaction already committed.");
+            }
+            committed = true;
+            if (writes.isEmpty()) {
+                return;
+            }
+            if (expected.isEmpty()) {
+                logAndApply();
+                return;
+            }
+            RepoLock.RefLocks locks = RepoLock.lockRefs(expected.keySet());
+            try {
+                for (Map.Entry<File, String> e : expected.entrySet()) {
+                    String actual = e.getKey().exists() ? readContentsAsString(e.getKey()) : null;
+                    if (!Objects.equals(actual, e.getValue())) {
+                        throw error("Reference %s was updated concurrently.", e.getKey().getName());
+                    }
+                }
+                logAndApply();
+            } finally {
+                locks.close();
+            }
+        }
+
+        private void logAndApply() {
+            long seq;
+            long end;
+            synchronized (Journal.class) {
+                seq = nextSeq++;
+                end = append(encodeTransaction(seq, writes));
+            }
+            sync(end);
+            applyWrites(writes);
+            synchronized (Journal.class) {
+                append(encodeApplied(seq));
+            }
+        }
+    }
+
+    /** Whether recover() has work to do: unapplied transactions, a torn tail or a checkpoint. */
+    static synchronized boolean needsRecovery() {
+        if (!JOURNAL_FILE.exists()) {
+            return false;
+        }
+        Map<Long, Map<String, byte[]>> pending = new TreeMap<>();
+        long validLength = readJournal(readContents(JOURNAL_FILE), pending, new HashSet<>());
+        return !pending.isEmpty() || validLength != JOURNAL_FILE.length()
+                || validLength > CHECKPOINT_SIZE;
+    }
+
+    /**
+     * Replay the transactions that were logged but not known to be applied,
+     * and drop a torn record left behind by a crash.
+     * A journal whose transactions are all applied is truncated once it grows large.
+     */
+    static synchronized void recover() {
+        if (!JOURNAL_FILE.exists()) {
+            return;
+        }
+        Map<Long, Map<String, byte[]>> pending = new TreeMap<>();
+        Set<String> touched = new HashSet<>();
+        long validLength = readJournal(readContents(JOURNAL_FILE), pending, touched);
+        if (pending.isEmpty() && validLength == JOURNAL_FILE.length()
+                && validLength <= CHECKPOINT_SIZE) {
+            return;
+        }
+        for (Map<String, byte[]> tx : pending.values()) {
+            applyWrites(tx);
+        }
+        try (FileChannel ch = FileChannel.open(JOURNAL_FILE.toPath(), StandardOpenOption.WRITE)) {
+            if (!pending.isEmpty() || validLength > CHECKPOINT_SIZE) {
+                // Make the written files durable before forgetting their records.
+                for (String path : touched) {
+                    force(join(GITLET_DIR.getParentFile(), path));
+                }
+                ch.truncate(0);
+            } else {
+                ch.truncate(validLength);
+            }
+            if (durable) {
+                ch.force(true);
+            }
+        } catch (IOException e) {
+            throw error("Cannot recover journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Close the journal of this JVM, forcing what is left if durable.
+     * Called once before the process exits.
+     */
+    static synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            sync(appended);
+            channel.close();
+        } catch (IOException e) {
+            throw error("Cannot close journal: " + e.getMessage());
+        } finally {
+            channel = null;
+        }
+    }
+
+    /**
+     * Parse the journal, collecting the transactions without an applied marker into PENDING
+     * and the paths written by any transaction into TOUCHED.
+     * @return the length of the valid prefix of the journal.
+     */
+    private static long readJournal(byte[] bytes, Map<Long, Map<String, byte[]>> pending,
+                                    Set<String> touched) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        long valid = 0;
+        try {
+            while (valid < bytes.length) {
+                int length = in.readInt();
+                if (length < 0 || length > bytes.length - valid - 12) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                long crc = in.readLong();
+                if (crc != checksum(body)) {
+                    break;
+                }
+                DataInputStream rec = new DataInputStream(new ByteArrayInputStream(body));
+                int tag = rec.readInt();
+                long seq = rec.readLong();
+                if (tag == TX_RECORD) {
+                    Map<String, byte[]> writes = new LinkedHashMap<>();
+                    int count = rec.readInt();
+                    for (int i = 0; i < count; ++i) {
+                        String path = rec.readUTF();
+                        byte[] content = new byte[rec.readInt()];
+                        rec.readFully(content);
+                        writes.put(path, content);
+                        touched.add(path);
+                    }
+                    pending.put(seq, writes);
+                } else if (tag == APPLIED_RECORD) {
+                    pending.remove(seq);
+                } else {
+                    break;
+                }
+                nextSeq = Math.max(nextSeq, seq + 1);
+                valid += 12 + length;
+            }
+        } catch (EOFException e) {
+            // torn tail, everything before valid is intact
+        } catch (IOException e) {
+            throw error("Cannot read journal: " + e.getMessage());
+        }
+        return valid;
+    }
+
+    private static byte[] encodeTransaction(long seq, Map<String, byte[]> writes) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeInt(TX_RECORD);
+            out.writeLong(seq);
+            out.writeInt(writes.size());
+            for (Map.Entry<String, byte[]> w : writes.entrySet()) {
+                out.writeUTF(w.getKey());
+                out.writeInt(w.getValue().length);
+                out.write(w.getValue());
+            }
+            out.close();
+            return frame(body.toByteArray());
+        } catch (IOException e) {
+            throw error("Cannot encode journal record.");
+        }
+    }
+
+    private static byte[] encodeApplied(long seq) {
+        ByteBuffer body = ByteBuffer.allocate(12);
+        body.putInt(APPLIED_RECORD).putLong(seq);
+        return frame(body.array());
+    }
+
+    /** Prefix BODY with its length and follow it with its checksum. */
+    private static byte[] frame(byte[] body) {
+        ByteBuffer rec = ByteBuffer.allocate(body.length + 12);
+        rec.putInt(body.length).put(body).putLong(checksum(body));
+        return rec.array();
+    }
+
+    private static long checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return crc.getValue();
+    }
+
+    /**
+     * Append a framed record to the journal. Callers hold the Journal lock.
+     * @return the journal size after the record.
+     */
+    private static long append(byte[] record) {
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(JOURNAL_FILE.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                appended = channel.size();
+                synced = appended;
+            }
+            ByteBuffer buf = ByteBuffer.wrap(record);
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            appended = channel.size();
+            return appended;
+        } catch (IOException e) {
+            throw error("Cannot write journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Make the journal durable up to END.
+     * If another thread's fsync already covered END, return at once.
+     */
+    private static void sync(long end) {
+        if (!durable) {
+            return;
+        }
+        synchronized (SYNC_LOCK) {
+            if (synced >= end) {
+                return;
+            }
+            long target = appended;
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw error("Cannot sync journal: " + e.getMessage());
+            }
+            synced = target;
+        }
+    }
+
+    /**
+     * Replace every target file atomically by writing a temporary file and renaming it.
+     * If durable, each file is forced before its rename and every directory holding a
+     * target is forced afterwards, so the writes are on disk when this returns.
+     */
+    private static void applyWrites(Map<String, byte[]> writes) {
+        Set<File> dirs = new LinkedHashSet<>();
+        for (Map.Entry<String, byte[]> w : writes.entrySet()) {
+            File target = join(GITLET_DIR.getParentFile(), w.getKey());
+            File dir = target.getParentFile();
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+            if (!TMP_DIR.exists()) {
+                TMP_DIR.mkdir();
+            }
+            File tmp;
+            try {
+                // the prefix keeps short names like HEAD above createTempFile's 3-character minimum
+                tmp = File.createTempFile("tx-" + target.getName(), ".tmp", TMP_DIR);
+            } catch (IOException e) {
+                throw error("Cannot write " + target.getPath() + ": " + e.getMessage());
+            }
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(w.getValue());
+                if (durable) {
+                    out.getChannel().force(true);
+                }
+            } catch (IOException e) {
+                tmp.delete();
+                throw error("Cannot write " + target.getPath() + ": " + e.getMessage());
+            }
+            try {
+                Files.move(tmp.toPath(), target.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                tmp.delete();
+                throw error("Cannot rename " + target.getPath() + ": " + e.getMessage());
+            }
+            dirs.add(dir);
+        }
+        for (File dir : dirs) {
+            forceDirectory(dir);
+        }
+    }
+
+    private static void force(File file) {
+        if (!durable || !file.exists()) {
+            return;
+        }
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            ch.force(true);
+        } catch (IOException e) {
+            throw error("Cannot sync " + file.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Force the entries of DIR, making the renames into it durable.
+     * Platforms that cannot open a directory (Windows) are skipped.
+     */
+    private static void forceDirectory(File dir) {
+        if (!durable) {
+            return;
+        }
+        try (FileChannel ch = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // directories cannot be opened here, nothing to force
+        }
+    }
+
+    /** Path of FILE relative to the directory holding .gitlet. */
+    private static String relativePath(File file) {
+        return GITLET_DIR.getAbsoluteFile().getParentFile().toPath()
+                .relativize(file.getAbsoluteFile().toPath()).toString();
+    }
+}
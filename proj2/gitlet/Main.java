@@ -1,11 +1,13 @@
 package gitlet;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static gitlet.Utils.error;
 import static gitlet.Utils.message;
 
 /** Driver class for Gitlet, a subset of the Git version-control system.
@@ -23,12 +25,58 @@ public class Main {
             System.exit(0);
         }
 
+        String firstArg = args[0];
+        if (firstArg.equals("batch")) {
+            try {
+                Batch.run(args);
+            } catch (GitletException e) {
+                message(e.getMessage());
+            }
+            return;
+        }
+        if (!firstArg.equals("init") && Repository.GITLET_DIR.exists()) {
+            RepoLock.acquire(RepoLock.isReadOnly(firstArg));
+        }
+        runCommand(args);
+        try {
+            StateCache.flush();
+        } catch (GitletException e) {
+            message(e.getMessage());
+        }
+        Journal.close();
+        RepoLock.release();
+    }
+
+    /**
+     * Run one command, printing the message of a GitletException it fails with.
+     * The state it modified stays in the StateCache until the caller flushes it.
+     * @param args the command and its operands
+     */
+    static void runCommand(String[] args) {
+        try {
+            dispatch(args);
+        } catch (GitletException e) {
+            message(e.getMessage());
+        }
+    }
+
+    /** Run the command named by ARGS[0]. */
+    private static void dispatch(String[] args) {
         String firstArg = args[0];
         switch(firstArg) {
             case "init":
                 validateArgs(args, 1);
                 Repository.init();
                 break;
+            case "clone":
+                if (args.length == 2) {
+                    Repository.cloneRepo(args[1], false);
+                } else if (args.length == 3 && args[2].equals("--shared")) {
+                    Repository.cloneRepo(args[1], true);
+                } else {
+                    throw error("Incorrect operands.");
+                }
+                break;
             case "add":
                 validateArgs(args, 2);
                 Repository.add(args[1]);
@@ -57,6 +105,14 @@ public class Main {
                 validateArgs(args, 1);
                 Repository.status();
                 break;
+            case "fsck":
+                validateArgs(args, 1);
+                Repository.fsck();
+                break;
+            case "blame":
+                validateArgs(args, 2);
+                Repository.blame(args[1]);
+                break;
             case "checkout":
                 if (args.length == 2) {
                     Repository.checkoutBranch(args[1]);
@@ -65,8 +121,7 @@ public class Main {
                 } else if (args.length == 4 && args[2].equals("--")) {
                     Repository.checkoutFileFromCommit(args[1], args[3]);
                 } else {
-                    message("Incorrect operands.");
-                    System.exit(0);
+                    throw error("Incorrect operands.");
                 }
                 break;
             case "branch":
@@ -85,6 +140,17 @@ public class Main {
                 validateArgs(args, 2);
                 Repository.merge(args[1]);
                 break;
+            case "sparse-checkout":
+                if (args.length >= 3 && args[1].equals("set")) {
+                    Repository.sparseCheckoutSet(Arrays.copyOfRange(args, 2, args.length));
+                } else if (args.length == 2 && args[1].equals("list")) {
+                    Repository.sparseCheckoutList();
+                } else if (args.length == 2 && args[1].equals("disable")) {
+                    Repository.sparseCheckoutDisable();
+                } else {
+                    throw error("Incorrect operands.");
+                }
+                break;
             default:
                 message("No command with that name exists.");
                 break;
@@ -98,8 +164,7 @@ public class Main {
      */
     private static void validateArgs(String args[], int argNum) {
         if (args.length != argNum) {
-            message("Incorrect operands.");
-            System.exit(0);
+            throw error("Incorrect operands.");
         }
     }
 }
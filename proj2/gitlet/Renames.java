@@ -0,0 +1,278 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static gitlet.Helper.*;
+import static gitlet.Utils.*;
+
+/**
+ * Rename detection between two snapshots, backed by a MinHash similarity index.
+ * <p>
+ * The content of a blob is cut into overlapping SHINGLE-byte windows. Its signature
+ * keeps, for each of NUM_HASHES hash functions, the smallest hash of any window.
+ * Two signatures agree in a given position with probability equal to the Jaccard
+ * similarity of the two window sets, so the fraction of agreeing positions
+ * estimates how alike the blobs are. Signatures are cached per blob ID under
+ * .gitlet/similarity, so each blob is read and hashed once.
+ * <p>
+ * Comparing every deleted path with every added one would be quadratic. Instead the
+ * signatures are cut into BANDS bands of ROWS positions, and only paths that share
+ * a whole band with a deleted path are compared with it (locality-sensitive hashing).
+ * Pairs scoring at least THRESHOLD are taken best first, each path used at most once.
+ * @author Suiren
+ */
+class Renames {
+    /** The directory of cached signatures, one file per blob ID. */
+    static final File SIMILARITY_DIR = join(Repository.GITLET_DIR, "similarity");
+
+    /** Width in bytes of a shingle. */
+    private static final int SHINGLE = 8;
+    /** Number of bands of the signature. */
+    private static final int BANDS = 16;
+    /** Positions per band. */
+    private static final int ROWS = 4;
+    /** Length of a signature. */
+    private static final int NUM_HASHES = BANDS * ROWS;
+    /** Lowest estimated similarity of a rename. */
+    private static final double THRESHOLD = 0.5;
+
+    /** Multipliers and offsets of the hash functions, fixed so cached signatures stay valid. */
+    private static final long[] MUL = new long[NUM_HASHES];
+    private static final long[] ADD = new long[NUM_HASHES];
+
+    static {
+        Random r = new Random(61);
+        for (int i = 0; i < NUM_HASHES; ++i) {
+            MUL[i] = r.nextLong() | 1;
+            ADD[i] = r.nextLong();
+        }
+    }
+
+    /** A candidate rename. */
+    private static class Pair {
+        private final String from;
+        private final String to;
+        private final double score;
+
+        Pair(String from, String to, double score) {
+            this.from = from;
+            this.to = to;
+            this.score = score;
+        }
+    }
+
+    /** One band of a signature, used as a hash key. */
+    private static class Band {
+        private final int index;
+        private final int[] signature;
+
+        Band(int index, int[] signature) {
+            this.index = index;
+            this.signature = signature;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = index;
+            for (int i = index * ROWS; i < (index + 1) * ROWS; ++i) {
+                h = h * 31 + signature[i];
+            }
+            return h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Band)) {
+                return false;
+            }
+            Band other = (Band) o;
+            if (other.index != index) {
+                return false;
+            }
+            for (int i = index * ROWS; i < (index + 1) * ROWS; ++i) {
+                if (signature[i] != other.signature[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Find the files renamed from BEFORE to AFTER, both mapping paths to blob IDs.
+     * Only paths tracked in BEFORE but not in AFTER can be the source of a rename,
+     * and only paths tracked in AFTER but not in BEFORE its target.
+     * @return the renames, from the new path to the old one
+     */
+    static Map<String, String> detect(Map<String, String> before, Map<String, String> after) {
+        Map<String, int[]> deleted = new HashMap<>();
+        for (Map.Entry<String, String> e : before.entrySet()) {
+            if (!after.containsKey(e.getKey()) && e.getValue() != null) {
+                putSignature(deleted, e.getKey(), e.getValue());
+            }
+        }
+        Map<String, String> re = new HashMap<>();
+        if (deleted.isEmpty()) {
+            return re;
+        }
+        Map<String, int[]> added = new HashMap<>();
+        for (Map.Entry<String, String> e : after.entrySet()) {
+            if (!before.containsKey(e.getKey()) && e.getValue() != null) {
+                putSignature(added, e.getKey(), e.getValue());
+            }
+        }
+        if (added.isEmpty()) {
+            return re;
+        }
+
+        Map<Band, List<String>> buckets = new HashMap<>();
+        for (Map.Entry<String, int[]> e : deleted.entrySet()) {
+            for (int b = 0; b < BANDS; ++b) {
+                buckets.computeIfAbsent(new Band(b, e.getValue()), k -> new ArrayList<>())
+                        .add(e.getKey());
+            }
+        }
+        List<Pair> pairs = new ArrayList<>();
+        for (Map.Entry<String, int[]> e : added.entrySet()) {
+            Set<String> candidates = new HashSet<>();
+            for (int b = 0; b < BANDS; ++b) {
+                List<String> bucket = buckets.get(new Band(b, e.getValue()));
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+            for (String from : candidates) {
+                double score = similarity(deleted.get(from), e.getValue());
+                if (score >= THRESHOLD) {
+                    pairs.add(new Pair(from, e.getKey(), score));
+                }
+            }
+        }
+
+        pairs.sort((x, y) -> Double.compare(y.score, x.score));
+        Set<String> used = new HashSet<>();
+        for (Pair p : pairs) {
+            if (!re.containsKey(p.to) && !used.contains(p.from)) {
+                re.put(p.to, p.from);
+                used.add(p.from);
+            }
+        }
+        return re;
+    }
+
+    /** @return whether the two blobs hold the same bytes; blob IDs also hash the path. */
+    static boolean sameContent(String blobA, String blobB) {
+        if (blobA == null || blobB == null) {
+            return false;
+        }
+        return Arrays.equals(readBlob(blobA).getContent(), readBlob(blobB).getContent());
+    }
+
+    /**
+     * Save the content of a blob as the version of file PATH.
+     * @return the ID of that version, which is the blob's own ID if it already belongs to PATH
+     */
+    static String rekey(String blobID, String path) {
+        Blob blob = readBlob(blobID);
+        if (blob.getPath().equals(path)) {
+            return blobID;
+        }
+        Blob moved = new Blob(path, blob.getContent());
+        moved.save();
+        return moved.getID();
+    }
+
+    /** @return the estimated Jaccard similarity of two signatures. */
+    private static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < NUM_HASHES; ++i) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / NUM_HASHES;
+    }
+
+    /** Put the signature of BLOBID under PATH, unless the blob is empty. */
+    private static void putSignature(Map<String, int[]> map, String path, String blobID) {
+        int[] signature = signature(blobID);
+        if (signature.length > 0) {
+            map.put(path, signature);
+        }
+    }
+
+    /** @return the cached signature of a blob, computing it on a miss; empty for an empty blob. */
+    static int[] signature(String blobID) {
+        File cache = join(SIMILARITY_DIR, blobID);
+        if (cache.exists()) {
+            return readObject(cache, int[].class);
+        }
+        int[] signature = minHash(readBlob(blobID).getContent());
+        writeCache(blobID, signature);
+        return signature;
+    }
+
+    /** @return the MinHash signature of CONTENT. */
+    static int[] minHash(byte[] content) {
+        if (content.length == 0) {
+            return new int[0];
+        }
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int windows = Math.max(1, content.length - SHINGLE + 1);
+        for (int start = 0; start < windows; ++start) {
+            long h = 0;
+            for (int k = start; k < start + SHINGLE && k < content.length; ++k) {
+                h = (h << 8) | (content[k] & 0xff);
+            }
+            h = mix(h);
+            for (int i = 0; i < NUM_HASHES; ++i) {
+                int v = (int) ((MUL[i] * h + ADD[i]) >>> 33);
+                if (v < signature[i]) {
+                    signature[i] = v;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /** The finalizer of SplitMix64, spreading the bits of a shingle. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static Blob readBlob(String blobID) {
+        return readObject(findObjectBlobFile(blobID), Blob.class);
+    }
+
+    /**
+     * Save the signature of a blob. Like the blame cache, the file is written aside
+     * and renamed, since status computes signatures under the shared lock.
+     */
+    private static void writeCache(String blobID, int[] signature) {
+        if (!SIMILARITY_DIR.exists()) {
+            SIMILARITY_DIR.mkdir();
+        }
+        try {
+            File tmp = File.createTempFile(blobID, ".tmp", SIMILARITY_DIR);
+            writeObject(tmp, signature);
+            Files.move(tmp.toPath(), join(SIMILARITY_DIR, blobID).toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw error("Cannot write similarity cache: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static gitlet.Repository.GITLET_DIR;
+import static gitlet.Utils.*;
+
+/**
+ * Inter-process locking of a gitlet repository, built on FileChannel.lock.
+ * <p>
+ * Repository lock (.gitlet/lock): read-only commands (log, global-log, find, status, blame, fsck)
+ * share it, so any number of them run side by side. Commands that write take it
+ * exclusively and wait for the readers to finish.
+ * <p>
+ * Reference locks (.gitlet/refs.lock): every reference file owns one byte of
+ * refs.lock, picked by the hash of its path. A journal transaction that expects
+ * a reference to hold a given value locks that byte, compares, and only then writes.
+ * So two updates of the same branch head can never silently overwrite each other,
+ * even when they don't share the repository lock.
+ * <p>
+ * The OS drops every lock when the process exits, including on System.exit.
+ * @author Suiren
+ */
+class RepoLock {
+    /** The repository lock file. */
+    static final File LOCK_FILE = join(GITLET_DIR, "lock");
+    /** The file whose bytes stand for the reference locks. */
+    static final File REFS_LOCK_FILE = join(GITLET_DIR, "refs.lock");
+    /** Number of distinct reference lock slots. */
+    private static final int REF_SLOTS = 1 << 16;
+
+    /** File locks are held per JVM, so threads of one JVM take reference locks in turn. */
+    private static final ReentrantLock REF_MUTEX = new ReentrantLock();
+
+    private static FileChannel channel;
+    private static FileLock lock;
+
+    /** Commands which only read the repository. */
+    static boolean isReadOnly(String command) {
+        switch (command) {
+            case "log":
+            case "global-log":
+            case "find":
+            case "status":
+            case "blame":
+            case "fsck":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Take the repository lock for a command, blocking until it is granted,
+     * and replay the journal if a previous writer crashed.
+     * Recovery writes files, so a reader that finds work to do briefly takes
+     * the lock exclusively first.
+     * @param shared true for a read lock, false for an exclusive one
+     */
+    static void acquire(boolean shared) {
+        if (shared) {
+            lock(true);
+            if (!Journal.needsRecovery()) {
+                return;
+            }
+            release();
+        }
+        lock(false);
+        Journal.recover();
+        if (shared) {
+            release();
+            lock(true);
+        }
+    }
+
+    private static void lock(boolean shared) {
+        try {
+            channel = FileChannel.open(LOCK_FILE.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            lock = channel.lock(0, Long.MAX_VALUE, shared);
+        } catch (IOException e) {
+            throw error("Cannot lock repository: " + e.getMessage());
+        }
+    }
+
+    /** Release the repository lock if this process holds it. */
+    static void release() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw error("Cannot unlock repository: " + e.getMessage());
+        } finally {
+            lock = null;
+            channel = null;
+        }
+    }
+
+    /**
+     * Exclusively lock the given reference files until the returned handle is closed.
+     * Slots are taken in increasing order, so two lockers can never deadlock.
+     */
+    static RefLocks lockRefs(Collection<File> refs) {
+        TreeSet<Integer> slots = new TreeSet<>();
+        for (File ref : refs) {
+            slots.add(Math.floorMod(ref.getAbsolutePath().hashCode(), REF_SLOTS));
+        }
+        return new RefLocks(slots);
+    }
+
+    /** A set of held reference locks. */
+    static class RefLocks implements AutoCloseable {
+        private final FileChannel refsChannel;
+        private final List<FileLock> held = new ArrayList<>();
+
+        private RefLocks(TreeSet<Integer> slots) {
+            REF_MUTEX.lock();
+            try {
+                refsChannel = FileChannel.open(REFS_LOCK_FILE.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                for (int slot : slots) {
+                    held.add(refsChannel.lock(slot, 1, false));
+                }
+            } catch (IOException e) {
+                close();
+                throw error("Cannot lock references: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                for (FileLock l : held) {
+                    l.release();
+                }
+                if (refsChannel != null) {
+                    refsChannel.close();
+                }
+            } catch (IOException e) {
+                throw error("Cannot unlock references: " + e.getMessage());
+            } finally {
+                REF_MUTEX.unlock();
+            }
+        }
+    }
+}
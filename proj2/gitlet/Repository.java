@@ -24,12 +24,19 @@ public class Repository {
      *   |-objects
      *      |-commits
      *      |-blobs
+     *      |-info
+     *          |-alternates (other object stores to read from, see Alternates)
      *   |-refs
      *      |-heads
      *          |-master
      *          |-others
      *   |-HEAD
      *   |-index (stage area)
+     *   |-journal (write-ahead log of multi-file updates, see Journal)
+     *   |-blame (cached line origins per blob, see Blame)
+     *   |-similarity (cached MinHash signatures per blob, see Renames)
+     *   |-info
+     *      |-sparse-checkout (patterns of files kept in the working directory, see Sparse)
      *
      * NOTICE:
      * 1. .gitlet, objects, refs, and heads are created as init() executes.
@@ -43,8 +50,12 @@ public class Repository {
      * variable is used. We've provided two examples for you.
      */
 
-    /** The current working directory. */
-    public static final File CWD = new File(System.getProperty("user.dir"));
+    /**
+     * The current working directory.
+     * A harness may point gitlet at another directory with -Dgitlet.cwd=DIR.
+     */
+    public static final File CWD = new File(System.getProperty("gitlet.cwd",
+            System.getProperty("user.dir"))).getAbsoluteFile();
 
     /** The .gitlet directory. */
     public static final File GITLET_DIR = join(CWD, ".gitlet");
@@ -87,8 +98,7 @@ public class Repository {
      */
     public static void init() {
         if (GITLET_DIR.exists()) {
-            message("A Gitlet version-control system already exists in the current directory.");
-            System.exit(0);
+            throw error("A Gitlet version-control system already exists in the current directory.");
         }
 
         GITLET_DIR.mkdir();
@@ -107,6 +117,19 @@ public class Repository {
         initCommit();
     }
 
+    /**
+     * Create a repository in the working directory as a copy of the one in SOURCE,
+     * with the same branches and the head commit checked out.
+     * Objects are hard-linked from the source when possible, otherwise copied.
+     * With SHARED, nothing is copied: the source objects directory is recorded as
+     * an alternate store and read from in place.
+     * @param source the working directory of the repository to clone
+     * @param shared whether to borrow the source objects instead of linking them
+     */
+    public static void cloneRepo(String source, boolean shared) {
+        Alternates.cloneFrom(new File(source).getAbsoluteFile(), shared);
+    }
+
     /**
      * Create an initial commit node,
      * Save it as a file in Objects directory.
@@ -124,7 +147,7 @@ public class Repository {
      * @param branch the name of the current branch
      */
     private static void setCurrentBranch(String branch) {
-        writeContents(HEAD_FILE,  BRANCH_PREFIX + branch);
+        StateCache.write(HEAD_FILE,  BRANCH_PREFIX + branch);
     }
 
     /**
@@ -133,7 +156,7 @@ public class Repository {
      * @param id the ID of the current commit, also the written content.
      */
     private static void setBranchHead(File file, String id) {
-        writeContents(file, id);
+        StateCache.write(file, id);
     }
 
     /**
@@ -151,7 +174,7 @@ public class Repository {
      * @return the commit ID of the head commit on that branch
      */
     private static String getBranchHeadCommitID(String branchName) {
-        return readContentsAsString(join(Repository.BRANCH_HEADS_DIR, branchName));
+        return StateCache.readString(join(Repository.BRANCH_HEADS_DIR, branchName));
     }
 
     /**
@@ -177,8 +200,7 @@ public class Repository {
     public static void add(String fileName) {
         File file = join(CWD, fileName);
         if (!file.exists()) {
-            message("File does not exist.");
-            System.exit(0);
+            throw error("File does not exist.");
         }
         StageArea.addFile(file);
         // createBlob(file);
@@ -198,12 +220,10 @@ public class Repository {
         StageArea stage = getStageArea();
 
         if (message.isEmpty()) {
-            message("Please enter a commit message.");
-            System.exit(0);
+            throw error("Please enter a commit message.");
         }
         if (stage.isClear()) {
-            message("No changes added to the commit.");
-            System.exit(0);
+            throw error("No changes added to the commit.");
         }
 
 //        Commit curCommit = Repository.getCurrentCommit();
@@ -213,10 +233,20 @@ public class Repository {
 
         Commit newCommit = chainCommitAfterCurrent(message);
         modifyTrack(newCommit, stage);
-        newCommit.save(); // in objects directory
-
         stage.clearStage();
-        writeObject(STAGE_AREA, stage); // in index file
+        commitTransaction(newCommit, stage);
+    }
+
+    /**
+     * Save the new commit node, the cleared stage area, HEAD and the branch head.
+     * The state is flushed as one journal transaction when the command ends,
+     * so a crash never leaves only some of them updated.
+     * @param newCommit the new head commit of the current branch
+     * @param stage the cleared stage area
+     */
+    private static void commitTransaction(Commit newCommit, StageArea stage) {
+        StateCache.saveObject(getObjectCommitFile(newCommit.getID()), newCommit); // in objects directory
+        StageArea.save(stage); // in index file
         setCurrentBranch(getCurrentBranchName()); // in HEAD file
         setBranchHeadCommit(getCurrentBranchName(), newCommit.getID()); // in refs/heads directory
     }
@@ -254,9 +284,9 @@ public class Repository {
      * @return the last commit node
      */
     public static Commit getCurrentCommit() {
-        String headPath = readContentsAsString(HEAD_FILE);
+        String headPath = StateCache.readString(HEAD_FILE);
         File curBranchHead = join(GITLET_DIR, headPath);
-        String commitHash = readContentsAsString(curBranchHead);
+        String commitHash = StateCache.readString(curBranchHead);
 
         return getCommitFromID(commitHash);
     }
@@ -266,7 +296,7 @@ public class Repository {
      * @return the current branch head in heads directory.
      */
     private static String getCurrentBranch() {
-        return readContentsAsString(HEAD_FILE);
+        return StateCache.readString(HEAD_FILE);
     }
 
     /**
@@ -274,15 +304,15 @@ public class Repository {
      * @param id the hashed commit node.
      * @return the commit node
      */
-    private static Commit getCommitFromID(String id) {
+    static Commit getCommitFromID(String id) {
         if (id.length() < UID_LENGTH) {
             return getCommitFromAbbrID(id);
         }
-        File dst = getObjectCommitFile(id);
-        if (!dst.exists()) {
+        File dst = findObjectCommitFile(id);
+        if (!StateCache.exists(dst)) {
             return null;
         }
-        return readObject(dst, Commit.class);
+        return StateCache.readObject(dst, Commit.class);
     }
 
     /**
@@ -291,14 +321,14 @@ public class Repository {
      * @return the commit node.
      */
     public static Commit getCommitFromAbbrID(String shortID) {
-        List<String> commits = plainFilenamesIn(Repository.COMMITS_DIR);
+        List<String> commits = Alternates.list(Alternates.COMMITS);
         for (String id : commits) {
             if (id.startsWith(shortID)) {
-                File dstFile = getObjectCommitFile(id);
-                if (!dstFile.exists()) {
+                File dstFile = findObjectCommitFile(id);
+                if (!StateCache.exists(dstFile)) {
                     return null;
                 } else {
-                    return readObject(dstFile, Commit.class);
+                    return StateCache.readObject(dstFile, Commit.class);
                 }
             }
         }
@@ -318,8 +348,7 @@ public class Repository {
         StageArea stage = getStageArea();
 
         if (Objects.isNull(stage)) {
-            message("No .gitlet directory here.");
-            System.exit(0);
+            throw error("No .gitlet directory here.");
         }
 
         File file = join(CWD, fileName);
@@ -340,12 +369,11 @@ public class Repository {
             if (cur.getTrack().containsKey(fileName)) {
                 restrictedDelete(file);
             } else {
-                message("No reason to remove the file.");
-                System.exit(0);
+                throw error("No reason to remove the file.");
             }
         }
 
-        writeObject(STAGE_AREA, stage);
+        StageArea.save(stage);
     }
 
     /**
@@ -400,7 +428,7 @@ public class Repository {
      * For simplicity, the order of the commits doesn't matter.
      */
     public static void globalLog() {
-        List<String> commits = plainFilenamesIn(Repository.COMMITS_DIR);
+        List<String> commits = Alternates.list(Alternates.COMMITS);
         if (commits.isEmpty()) {
             throw new GitletException("No commits yet.");
         }
@@ -415,10 +443,9 @@ public class Repository {
      * If no such commit exists, print error message.
      */
     public static void find(String message) {
-        List<String> commits = plainFilenamesIn(Repository.COMMITS_DIR);
+        List<String> commits = Alternates.list(Alternates.COMMITS);
         if (commits.isEmpty()) {
-            message("Found no commit with that message.");
-            System.exit(0);
+            throw error("Found no commit with that message.");
         }
         boolean found = false;
         for (String id : commits) {
@@ -429,9 +456,54 @@ public class Repository {
             }
         }
         if (!found) {
-            message("Found no commit with that message.");
-            System.exit(0);
+            throw error("Found no commit with that message.");
+        }
+    }
+
+    /**
+     * Show, for every line of the file in the head commit, the commit that last changed it.
+     * Only the first-parent history is followed. See Blame for the caching.
+     * If the file isn't tracked in the head commit, print error message.
+     * @param fileName the name of the file to blame
+     */
+    public static void blame(String fileName) {
+        Blame.blame(fileName);
+    }
+
+    /**
+     * Verify every object in the repository in parallel, then walk the commit graph
+     * from the branch heads. Print corrupt, missing and dangling objects,
+     * and the verification throughput.
+     */
+    public static void fsck() {
+        if (!GITLET_DIR.exists()) {
+            throw error("Not in an initialized Gitlet directory.");
         }
+        StateCache.flush(); // fsck checks the files, so write out what a batch has pending
+        Fsck.fsck();
+    }
+
+    /**
+     * Restrict the working directory to the files matching the given glob patterns.
+     * Tracked files leaving the set are deleted, those entering it are checked out.
+     * @param patterns the new sparse set
+     */
+    public static void sparseCheckoutSet(String[] patterns) {
+        Sparse.set(patterns);
+    }
+
+    /**
+     * Print the patterns of the sparse checkout.
+     */
+    public static void sparseCheckoutList() {
+        Sparse.list();
+    }
+
+    /**
+     * Turn sparse checkout off, checking out every tracked file again.
+     */
+    public static void sparseCheckoutDisable() {
+        Sparse.disable();
     }
 
     /**
@@ -461,11 +533,11 @@ public class Repository {
      */
     public static void status() {
         if (!(GITLET_DIR.exists() && GITLET_DIR.isDirectory())) {
-            message("Not in an initialized Gitlet directory.");
-            System.exit(0);
+            throw error("Not in an initialized Gitlet directory.");
         }
         displayBranches();
         displayStage();
+        displayRenamed();
         displayModificationNotStaged();
         displayUntracked();
     }
@@ -477,7 +549,7 @@ public class Repository {
     private static void displayBranches() {
         System.out.println("=== Branches ===");
         // System.out.println("*" + getCurrentBranchName());
-        List<String> heads = plainFilenamesIn(BRANCH_HEADS_DIR);
+        List<String> heads = StateCache.list(BRANCH_HEADS_DIR);
         if (Objects.isNull(heads)) {
             message("Not in an initialized Gitlet directory.");
         }
@@ -519,6 +591,32 @@ public class Repository {
         System.out.println();
     }
 
+    /**
+     * Print the staged removals that pair up with a staged addition of similar content,
+     * as "old -> new". The section is only shown when there is such a rename.
+     */
+    private static void displayRenamed() {
+        StageArea stage = getStageArea();
+        if (stage.getRemoveStage().isEmpty() || stage.getAddStage().isEmpty()) {
+            return;
+        }
+        Map<String, String> head = getCurrentCommit().getTrack();
+        Map<String, String> staged = new HashMap<>(head);
+        staged.putAll(stage.getAddStage());
+        for (String file : stage.getRemoveStage()) {
+            staged.remove(file);
+        }
+        Map<String, String> renames = Renames.detect(head, staged);
+        if (renames.isEmpty()) {
+            return;
+        }
+        System.out.println("=== Renamed Files ===");
+        for (String newName : new TreeSet<>(renames.keySet())) {
+            System.out.println(renames.get(newName) + " -> " + newName);
+        }
+        System.out.println();
+    }
+
     /**
      * Display what files in directory have been modified but not staged for commit.
      * That is:
@@ -528,7 +626,7 @@ public class Repository {
      * 4. Not staged for removal, but tracked in the commit and deleted in working directory.
      */
     private static void displayModificationNotStaged() {
-        List<String> files = plainFilenamesIn(Repository.CWD);
+        List<String> files = Sparse.workingFiles();
         System.out.println("=== Modifications Not Staged For Commit ===");
         Map<String, String> tracking = getCurrentCommit().getTrack();
         StageArea stage = getStageArea();
@@ -548,13 +646,14 @@ public class Repository {
         }
 
         for (String file : stage.getAddStage().keySet()) {
-            if (!files.contains(file)) {
+            if (!files.contains(file) && Sparse.includes(file)) {
                 q.add(file + " (deleted)");
             }
         }
 
         for (String file : tracking.keySet()) {
-            if (!stage.getRemoveStage().contains(file) && !files.contains(file)) {
+            if (!stage.getRemoveStage().contains(file) && !files.contains(file)
+                    && Sparse.includes(file)) {
                 q.add(file + " (deleted)");
             }
         }
@@ -569,10 +668,10 @@ public class Repository {
      * Display untracked files, which are in the working directory at present.
      * But neither staged for addition nor tracked.
      * Also including files staged for removal, but then re-created without Gitlet's knowledge.
-     * Ignore any subdirectories.
+     * Ignore any subdirectories, and files outside the sparse checkout.
      */
     private static void displayUntracked() {
-        List<String> files = plainFilenamesIn(Repository.CWD);
+        List<String> files = Sparse.workingFiles();
         Map<String, String> tracking = getCurrentCommit().getTrack();
         StageArea stage = getStageArea();
 
@@ -598,19 +697,13 @@ public class Repository {
      * @param name the name of the new branch
      */
     public static void branch(String name) {
-        if (plainFilenamesIn(BRANCH_HEADS_DIR).contains(name)) {
-            message("A branch with that name already exists.");
-            System.exit(0);
+        if (StateCache.list(BRANCH_HEADS_DIR).contains(name)) {
+            throw error("A branch with that name already exists.");
         }
 
-        File newBranch = join(BRANCH_HEADS_DIR, name);
-        try {
-            newBranch.createNewFile();
-            writeContents(newBranch, getCurrentCommit().getID());
-            getCurrentCommit().setBranchSplit(true);
-        } catch (IOException e) {
-            throw error("Cannot create branch.");
-        }
+        // Written by the flush, in the same transaction as a commit it may point to.
+        setBranchHeadCommit(name, getCurrentCommit().getID());
+        getCurrentCommit().setBranchSplit(true);
     }
 
     /**
@@ -621,17 +714,16 @@ public class Repository {
      * @param name the name of branch to delete.
      */
     public static void rmBranch(String name) {
-        if (!plainFilenamesIn(BRANCH_HEADS_DIR).contains(name)) {
-            message("A branch with that name does not exist.");
-            System.exit(0);
+        if (!StateCache.list(BRANCH_HEADS_DIR).contains(name)) {
+            throw error("A branch with that name does not exist.");
         }
         if (name.equals(getCurrentBranchName())) {
-            message("Cannot remove the current branch.");
-            System.exit(0);
+            throw error("Cannot remove the current branch.");
         }
 
         File dstBranch = join(Repository.BRANCH_HEADS_DIR, name);
         // restrictedDelete(dstBranch);
+        StateCache.forget(dstBranch);
         dstBranch.delete();
     }
 
@@ -650,15 +742,13 @@ public class Repository {
      * Do not change CWD.
      */
     public static void checkoutBranch(String branch) {
-        if (!plainFilenamesIn(BRANCH_HEADS_DIR).contains(branch)) {
-            message("No such branch exists.");
-            System.exit(0);
+        if (!StateCache.list(BRANCH_HEADS_DIR).contains(branch)) {
+            throw error("No such branch exists.");
         }
         if (branch.equals(getCurrentBranchName())) {
-            message("No need to checkout the current branch.");
-            System.exit(0);
+            throw error("No need to checkout the current branch.");
         }
-        List<String> files = plainFilenamesIn(CWD);
+        List<String> files = Sparse.workingFiles();
         Commit curCommit = getCurrentCommit();
         setCurrentBranch(branch);
         Commit checkoutCommit = getCurrentCommit();
@@ -666,9 +756,8 @@ public class Repository {
         for (String file : files) {
             if (!curCommit.getTrack().containsKey(file)
                     && checkoutCommit.getTrack().containsKey(file)) {
-                message("There is an untracked file in the way;"
+                throw error("There is an untracked file in the way;"
                         + " delete it, or add and commit it first.");
-                System.exit(0);
             }
         }
         checkoutHelper(curCommit, checkoutCommit);
@@ -676,29 +765,31 @@ public class Repository {
 
     /**
      * Take charge of the files adding, overwriting and removal.
+     * Files outside the sparse checkout are left alone.
      */
     private static void checkoutHelper(Commit curCommit, Commit checkoutCommit) {
         StageArea stage = getStageArea();
         if (!curCommit.getID().equals(checkoutCommit.getID())) {
             for (String file : checkoutCommit.getTrack().keySet()) {
-                String blobHash = checkoutCommit.getTrack().get(file);
-                overwriteFile(file, blobHash);
+                if (Sparse.includes(file)) {
+                    overwriteFile(file, checkoutCommit.getTrack().get(file));
+                }
             }
             for (String file : curCommit.getTrack().keySet()) {
-                if (!checkoutCommit.getTrack().containsKey(file)) {
+                if (!checkoutCommit.getTrack().containsKey(file) && Sparse.includes(file)) {
                     restrictedDelete(join(CWD, file));
                 }
             }
         }
         stage.clearStage();
-        writeObject(STAGE_AREA, stage);
+        StageArea.save(stage);
     }
 
     /**
      * Overwrite a file according to the given blob hash.
      */
     private static void overwriteFile(String file, String blobHash) {
-        Blob blob = readObject(join(BLOBS_DIR, blobHash), Blob.class);
+        Blob blob = readObject(findObjectBlobFile(blobHash), Blob.class);
         File newFile = join(CWD, file);
         try {
             newFile.createNewFile();
@@ -719,8 +810,7 @@ public class Repository {
         Commit curCommit = getCurrentCommit();
 
         if (!curCommit.getTrack().containsKey(file)) {
-            message("File does not exist in that commit.");
-            System.exit(0);
+            throw error("File does not exist in that commit.");
         } else {
             String blobHash = curCommit.getTrack().get(file);
             overwriteFile(file, blobHash);
@@ -737,13 +827,11 @@ public class Repository {
      */
     public static void checkoutFileFromCommit(String commitID, String file) {
         if (Objects.isNull(getCommitFromID(commitID))) {
-            message("No commit with that id exists");
-            System.exit(0);
+            throw error("No commit with that id exists");
         }
         Commit dstCommit = getCommitFromID(commitID);
         if (!dstCommit.getTrack().containsKey(file)) {
-            message("File does not exist in that commit.");
-            System.exit(0);
+            throw error("File does not exist in that commit.");
         }
         overwriteFile(file, dstCommit.getTrack().get(file));
     }
@@ -759,18 +847,16 @@ public class Repository {
      * "There is an untracked file in the way; delete it, or add and commit it first" then exit.
      */
     public static void reset(String commitID) {
-        if (!plainFilenamesIn(COMMITS_DIR).contains(commitID)) {
-            message("No commit with that id exists");
-            System.exit(0);
+        if (commitID.length() < UID_LENGTH || Objects.isNull(getCommitFromID(commitID))) {
+            throw error("No commit with that id exists");
         }
         Commit curCommit = getCurrentCommit();
         Commit dstCommit = getCommitFromID(commitID);
-        for (String file : Objects.requireNonNull(plainFilenamesIn(CWD))) {
+        for (String file : Sparse.workingFiles()) {
             if (!curCommit.getTrack().containsKey(file)) {
                 if (dstCommit.getTrack().containsKey(file)) {
-                    message("There is an untracked file in the way;"
+                    throw error("There is an untracked file in the way;"
                             + " delete it, or add and commit it first");
-                    System.exit(0);
                 } else {
                     restrictedDelete(file);
                 }
@@ -780,7 +866,7 @@ public class Repository {
         setBranchHeadCommit(getCurrentBranchName(), commitID);
         StageArea stage = getStageArea();
         stage.clearStage();
-        writeObject(STAGE_AREA, stage);
+        StageArea.save(stage);
     }
 
     /**
@@ -811,6 +897,10 @@ public class Repository {
      * 8. If a file was present at split point and unmodified in the given branch,
      *    absent in the current branch, remain it absent.<br>
      * Absent: Not tracked nor staged.
+     * A file renamed since the split point in one branch is merged under its new name,
+     * see followRenames.
+     * Files outside the sparse checkout are merged without touching the working directory,
+     * except for conflicts, which are always written out.
      * @param branchName the name of the branch to merge.
      */
     public static void merge(String branchName) {
@@ -822,18 +912,30 @@ public class Repository {
         Commit splitPoint = getLCACommit(curCommit, dstCommit);
 
         if (splitPoint.getID().equals(dstCommit.getID())) {
-            message("Given branch is an ancestor of the current branch.");
-            System.exit(0);
+            throw error("Given branch is an ancestor of the current branch.");
         }
         if (splitPoint.getID().equals(curCommit.getID())) {
             checkoutBranch(branchName);
-            message("Current branch fast-forwarded.");
-            System.exit(0);
+            throw error("Current branch fast-forwarded.");
         }
 
-        Map<String, String> splitPointTrack = splitPoint.getTrack();
-        Map<String, String> curTrack = curCommit.getTrack();
-        Map<String, String> dstTrack = dstCommit.getTrack();
+        Map<String, String> splitPointTrack = new HashMap<>(splitPoint.getTrack());
+        Map<String, String> curTrack = new HashMap<>(curCommit.getTrack());
+        Map<String, String> dstTrack = new HashMap<>(dstCommit.getTrack());
+        for (Map.Entry<String, String> move
+                : followRenames(splitPointTrack, curTrack, dstTrack).entrySet()) {
+            String oldName = move.getKey();
+            String newName = move.getValue();
+            if (Sparse.includes(oldName)) {
+                restrictedDelete(join(CWD, oldName)); // moved in the given branch
+            }
+            stage.getRemoveStage().add(oldName);
+            // Written here since a pure rename makes both branches agree on NEWNAME
+            // (case 3), which only stages; a case below that differs overwrites it.
+            if (Sparse.includes(newName)) {
+                overwriteFile(newName, dstTrack.get(newName));
+            }
+        }
         Set<String> splitFiles = new HashSet<>(splitPointTrack.keySet());
         splitFiles.addAll(dstTrack.keySet());
         splitFiles.addAll(curTrack.keySet());
@@ -843,10 +945,14 @@ public class Repository {
                 if (Objects.equals(splitPointTrack.get(file), curTrack.get(file))) {
                     // cur unchanged
                     if (Objects.isNull(dstTrack.get(file))) { // deleted in dst branch (case 7)
-                        restrictedDelete(join(CWD, file)); // remove after merge
+                        if (Sparse.includes(file)) {
+                            restrictedDelete(join(CWD, file)); // remove after merge
+                        }
                         stage.getRemoveStage().add(file);
                     } else { // cur unchanged, still tracked in dst branch (case 1, 6)
-                        overwriteFile(file, dstTrack.get(file)); // checkout to dst branch
+                        if (Sparse.includes(file)) {
+                            overwriteFile(file, dstTrack.get(file)); // checkout to dst branch
+                        }
                         stage.getAddStage().put(file, dstTrack.get(file));
                     }
                 } else { // cur differs from split point
@@ -856,11 +962,11 @@ public class Repository {
                         byte[] curContent = "".getBytes(StandardCharsets.UTF_8); // notice coding
                         byte[] dstContent = "".getBytes(StandardCharsets.UTF_8);
                         if (Objects.nonNull(curTrack.get(file))) {
-                            curContent = readObject(join(BLOBS_DIR, curTrack.get(file)),
+                            curContent = readObject(findObjectBlobFile(curTrack.get(file)),
                                     Blob.class).getContent();
                         }
                         if (Objects.nonNull(dstTrack.get(file))) {
-                            dstContent = readObject(join(BLOBS_DIR, dstTrack.get(file)),
+                            dstContent = readObject(findObjectBlobFile(dstTrack.get(file)),
                                     Blob.class).getContent();
                         }
 
@@ -877,10 +983,14 @@ public class Repository {
                         }
                     } else if (Objects.isNull(curTrack.get(file))) {
                         // dst unchanged, removed in cur branch (case 8)
-                        restrictedDelete(join(CWD, file));
+                        if (Sparse.includes(file)) {
+                            restrictedDelete(join(CWD, file));
+                        }
                         stage.getRemoveStage().add(file);
                     } else { // dst unchanged, cur changed but still tracking (case 2, 5)
-                        overwriteFile(file, curTrack.get(file)); // overwrite as in cur branch
+                        if (Sparse.includes(file)) {
+                            overwriteFile(file, curTrack.get(file)); // overwrite as in cur branch
+                        }
                         stage.getAddStage().put(file, curTrack.get(file));
                     }
                 }
@@ -888,11 +998,68 @@ public class Repository {
                 stage.getAddStage().put(file, curTrack.get(file));
             } // cases end, waiting for new commit
         }
-        writeObject(STAGE_AREA, stage);
+        StageArea.save(stage);
         //displayCommit(getCurrentCommit());
         mergeCommit(curCommit, dstCommit, branchName);
     }
 
+    /**
+     * Follow the files renamed since the split point in one of the two branches.
+     * A file moved from OLD to NEW in one branch is merged as NEW in all three views:
+     * OLD is dropped, and the split point and other branch versions move to NEW.
+     * A version equal to the split point stays equal to it after the move, so a file
+     * renamed in one branch and edited in the other merges without conflict.
+     * Files renamed in both branches, or to a name the other branch also uses, are
+     * left to the ordinary cases.
+     * @param split the split point view, modified in place
+     * @param cur the current branch view, modified in place
+     * @param dst the given branch view, modified in place
+     * @return the files the given branch renamed that are tracked in the current branch,
+     *         from their old name to their new one
+     */
+    private static Map<String, String> followRenames(Map<String, String> split,
+                                                     Map<String, String> cur, Map<String, String> dst) {
+        Map<String, String> curRenames = Renames.detect(split, cur);
+        Map<String, String> dstRenames = Renames.detect(split, dst);
+        Set<String> renamedInCur = new HashSet<>(curRenames.values());
+        Map<String, String> renamedAway = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : dstRenames.entrySet()) {
+            String newName = e.getKey();
+            String oldName = e.getValue();
+            if (!renamedInCur.contains(oldName) && !cur.containsKey(newName)) {
+                if (cur.containsKey(oldName)) {
+                    renamedAway.put(oldName, newName);
+                }
+                moveInViews(split, cur, dst, oldName, newName);
+            }
+        }
+        for (Map.Entry<String, String> e : curRenames.entrySet()) {
+            String newName = e.getKey();
+            String oldName = e.getValue();
+            if (!dstRenames.containsValue(oldName) && !dst.containsKey(newName)) {
+                moveInViews(split, dst, cur, oldName, newName);
+            }
+        }
+        return renamedAway;
+    }
+
+    /**
+     * Move OLDNAME to NEWNAME in the split point and OTHER views,
+     * after the branch of RENAMED moved it.
+     */
+    private static void moveInViews(Map<String, String> split, Map<String, String> other,
+                                    Map<String, String> renamed, String oldName, String newName) {
+        String base = split.remove(oldName);
+        String ours = other.remove(oldName);
+        // Blob IDs hash the path too, so a pure rename gets a new ID for the same content.
+        String movedBase = Renames.sameContent(base, renamed.get(newName))
+                ? renamed.get(newName) : base;
+        split.put(newName, movedBase);
+        if (ours != null) {
+            other.put(newName, ours.equals(base) ? movedBase : Renames.rekey(ours, newName));
+        }
+    }
+
     /**
      * Find the latest common ancestor between two commits.
      * @param curCommit the current commit.
@@ -987,34 +1154,29 @@ public class Repository {
     private static void preMergeCheck(String branchName) {
         String curBranch = getCurrentBranchName();
         if (branchName.equals(curBranch)) {
-            message("Cannot merge a branch with itself.");
-            System.exit(0);
+            throw error("Cannot merge a branch with itself.");
         }
-        if (!plainFilenamesIn(BRANCH_HEADS_DIR).contains(branchName)) {
-            message("A branch with that name does not exist.");
-            System.exit(0);
+        if (!StateCache.list(BRANCH_HEADS_DIR).contains(branchName)) {
+            throw error("A branch with that name does not exist.");
         }
         StageArea stage = getStageArea();
         if (!stage.isClear()) {
-            message("You have uncommitted changes.");
-            System.exit(0);
+            throw error("You have uncommitted changes.");
         }
 
         Commit curCommit = getCurrentCommit();
         // Commit dstCommit = getBranchHeadCommit(branchName);
 
-        for (String file : Objects.requireNonNull(plainFilenamesIn(CWD))) {
+        for (String file : Sparse.workingFiles()) {
             if (!curCommit.getTrack().containsKey(file)) { // untracked
                 if (!stage.getAddStage().containsKey(file)) { // unstaged to add
-                    message("There is an untracked file in the way;"
+                    throw error("There is an untracked file in the way;"
                             + " delete it, or add and commit it first");
-                    System.exit(0);
                 }
             }
             if (stage.getRemoveStage().contains(file)) { // will be deleted
-                message("There is an untracked file in the way;"
+                throw error("There is an untracked file in the way;"
                         + " delete it, or add and commit it first");
-                System.exit(0);
             }
         }
     }
@@ -1029,7 +1191,7 @@ public class Repository {
         StageArea stage = getStageArea();
         //displayCommit(getCurrentCommit());
         dstCommit.setBranchSplit(true);
-        writeObject(join(COMMITS_DIR, dstCommit.getID()), dstCommit);
+        StateCache.saveObject(join(COMMITS_DIR, dstCommit.getID()), dstCommit);
         //displayCommit(getCurrentCommit());
         Commit newCommit = new Commit("Merged " + branchName
                 + " into " + getCurrentBranchName() + ".",
@@ -1038,13 +1200,10 @@ public class Repository {
         modifyTrack(newCommit, stage);
         newCommit.recomputeID();
         // newCommit.resetFile();
-        newCommit.save();
         //displayCommit(newCommit);
 
         stage.clearStage();
-        writeObject(STAGE_AREA, stage);
-        setCurrentBranch(getCurrentBranchName());
-        setBranchHeadCommit(getCurrentBranchName(), newCommit.getID());
+        commitTransaction(newCommit, stage);
         //displayCommit(getCurrentCommit());
     }
 }
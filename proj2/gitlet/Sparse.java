@@ -0,0 +1,169 @@
+package gitlet;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.PatternSyntaxException;
+
+import static gitlet.StageArea.getStageArea;
+import static gitlet.Utils.*;
+
+/**
+ * Sparse checkout: only files matching a set of patterns live in the working directory.
+ * <p>
+ * The patterns are globs (*, ?, [abc], {a,b}) over file names, one per line of
+ * .gitlet/info/sparse-checkout; blank lines and lines starting with # are ignored.
+ * Without that file every file is in the sparse set.
+ * <p>
+ * Files outside the set stay tracked: commits, merges and resets carry them over
+ * unchanged, but checkout, reset and merge never write or delete them in the
+ * working directory, and status neither scans nor reports them. So the I/O of a
+ * checkout grows with the sparse set rather than with the whole snapshot.
+ * Merge conflicts are the one exception: a conflicted file is always written out,
+ * so that it can be resolved.
+ * @author Suiren
+ */
+class Sparse {
+    /** The pattern file. */
+    static final File SPARSE_FILE = join(Repository.GITLET_DIR, "info", "sparse-checkout");
+
+    /** Matchers of the patterns in SPARSE_FILE, loaded on first use; empty when disabled. */
+    private static List<PathMatcher> matchers;
+
+    /** @return whether sparse checkout is on. */
+    static boolean isEnabled() {
+        return !loadMatchers().isEmpty();
+    }
+
+    /** @return whether FILE is in the sparse set. */
+    static boolean includes(String file) {
+        List<PathMatcher> ms = loadMatchers();
+        return ms.isEmpty() || matchesAny(ms, file);
+    }
+
+    /** @return the plain files of the working directory that are in the sparse set. */
+    static List<String> workingFiles() {
+        List<String> files = Objects.requireNonNull(plainFilenamesIn(Repository.CWD));
+        if (!isEnabled()) {
+            return files;
+        }
+        List<String> re = new ArrayList<>();
+        for (String file : files) {
+            if (includes(file)) {
+                re.add(file);
+            }
+        }
+        return re;
+    }
+
+    /**
+     * Replace the sparse set with PATTERNS and update the working directory:
+     * tracked files leaving the set are deleted, missing ones entering it are written.
+     * Refuses to delete a file with changes that are not committed.
+     */
+    static void set(String[] patterns) {
+        List<PathMatcher> next = new ArrayList<>();
+        for (String pattern : patterns) {
+            next.add(compile(pattern));
+        }
+        Map<String, String> snapshot = snapshot();
+
+        List<String> leaving = new ArrayList<>();
+        for (String file : snapshot.keySet()) {
+            if (includes(file) && !matchesAny(next, file)
+                    && join(Repository.CWD, file).exists()) {
+                if (!new Blob(join(Repository.CWD, file)).getID().equals(snapshot.get(file))) {
+                    throw error("Cannot leave %s out: it has uncommitted changes.", file);
+                }
+                leaving.add(file);
+            }
+        }
+        for (String file : leaving) {
+            restrictedDelete(join(Repository.CWD, file));
+        }
+
+        SPARSE_FILE.getParentFile().mkdirs();
+        writeContents(SPARSE_FILE, String.join("\n", patterns) + "\n");
+        matchers = next;
+        materialize(snapshot);
+    }
+
+    /** Print the patterns of the sparse set, one per line. */
+    static void list() {
+        if (!SPARSE_FILE.exists()) {
+            throw error("Sparse checkout is not enabled.");
+        }
+        System.out.print(readContentsAsString(SPARSE_FILE));
+    }
+
+    /** Turn sparse checkout off and write every tracked file missing from the working directory. */
+    static void disable() {
+        if (!SPARSE_FILE.exists()) {
+            throw error("Sparse checkout is not enabled.");
+        }
+        SPARSE_FILE.delete();
+        matchers = new ArrayList<>();
+        materialize(snapshot());
+    }
+
+    /** The files the working directory should hold: the head commit plus the staged changes. */
+    private static Map<String, String> snapshot() {
+        StageArea stage = getStageArea();
+        Map<String, String> files = new HashMap<>(Repository.getCurrentCommit().getTrack());
+        files.putAll(stage.getAddStage());
+        for (String file : stage.getRemoveStage()) {
+            files.remove(file);
+        }
+        return files;
+    }
+
+    /** Write the files of SNAPSHOT in the sparse set that are missing from the working directory. */
+    private static void materialize(Map<String, String> snapshot) {
+        for (Map.Entry<String, String> e : snapshot.entrySet()) {
+            File file = join(Repository.CWD, e.getKey());
+            if (includes(e.getKey()) && !file.exists()) {
+                Blob blob = readObject(Helper.findObjectBlobFile(e.getValue()), Blob.class);
+                writeContents(file, (Object) blob.getContent());
+            }
+        }
+    }
+
+    private static List<PathMatcher> loadMatchers() {
+        if (matchers == null) {
+            matchers = new ArrayList<>();
+            if (SPARSE_FILE.exists()) {
+                for (String line : readContentsAsString(SPARSE_FILE).split("\n")) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        matchers.add(compile(line));
+                    }
+                }
+            }
+        }
+        return matchers;
+    }
+
+    private static PathMatcher compile(String pattern) {
+        try {
+            return FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        } catch (PatternSyntaxException e) {
+            throw error("Invalid pattern: %s", pattern);
+        }
+    }
+
+    private static boolean matchesAny(List<PathMatcher> ms, String file) {
+        Path path = Path.of(file);
+        for (PathMatcher m : ms) {
+            if (m.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
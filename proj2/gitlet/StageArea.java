@@ -1,7 +1,6 @@
 package gitlet;
 
 import java.io.File;
-import java.io.IOException;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,6 +11,9 @@ import static gitlet.Repository.STAGE_AREA;
 import static gitlet.Utils.*;
 
 public class StageArea implements Serializable {
+    /** Pinned as in Commit, so an existing index stays readable. */
+    private static final long serialVersionUID = 8228611857107577570L;
+
     /**
      * The Stage Area
      * Contains the file record added by add operation.
@@ -48,18 +50,13 @@ public class StageArea implements Serializable {
      * @param srcFile the source file from working directory.
      */
     public static void addFile(File srcFile) {
-        if (!STAGE_AREA.exists()) {
-            try {
-                STAGE_AREA.createNewFile();
-                writeObject(STAGE_AREA, new StageArea());
-            } catch (IOException e) {
-                throw error("Cannot create stage area file.");
-            }
+        if (!StateCache.exists(STAGE_AREA)) {
+            save(new StageArea());
         }
 
         Blob blob = new Blob(srcFile);
         Commit curCommit = Repository.getCurrentCommit();
-        StageArea stage = readObject(STAGE_AREA, StageArea.class);
+        StageArea stage = getStageArea();
 
         if (curCommit.getTrack().containsKey(srcFile.getName())) {
             if (!curCommit.getTrack().get(srcFile.getName()).equals(blob.getID())) {
@@ -74,7 +71,7 @@ public class StageArea implements Serializable {
             stage.getAddStage().put(srcFile.getName(), blob.getID());
         }
 
-        writeObject(STAGE_AREA, stage);
+        save(stage);
     }
 
     public void clearStage() {
@@ -87,6 +84,11 @@ public class StageArea implements Serializable {
     }
 
     public static StageArea getStageArea() {
-        return readObject(STAGE_AREA, StageArea.class);
+        return StateCache.readObject(STAGE_AREA, StageArea.class);
+    }
+
+    /** Write the stage area back to the index file, via the state cache. */
+    public static void save(StageArea stage) {
+        StateCache.writeObject(STAGE_AREA, stage);
     }
 }
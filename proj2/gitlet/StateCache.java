@@ -0,0 +1,167 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import static gitlet.Helper.*;
+import static gitlet.Utils.*;
+
+/**
+ * In-memory write-back cache of the repository state.
+ * <p>
+ * The state files (index, HEAD and the branch heads) are read from disk once and
+ * then served from memory; writes to them only update memory and mark them dirty.
+ * That includes creating one, such as a new branch head: it only reaches the disk
+ * with the flush, together with the commit it points to. list() adds such pending
+ * files to a directory listing, so refs/heads still shows every branch.
+ * Commit objects are immutable, so they are cached on first read as well. New
+ * commit objects stay in memory until the flush too; pendingObjects() lets listings
+ * of an object directory include them.
+ * Everything is kept as bytes, so every reader deserializes a fresh copy exactly
+ * as if it had read the file.
+ * <p>
+ * flush() writes the dirty state in one journal transaction, together with the
+ * objects saved since the last flush, and compare-and-swaps every branch head
+ * against the value it had on disk. A single command flushes when it ends;
+ * batch mode flushes at checkpoints and at the end of the script.
+ * @author Suiren
+ */
+class StateCache {
+    /** Cached file contents. A null value means the file is known to be absent. */
+    private static final Map<File, byte[]> CACHE = new HashMap<>();
+    /** Dirty state files, each with the contents it had on disk before the first write, null if none. */
+    private static final Map<File, String> DIRTY = new LinkedHashMap<>();
+    /** Objects saved since the last flush, written by the flush's transaction. */
+    private static final Map<File, byte[]> NEW_OBJECTS = new LinkedHashMap<>();
+
+    /** Return the contents of FILE, or null if it doesn't exist. */
+    static byte[] read(File file) {
+        if (!CACHE.containsKey(file)) {
+            CACHE.put(file, file.isFile() ? readContents(file) : null);
+        }
+        return CACHE.get(file);
+    }
+
+    static String readString(File file) {
+        byte[] contents = read(file);
+        if (contents == null) {
+            throw new IllegalArgumentException("must be a normal file");
+        }
+        return new String(contents, StandardCharsets.UTF_8);
+    }
+
+    /** Return a fresh copy of the object stored in FILE, casting it to EXPECTEDCLASS. */
+    static <T extends Serializable> T readObject(File file, Class<T> expectedClass) {
+        byte[] contents = read(file);
+        if (contents == null) {
+            throw new IllegalArgumentException("must be a normal file");
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(contents))) {
+            return expectedClass.cast(in.readObject());
+        } catch (IOException | ClassCastException | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    static boolean exists(File file) {
+        return read(file) != null;
+    }
+
+    /** Replace the contents of the state file FILE in memory. */
+    static void write(File file, Object... contents) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Object obj : contents) {
+            byte[] bytes = obj instanceof byte[]
+                    ? (byte[]) obj : ((String) obj).getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+        }
+        if (!DIRTY.containsKey(file)) {
+            byte[] old = read(file);
+            DIRTY.put(file, old == null ? null : new String(old, StandardCharsets.UTF_8));
+        }
+        CACHE.put(file, out.toByteArray());
+    }
+
+    /**
+     * @return the names of the plain files in DIR, including those created in
+     * memory and not flushed yet, in sorted order.
+     */
+    static List<String> list(File dir) {
+        TreeSet<String> names = new TreeSet<>(Objects.requireNonNull(plainFilenamesIn(dir)));
+        for (File file : DIRTY.keySet()) {
+            if (file.getParentFile().equals(dir) && CACHE.get(file) != null) {
+                names.add(file.getName());
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    static void writeObject(File file, Serializable obj) {
+        write(file, (Object) serialize(obj));
+    }
+
+    /**
+     * Save an object file. It is only written by the next flush, in the same
+     * transaction as the state that refers to it.
+     */
+    static void saveObject(File file, Serializable obj) {
+        byte[] contents = serialize(obj);
+        CACHE.put(file, contents);
+        NEW_OBJECTS.put(file, contents);
+    }
+
+    /** @return the names of the objects saved in DIR that are not flushed yet. */
+    static List<String> pendingObjects(File dir) {
+        List<String> names = new ArrayList<>();
+        for (File file : NEW_OBJECTS.keySet()) {
+            if (file.getParentFile().equals(dir)) {
+                names.add(file.getName());
+            }
+        }
+        return names;
+    }
+
+    /** Drop FILE from the cache, discarding a pending write to it. */
+    static void forget(File file) {
+        CACHE.remove(file);
+        DIRTY.remove(file);
+    }
+
+    /** Write all dirty state to disk as one journal transaction. */
+    static void flush() {
+        if (DIRTY.isEmpty() && NEW_OBJECTS.isEmpty()) {
+            return;
+        }
+        Journal.Transaction tx = Journal.begin();
+        for (Map.Entry<File, byte[]> obj : NEW_OBJECTS.entrySet()) {
+            tx.write(obj.getKey(), (Object) obj.getValue());
+        }
+        for (Map.Entry<File, String> state : DIRTY.entrySet()) {
+            File file = state.getKey();
+            tx.write(file, (Object) CACHE.get(file));
+            if (file.getParentFile().equals(Repository.BRANCH_HEADS_DIR)) {
+                tx.expect(file, state.getValue()); // compare-and-swap the branch head
+            }
+        }
+        DIRTY.clear();
+        NEW_OBJECTS.clear();
+        try {
+            tx.commit();
+        } catch (GitletException e) {
+            CACHE.clear(); // a branch head moved under us: re-read everything from disk
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package gitlet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Tests of merging across renames, running gitlet in a scratch directory. */
+public class TestMergeRenames {
+
+    private static final String CONTENT = "line one\nline two\nline three\n";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Run one gitlet command in DIR, returning what it printed. */
+    private static String gitlet(File dir, String... args) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Utils.join(System.getProperty("java.home"), "bin", "java").getPath());
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add("gitlet.Main");
+        cmd.addAll(Arrays.asList(args));
+        Process p = new ProcessBuilder(cmd).directory(dir).redirectErrorStream(true).start();
+        String out = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(out, 0, p.waitFor());
+        return out;
+    }
+
+    /** A pure rename in the given branch is checked out by the merge. */
+    @Test
+    public void renameInGivenBranchTest() throws Exception {
+        File dir = tmp.newFolder();
+        gitlet(dir, "init");
+        Utils.writeContents(Utils.join(dir, "a.txt"), CONTENT);
+        gitlet(dir, "add", "a.txt");
+        gitlet(dir, "commit", "add a");
+        gitlet(dir, "branch", "other");
+        gitlet(dir, "checkout", "other");
+        gitlet(dir, "rm", "a.txt");
+        Utils.writeContents(Utils.join(dir, "b.txt"), CONTENT);
+        gitlet(dir, "add", "b.txt");
+        gitlet(dir, "commit", "rename a to b");
+        gitlet(dir, "checkout", "master");
+        Utils.writeContents(Utils.join(dir, "c.txt"), "c\n");
+        gitlet(dir, "add", "c.txt");
+        gitlet(dir, "commit", "add c");
+
+        gitlet(dir, "merge", "other");
+        assertFalse(Utils.join(dir, "a.txt").exists());
+        assertEquals(CONTENT, Utils.readContentsAsString(Utils.join(dir, "b.txt")));
+        assertEquals("c\n", Utils.readContentsAsString(Utils.join(dir, "c.txt")));
+        String status = gitlet(dir, "status");
+        assertFalse(status, status.contains("(deleted)"));
+    }
+}